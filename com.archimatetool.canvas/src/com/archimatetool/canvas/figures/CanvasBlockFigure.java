@@ -23,6 +23,7 @@ import org.eclipse.swt.graphics.Color;
 
 import com.archimatetool.canvas.model.ICanvasModelBlock;
 import com.archimatetool.editor.diagram.figures.AbstractContainerFigure;
+import com.archimatetool.editor.diagram.figures.DeferredLayoutFlowPage;
 import com.archimatetool.editor.diagram.util.AnimationUtil;
 import com.archimatetool.editor.ui.ColorFactory;
 import com.archimatetool.editor.utils.StringUtils;
@@ -63,7 +64,7 @@ public class CanvasBlockFigure extends AbstractContainerFigure {
             }
         };
         
-        FlowPage flowPage = new FlowPage();
+        FlowPage flowPage = new DeferredLayoutFlowPage();
         BlockFlow block = new BlockFlow();
         fTextFlow = new TextFlow();
         fTextFlow.setLayoutManager(new ParagraphTextLayout(fTextFlow, ParagraphTextLayout.WORD_WRAP_HARD));
@@ -20,6 +20,7 @@ import org.eclipse.swt.graphics.Color;
 
 import com.archimatetool.canvas.model.ICanvasModelSticky;
 import com.archimatetool.editor.diagram.figures.AbstractDiagramModelObjectFigure;
+import com.archimatetool.editor.diagram.figures.DeferredLayoutFlowPage;
 import com.archimatetool.editor.preferences.Preferences;
 import com.archimatetool.editor.ui.ColorFactory;
 import com.archimatetool.editor.utils.StringUtils;
@@ -54,7 +55,7 @@ extends AbstractDiagramModelObjectFigure {
     protected void setUI() {
         setLayoutManager(new GridLayout());
         
-        FlowPage flowPage = new FlowPage();
+        FlowPage flowPage = new DeferredLayoutFlowPage();
         BlockFlow block = new BlockFlow();
         fTextFlow = new TextFlow();
         fTextFlow.setLayoutManager(new ParagraphTextLayout(fTextFlow, ParagraphTextLayout.WORD_WRAP_HARD));
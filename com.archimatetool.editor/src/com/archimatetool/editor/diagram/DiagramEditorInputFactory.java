@@ -8,12 +8,14 @@ package com.archimatetool.editor.diagram;
 import java.io.File;
 
 import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.ui.IElementFactory;
 import org.eclipse.ui.IMemento;
 
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.util.ArchimateModelUtils;
 
 
 
@@ -45,12 +47,13 @@ public class DiagramEditorInputFactory implements IElementFactory {
 
         if(viewID != null && fileName != null) {
             File file = new File(fileName);
+            // The model might still be loading from the last session
+            IEditorModelManager.INSTANCE.waitForModel(file);
             for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
                 if(file.equals(model.getFile())) {
-                    for(IDiagramModel diagramModel : model.getDiagramModels()) {
-                        if(viewID.equals(diagramModel.getId())) {
-                            return new DiagramEditorInput(diagramModel);
-                        }
+                    EObject object = ArchimateModelUtils.getObjectByID(model, viewID);
+                    if(object instanceof IDiagramModel) {
+                        return new DiagramEditorInput((IDiagramModel)object);
                     }
                 }
             }
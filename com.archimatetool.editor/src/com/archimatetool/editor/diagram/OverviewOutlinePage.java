@@ -8,7 +8,6 @@ package com.archimatetool.editor.diagram;
 import org.eclipse.draw2d.LightweightSystem;
 import org.eclipse.draw2d.MarginBorder;
 import org.eclipse.draw2d.Viewport;
-import org.eclipse.draw2d.parts.ScrollableThumbnail;
 import org.eclipse.gef.EditPart;
 import org.eclipse.gef.LayerConstants;
 import org.eclipse.gef.editparts.ScalableFreeformRootEditPart;
@@ -26,6 +25,8 @@ import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.Page;
 import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 
+import com.archimatetool.editor.diagram.util.TiledScrollableThumbnail;
+
 /**
  * This is a sample implementation of an outline page showing an overview of a graphical editor.
  * It's based on the one by Gunnar Wagenknecht.
@@ -37,7 +38,7 @@ import org.eclipse.ui.views.contentoutline.IContentOutlinePage;
 public class OverviewOutlinePage extends Page implements IContentOutlinePage, IContextProvider {
 
     private Canvas fCanvas;
-    private ScrollableThumbnail fThumbnail;
+    private TiledScrollableThumbnail fThumbnail;
     private ScalableFreeformRootEditPart fEditPart;
 
     public static String HELP_ID = "com.archimatetool.help.outlineViewHelp"; //$NON-NLS-1$
@@ -60,7 +61,7 @@ public class OverviewOutlinePage extends Page implements IContentOutlinePage, IC
         fCanvas = new Canvas(parent, SWT.NONE);
         LightweightSystem lws = new LightweightSystem(fCanvas);
         
-        fThumbnail = new ScrollableThumbnail((Viewport)fEditPart.getFigure());
+        fThumbnail = new TiledScrollableThumbnail((Viewport)fEditPart.getFigure());
         fThumbnail.setSource(fEditPart.getLayer(LayerConstants.PRINTABLE_LAYERS));
         fThumbnail.setBorder(new MarginBorder(3));
         lws.setContents(fThumbnail);
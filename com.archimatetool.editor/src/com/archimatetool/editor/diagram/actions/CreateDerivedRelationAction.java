@@ -5,8 +5,10 @@
  */
 package com.archimatetool.editor.diagram.actions;
 
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.gef.EditPart;
@@ -18,7 +20,9 @@ import org.eclipse.jface.dialogs.Dialog;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.IDialogSettings;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.layout.TableColumnLayout;
+import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.eclipse.jface.viewers.ColumnWeightData;
 import org.eclipse.jface.viewers.DoubleClickEvent;
 import org.eclipse.jface.viewers.IDoubleClickListener;
@@ -54,8 +58,8 @@ import com.archimatetool.model.IDiagramModelArchimateConnection;
 import com.archimatetool.model.IDiagramModelArchimateObject;
 import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IRelationship;
+import com.archimatetool.model.util.DerivedRelationsEngine;
 import com.archimatetool.model.util.DerivedRelationsUtils;
-import com.archimatetool.model.util.DerivedRelationsUtils.TooComplicatedException;
 
 
 
@@ -107,8 +111,26 @@ public class CreateDerivedRelationAction extends SelectionAction {
         editPart = (EditPart)selection.get(1);
         IDiagramModelArchimateObject diagramModelObject2 = (IDiagramModelArchimateObject)editPart.getModel();
         
-        ChainList chainList1 = new ChainList(diagramModelObject1, diagramModelObject2);
-        ChainList chainList2 = new ChainList(diagramModelObject2, diagramModelObject1);
+        final ChainList chainList1 = new ChainList(diagramModelObject1, diagramModelObject2);
+        final ChainList chainList2 = new ChainList(diagramModelObject2, diagramModelObject1);
+        
+        // Find the chains in a cancellable progress dialog since this can take a while on a large model
+        try {
+            ProgressMonitorDialog progressDialog = new ProgressMonitorDialog(getWorkbenchPart().getSite().getShell());
+            progressDialog.run(true, true, new IRunnableWithProgress() {
+                @Override
+                public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+                    monitor.beginTask(Messages.CreateDerivedRelationAction_12, IProgressMonitor.UNKNOWN);
+                    chainList1.findChains(monitor);
+                    chainList2.findChains(monitor);
+                    monitor.done();
+                }
+            });
+        }
+        catch(Exception ex) {
+            ex.printStackTrace();
+            return;
+        }
         
         // Already has a direct relationship in both directions
         if(chainList1.hasExistingDirectRelationship() && chainList2.hasExistingDirectRelationship()) {
@@ -126,9 +148,9 @@ public class CreateDerivedRelationAction extends SelectionAction {
             return;
         }
         
-        // No chains found, although perhaps one was too complicated...
+        // No chains found, although perhaps one was too complicated or not all chains were found...
         if(chainList1.getChains() == null && chainList2.getChains() == null) {
-            if(chainList1.isTooComplicated || chainList2.isTooComplicated) {
+            if(chainList1.isTooComplicated || chainList2.isTooComplicated || chainList1.isIncomplete || chainList2.isIncomplete) {
                 MessageDialog.openInformation(getWorkbenchPart().getSite().getShell(),
                         Messages.CreateDerivedRelationAction_1,
                         Messages.CreateDerivedRelationAction_4);
@@ -168,28 +190,34 @@ public class CreateDerivedRelationAction extends SelectionAction {
         IArchimateElement tgtElement;
         List<List<IRelationship>> chains;
         boolean isTooComplicated;
+        boolean isIncomplete;
         
         ChainList(IDiagramModelArchimateObject srcDiagramObject, IDiagramModelArchimateObject tgtDiagramObject) {
             this.srcDiagramObject = srcDiagramObject;
             this.tgtDiagramObject = tgtDiagramObject;
             srcElement = srcDiagramObject.getArchimateElement();
             tgtElement = tgtDiagramObject.getArchimateElement();
-            
-            if(!hasExistingDirectRelationship()) {
-                findChains();
-            }
         }
         
         boolean hasExistingDirectRelationship() {
             return DerivedRelationsUtils.hasDirectStructuralRelationship(srcElement, tgtElement);
         }
         
-        private void findChains() {
-            try {
-                chains = DerivedRelationsUtils.getDerivedRelationshipChains(srcElement, tgtElement);
-            }
-            catch(TooComplicatedException ex) {
-                isTooComplicated = true;
+        void findChains(IProgressMonitor monitor) {
+            if(!hasExistingDirectRelationship()) {
+                DerivedRelationsEngine engine = new DerivedRelationsEngine(srcElement, tgtElement, monitor);
+                List<List<IRelationship>> foundChains = engine.findChains();
+                
+                // Cancelled so we don't have them all
+                if(engine.isCancelled()) {
+                    chains = null;
+                    isTooComplicated = true;
+                }
+                // Too many chains so use the ones found so far
+                else {
+                    chains = DerivedRelationsUtils.getValidChains(srcElement, tgtElement, foundChains);
+                    isIncomplete = !engine.isComplete();
+                }
             }
         }
         
@@ -243,14 +271,14 @@ public class CreateDerivedRelationAction extends SelectionAction {
             if(chainList1.getChains() != null) {
                 createTable(composite, chainList1);
             }
-            else if(chainList1.isTooComplicated) {
+            else if(chainList1.isTooComplicated || chainList1.isIncomplete) {
                 createTooComplicatedMessage(composite, chainList1);
             }
             
             if(chainList2.getChains() != null) {
                 createTable(composite, chainList2);
             }
-            else if(chainList2.isTooComplicated) {
+            else if(chainList2.isTooComplicated || chainList2.isIncomplete) {
                 createTooComplicatedMessage(composite, chainList2);
             }
             
@@ -258,7 +286,13 @@ public class CreateDerivedRelationAction extends SelectionAction {
         }
         
         private void createTable(Composite parent, ChainList chainList) {
-            createLabel(parent, chainList);
+            CLabel label = createLabel(parent, chainList);
+            
+            // Not all chains were found
+            if(chainList.isIncomplete) {
+                label.setText(label.getText() + "  " + NLS.bind(Messages.CreateDerivedRelationAction_13, DerivedRelationsEngine.MAX_CHAINS)); //$NON-NLS-1$
+                label.setImage(Display.getCurrent().getSystemImage(SWT.ICON_INFORMATION));
+            }
             
             Composite c = new Composite(parent, SWT.NULL);
             c.setLayout(new TableColumnLayout());
@@ -19,7 +19,6 @@ import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.editor.model.commands.DeleteElementCommand;
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.model.IArchimateElement;
-import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelArchimateConnection;
 import com.archimatetool.model.IDiagramModelArchimateObject;
 import com.archimatetool.model.IDiagramModelComponent;
@@ -99,11 +98,7 @@ public class DeleteFromModelAction extends SelectionAction {
         
         // Gather referenced diagram objects
         for(IArchimateElement element : elements) {
-            for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
-                for(IDiagramModelComponent dc : DiagramModelUtils.findDiagramModelComponentsForElement(diagramModel, element)) {
-                    diagramObjects.add(dc);
-                }
-            }
+            diagramObjects.addAll(DiagramModelUtils.findDiagramModelComponentsForElement(element));
         }
         
         // Create commands
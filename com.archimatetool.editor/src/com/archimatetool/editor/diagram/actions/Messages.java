@@ -43,6 +43,10 @@ public class Messages extends NLS {
 
     public static String CreateDerivedRelationAction_11;
 
+    public static String CreateDerivedRelationAction_12;
+
+    public static String CreateDerivedRelationAction_13;
+
     public static String CreateDerivedRelationAction_2;
 
     public static String CreateDerivedRelationAction_3;
@@ -17,7 +17,6 @@ import org.eclipse.jface.util.PropertyChangeEvent;
 
 import com.archimatetool.editor.diagram.figures.IDiagramModelObjectFigure;
 import com.archimatetool.editor.preferences.IPreferenceConstants;
-import com.archimatetool.editor.preferences.Preferences;
 import com.archimatetool.editor.ui.services.ViewManager;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.ILockable;
@@ -42,27 +41,18 @@ public abstract class AbstractBaseEditPart extends AbstractFilteredEditPart {
         }
     };
     
+    private PreferenceChangeDispatcher prefsDispatcher;
+    
     /**
-     * Application User Preferences were changed
+     * Application User Preferences were changed.
+     * This is called from the viewer's PreferenceChangeDispatcher which repaints the viewer for preferences that only
+     * affect painting, such as shadows and default colours, and only sends the preferences that it knows Edit Parts respond to.
      * @param event
      */
     protected void applicationPreferencesChanged(PropertyChangeEvent event) {
         if(IPreferenceConstants.DEFAULT_VIEW_FONT.equals(event.getProperty())) {
             refreshFigure();
         }
-        else if(IPreferenceConstants.SHOW_SHADOWS.equals(event.getProperty())) {
-            getFigure().repaint();
-        }
-        // Default colour preferences changed
-        else if(event.getProperty().startsWith(IPreferenceConstants.DEFAULT_FILL_COLOR_PREFIX)) {
-            getFigure().repaint();
-        }
-        else if(event.getProperty().equals(IPreferenceConstants.DEFAULT_ELEMENT_LINE_COLOR)) {
-            getFigure().repaint();
-        }
-        else if(event.getProperty().startsWith(IPreferenceConstants.DERIVE_ELEMENT_LINE_COLOR)) {
-            getFigure().repaint();
-        }
     }
     
     @Override
@@ -74,7 +64,8 @@ public abstract class AbstractBaseEditPart extends AbstractFilteredEditPart {
             addECoreAdapter();
             
             // Listen to Prefs changes
-            Preferences.STORE.addPropertyChangeListener(prefsListener);
+            prefsDispatcher = PreferenceChangeDispatcher.getDispatcher(getViewer());
+            prefsDispatcher.addListener(prefsListener);
         }
     }
 
@@ -87,7 +78,10 @@ public abstract class AbstractBaseEditPart extends AbstractFilteredEditPart {
             removeECoreAdapter();
             
             // Remove Prefs listener
-            Preferences.STORE.removePropertyChangeListener(prefsListener);
+            if(prefsDispatcher != null) {
+                prefsDispatcher.removeListener(prefsListener);
+                prefsDispatcher = null;
+            }
 
             // Dispose of figure
             if(getFigure() instanceof IDiagramModelObjectFigure) {
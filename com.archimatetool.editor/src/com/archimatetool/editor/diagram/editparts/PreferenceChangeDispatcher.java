@@ -0,0 +1,193 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.editparts;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.gef.EditPartViewer;
+import org.eclipse.gef.GraphicalEditPart;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.swt.widgets.Display;
+
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.editor.preferences.Preferences;
+
+
+
+/**
+ * Preference Change Dispatcher
+ *
+ * There is one of these for each viewer. It listens to the Preferences Store on behalf of all of the viewer's Edit Parts
+ * so that there is only one Preferences listener for each viewer rather than one for each Edit Part.<p>
+ *
+ * Changed preferences are collected and dealt with in one update pass after the current event:
+ * <ul>
+ * <li>Preferences that only change how figures are painted cause one repaint of the viewer</li>
+ * <li>Preferences that Edit Parts respond to are sent to the Edit Parts' listeners, once for each preference</li>
+ * <li>Other preferences are ignored</li>
+ * </ul>
+ *
+ * @author Phillip Beauvoir
+ */
+public class PreferenceChangeDispatcher {
+
+    private static final String VIEWER_PROPERTY = "preferenceChangeDispatcher"; //$NON-NLS-1$
+
+    /**
+     * @param viewer The viewer
+     * @return The Dispatcher for viewer, created if there isn't one
+     */
+    public static PreferenceChangeDispatcher getDispatcher(EditPartViewer viewer) {
+        PreferenceChangeDispatcher dispatcher = (PreferenceChangeDispatcher)viewer.getProperty(VIEWER_PROPERTY);
+        if(dispatcher == null) {
+            dispatcher = new PreferenceChangeDispatcher(viewer);
+            viewer.setProperty(VIEWER_PROPERTY, dispatcher);
+        }
+        return dispatcher;
+    }
+
+    /**
+     * @param key A Preference key
+     * @return True if a change to the preference only needs the figures to be repainted
+     */
+    static boolean isRepaintPreference(String key) {
+        return IPreferenceConstants.SHOW_SHADOWS.equals(key)
+                || key.startsWith(IPreferenceConstants.DEFAULT_FILL_COLOR_PREFIX)
+                || IPreferenceConstants.DEFAULT_ELEMENT_LINE_COLOR.equals(key)
+                || key.startsWith(IPreferenceConstants.DERIVE_ELEMENT_LINE_COLOR)
+                || IPreferenceConstants.USE_LINE_CURVES.equals(key)
+                || IPreferenceConstants.USE_LINE_JUMPS.equals(key)
+                || IPreferenceConstants.HIDE_TEXT_BELOW_ZOOM.equals(key)
+                || IPreferenceConstants.SIMPLE_FIGURES_BELOW_ZOOM.equals(key);
+    }
+
+    /**
+     * @param key A Preference key
+     * @return True if Edit Parts respond to a change to the preference
+     */
+    static boolean isEditPartPreference(String key) {
+        return IPreferenceConstants.DEFAULT_VIEW_FONT.equals(key)
+                || IPreferenceConstants.DEFAULT_CONNECTION_LINE_COLOR.equals(key)
+                || IPreferenceConstants.USE_ORTHOGONAL_ANCHOR.equals(key)
+                || IPreferenceConstants.HIDDEN_RELATIONS_TYPES.equals(key)
+                || IPreferenceConstants.USE_NESTED_CONNECTIONS.equals(key);
+    }
+
+    private EditPartViewer fViewer;
+
+    private Set<IPropertyChangeListener> fListeners = new LinkedHashSet<IPropertyChangeListener>();
+
+    // Latest change event for each changed preference waiting for the update pass
+    private Map<String, PropertyChangeEvent> fPendingEvents = new LinkedHashMap<String, PropertyChangeEvent>();
+
+    private boolean fRepaintPending;
+    private boolean fUpdateScheduled;
+
+    private IPropertyChangeListener fPreferencesListener = new IPropertyChangeListener() {
+        @Override
+        public void propertyChange(PropertyChangeEvent event) {
+            preferenceChanged(event);
+        }
+    };
+
+    private Runnable fUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            update();
+        }
+    };
+
+    private PreferenceChangeDispatcher(EditPartViewer viewer) {
+        fViewer = viewer;
+    }
+
+    /**
+     * Add an Edit Part's listener. The Dispatcher listens to the Preferences Store while it has listeners.
+     * @param listener
+     */
+    public void addListener(IPropertyChangeListener listener) {
+        if(fListeners.isEmpty()) {
+            Preferences.STORE.addPropertyChangeListener(fPreferencesListener);
+        }
+        fListeners.add(listener);
+    }
+
+    /**
+     * Remove an Edit Part's listener. When the last listener is removed the Dispatcher is removed from the viewer.
+     * @param listener
+     */
+    public void removeListener(IPropertyChangeListener listener) {
+        if(fListeners.remove(listener) && fListeners.isEmpty()) {
+            Preferences.STORE.removePropertyChangeListener(fPreferencesListener);
+            fPendingEvents.clear();
+            fRepaintPending = false;
+
+            if(fViewer.getProperty(VIEWER_PROPERTY) == this) {
+                fViewer.setProperty(VIEWER_PROPERTY, null);
+            }
+        }
+    }
+
+    private void preferenceChanged(PropertyChangeEvent event) {
+        String key = event.getProperty();
+
+        if(isRepaintPreference(key)) {
+            fRepaintPending = true;
+        }
+        else if(isEditPartPreference(key)) {
+            fPendingEvents.remove(key); // Keep the order of the latest changes
+            fPendingEvents.put(key, event);
+        }
+        else {
+            return;
+        }
+
+        if(!fUpdateScheduled) {
+            fUpdateScheduled = true;
+            Display.getDefault().asyncExec(fUpdateRunnable);
+        }
+    }
+
+    /**
+     * The update pass
+     */
+    private void update() {
+        fUpdateScheduled = false;
+
+        if(fListeners.isEmpty() || fViewer.getControl() == null || fViewer.getControl().isDisposed()) {
+            fPendingEvents.clear();
+            fRepaintPending = false;
+            return;
+        }
+
+        List<PropertyChangeEvent> events = new ArrayList<PropertyChangeEvent>(fPendingEvents.values());
+        fPendingEvents.clear();
+
+        // Copy the listeners as Edit Parts can be added and removed by the listeners
+        IPropertyChangeListener[] listeners = fListeners.toArray(new IPropertyChangeListener[fListeners.size()]);
+
+        for(PropertyChangeEvent event : events) {
+            for(IPropertyChangeListener listener : listeners) {
+                if(fListeners.contains(listener)) {
+                    listener.propertyChange(event);
+                }
+            }
+        }
+
+        if(fRepaintPending) {
+            fRepaintPending = false;
+            if(fViewer.getRootEditPart() instanceof GraphicalEditPart) {
+                ((GraphicalEditPart)fViewer.getRootEditPart()).getFigure().repaint();
+            }
+        }
+    }
+}
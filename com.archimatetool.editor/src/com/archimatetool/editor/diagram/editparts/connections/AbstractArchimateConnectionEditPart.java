@@ -7,19 +7,17 @@ package com.archimatetool.editor.diagram.editparts.connections;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-
-import org.eclipse.emf.common.notify.Adapter;
-import org.eclipse.emf.common.notify.Notification;
-import org.eclipse.emf.ecore.util.EContentAdapter;
+import java.util.Set;
 
 import com.archimatetool.editor.diagram.IArchimateDiagramEditor;
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateModel;
-import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IDiagramModelArchimateConnection;
 import com.archimatetool.model.IProperties;
 import com.archimatetool.model.IRelationship;
 import com.archimatetool.model.util.DerivedRelationsUtils;
+import com.archimatetool.model.util.RelationshipsAdapter;
+import com.archimatetool.model.util.RelationshipsAdapter.IDerivedChainListener;
 
 
 /**
@@ -33,17 +31,12 @@ implements IArchimateConnectionEditPart {
     private IArchimateModel fArchimateModel;
     
     /**
-     * Listen to all model changes to refresh Structural color.
+     * Listen to model changes that affect this relationship's structural chains to refresh Structural color.
      */
-    private Adapter fModelAdapter = new EContentAdapter() {
+    private IDerivedChainListener fDerivedChainListener = new IDerivedChainListener() {
         @Override
-        public void notifyChanged(Notification msg) {
-            super.notifyChanged(msg);
-
-            Object feature = msg.getFeature();
-            if(feature == IArchimatePackage.Literals.RELATIONSHIP__SOURCE
-                                                    || feature == IArchimatePackage.Literals.RELATIONSHIP__TARGET
-                                                    || feature == IArchimatePackage.Literals.FOLDER__ELEMENTS) {
+        public void derivedChainChanged(Set<IRelationship> relations) {
+            if(relations.contains(getModel().getRelationship())) {
                 showStructural();
             }
         }
@@ -80,7 +73,7 @@ implements IArchimateConnectionEditPart {
 			getModel().getRelationship().eAdapters().add(getECoreAdapter());
 			// Register to listen to overall model changes that affect the structural relationship chains
 			if(isShowStructural()) {
-	            fArchimateModel.eAdapters().add(fModelAdapter);
+	            addDerivedChainListener();
 	        }
 			// Listen to Viewer Property changes for "Show Structural Chains"
 			getViewer().addPropertyChangeListener(propertyListener);
@@ -92,7 +85,7 @@ implements IArchimateConnectionEditPart {
         if(isActive()) {
             super.deactivate();
             getModel().getRelationship().eAdapters().remove(getECoreAdapter());
-            fArchimateModel.eAdapters().remove(fModelAdapter);
+            removeDerivedChainListener();
             getViewer().removePropertyChangeListener(propertyListener);
         }
     }
@@ -105,20 +98,43 @@ implements IArchimateConnectionEditPart {
         }
     }
     
+    @Override
+    protected void refreshLineVisuals() {
+        super.refreshLineVisuals();
+        // The highlight is drawn with the line colour and width
+        if(isShowStructural()) {
+            showStructural();
+        }
+    }
+    
     /**
      * Register Model Listener to update Structural Chains
      */
     protected void registerStructural() {
         if(isShowStructural()) {
-            fArchimateModel.eAdapters().add(fModelAdapter);
+            addDerivedChainListener();
             showStructural();
         }
         else {
-            fArchimateModel.eAdapters().remove(fModelAdapter);
+            removeDerivedChainListener();
             clearStructural();
         }
     }
     
+    private void addDerivedChainListener() {
+        RelationshipsAdapter adapter = RelationshipsAdapter.getAdapter(fArchimateModel);
+        if(adapter != null) {
+            adapter.addDerivedChainListener(fDerivedChainListener);
+        }
+    }
+    
+    private void removeDerivedChainListener() {
+        RelationshipsAdapter adapter = RelationshipsAdapter.getAdapter(fArchimateModel);
+        if(adapter != null) {
+            adapter.removeDerivedChainListener(fDerivedChainListener);
+        }
+    }
+    
     protected boolean isShowStructural() {
         return Boolean.TRUE.equals(getViewer().getProperty(IArchimateDiagramEditor.PROPERTY_SHOW_STRUCTURAL_CHAIN));
     }
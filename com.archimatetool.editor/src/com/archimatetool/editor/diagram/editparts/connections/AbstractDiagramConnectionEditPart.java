@@ -36,11 +36,11 @@ import org.eclipse.osgi.util.NLS;
 
 import com.archimatetool.editor.diagram.commands.DiagramCommandFactory;
 import com.archimatetool.editor.diagram.directedit.LabelDirectEditManager;
+import com.archimatetool.editor.diagram.editparts.PreferenceChangeDispatcher;
 import com.archimatetool.editor.diagram.figures.connections.IDiagramConnectionFigure;
 import com.archimatetool.editor.diagram.policies.ManualBendpointEditPolicy;
 import com.archimatetool.editor.model.commands.EObjectFeatureCommand;
 import com.archimatetool.editor.preferences.IPreferenceConstants;
-import com.archimatetool.editor.preferences.Preferences;
 import com.archimatetool.editor.ui.services.ViewManager;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IDiagramModelBendpoint;
@@ -58,6 +58,21 @@ import com.archimatetool.model.IProperties;
 public abstract class AbstractDiagramConnectionEditPart extends AbstractConnectionEditPart
 implements IDiagramConnectionEditPart {
 
+    /**
+     * Refresh everything with refreshVisuals()
+     */
+    protected static final int REFRESH_VISUALS = 1;
+    
+    /**
+     * Refresh the line colour and line width
+     */
+    protected static final int REFRESH_LINE = 2;
+    
+    /**
+     * Refresh the label text, font, font colour and position
+     */
+    protected static final int REFRESH_TEXT = 4;
+    
     private Adapter adapter = new AdapterImpl() {
         @Override
         public void notifyChanged(Notification msg) {
@@ -66,27 +81,26 @@ implements IDiagramConnectionEditPart {
     };
     
     /**
-     * Listen to default font change in Prefs
+     * Listen to default font and line colour changes in Prefs.
+     * Line curves and line jumps changes are repainted by the viewer's PreferenceChangeDispatcher.
      */
     private IPropertyChangeListener prefsListener = new IPropertyChangeListener() {
         @Override
         public void propertyChange(org.eclipse.jface.util.PropertyChangeEvent event) {
             String property = event.getProperty();
             if(IPreferenceConstants.DEFAULT_VIEW_FONT.equals(property)) {
-                refreshVisuals();
+                refreshTextVisuals();
             }
             else if(property.equals(IPreferenceConstants.DEFAULT_CONNECTION_LINE_COLOR)) {
-                refreshVisuals();
-            }
-            else if(IPreferenceConstants.USE_LINE_CURVES.equals(property)) {
-                getFigure().repaint();
-            }
-            else if(IPreferenceConstants.USE_LINE_JUMPS.equals(property)) {
-                getFigure().repaint();
+                refreshLineVisuals();
             }
         }
     };
     
+    private PreferenceChangeDispatcher prefsDispatcher;
+    
+    private ConnectionRefreshScheduler refreshScheduler;
+    
     /**
      * Figure Listener 
      */
@@ -119,6 +133,13 @@ implements IDiagramConnectionEditPart {
                 if(feature == IArchimatePackage.Literals.LOCKABLE__LOCKED) {
                     createEditPolicies();
                 }
+                // Bendpoints are set now so that they are in place for animation of Undo/Redo
+                else if(feature == IArchimatePackage.Literals.DIAGRAM_MODEL_CONNECTION__BENDPOINTS) {
+                    refreshBendpoints();
+                }
+                else if(refreshScheduler != null) {
+                    refreshScheduler.markDirty(this, getRefreshType(feature));
+                }
                 else {
                     refreshVisuals();
                 }
@@ -129,6 +150,27 @@ implements IDiagramConnectionEditPart {
         }
     }
     
+    /**
+     * @param feature The feature of a model notification
+     * @return The REFRESH_* flags for the least refresh that a change to feature needs
+     */
+    protected int getRefreshType(Object feature) {
+        if(feature == IArchimatePackage.Literals.LINE_OBJECT__LINE_COLOR
+                || feature == IArchimatePackage.Literals.LINE_OBJECT__LINE_WIDTH) {
+            return REFRESH_LINE;
+        }
+        
+        if(feature == IArchimatePackage.Literals.NAMEABLE__NAME
+                || feature == IArchimatePackage.Literals.FONT_ATTRIBUTE__FONT
+                || feature == IArchimatePackage.Literals.FONT_ATTRIBUTE__FONT_COLOR
+                || feature == IArchimatePackage.Literals.FONT_ATTRIBUTE__TEXT_ALIGNMENT
+                || feature == IArchimatePackage.Literals.FONT_ATTRIBUTE__TEXT_POSITION) {
+            return REFRESH_TEXT;
+        }
+        
+        return REFRESH_VISUALS;
+    }
+    
     protected Adapter getECoreAdapter() {
         return adapter;
     }
@@ -161,11 +203,16 @@ implements IDiagramConnectionEditPart {
         if(!isActive()) {
             super.activate();
             
+            // Model changes are refreshed in batches
+            refreshScheduler = ConnectionRefreshScheduler.getScheduler(getViewer());
+            refreshScheduler.addEditPart(this);
+            
             // Listen to changes in Diagram Model Object
             addECoreAdapter();
             
             // Listen to Prefs changes to set default Font
-            Preferences.STORE.addPropertyChangeListener(prefsListener);
+            prefsDispatcher = PreferenceChangeDispatcher.getDispatcher(getViewer());
+            prefsDispatcher.addListener(prefsListener);
         }
     }
     
@@ -177,7 +224,15 @@ implements IDiagramConnectionEditPart {
             // Remove Listener to changes in Diagram Model Object
             removeECoreAdapter();
             
-            Preferences.STORE.removePropertyChangeListener(prefsListener);
+            if(prefsDispatcher != null) {
+                prefsDispatcher.removeListener(prefsListener);
+                prefsDispatcher = null;
+            }
+            
+            if(refreshScheduler != null) {
+                refreshScheduler.removeEditPart(this);
+                refreshScheduler = null;
+            }
         }
     }
     
@@ -256,6 +311,39 @@ implements IDiagramConnectionEditPart {
         refreshBendpoints();
     }
     
+    /**
+     * Refresh the parts of the visuals in refreshType
+     * @param refreshType One or more of the REFRESH_* flags
+     */
+    protected void refreshVisuals(int refreshType) {
+        if((refreshType & REFRESH_VISUALS) != 0) {
+            refreshVisuals();
+            return;
+        }
+        
+        if((refreshType & REFRESH_LINE) != 0) {
+            refreshLineVisuals();
+        }
+        
+        if((refreshType & REFRESH_TEXT) != 0) {
+            refreshTextVisuals();
+        }
+    }
+    
+    /**
+     * Refresh the line colour and line width
+     */
+    protected void refreshLineVisuals() {
+        getFigure().refreshLineVisuals();
+    }
+    
+    /**
+     * Refresh the label text, font, font colour and position
+     */
+    protected void refreshTextVisuals() {
+        getFigure().refreshTextVisuals();
+    }
+    
     protected boolean isLocked() {
         return getModel() instanceof ILockable && ((ILockable)getModel()).isLocked();
     }
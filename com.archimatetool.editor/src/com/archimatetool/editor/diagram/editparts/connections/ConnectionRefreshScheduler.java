@@ -0,0 +1,157 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.editparts.connections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.gef.EditPartViewer;
+import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.commands.CommandStackEvent;
+import org.eclipse.gef.commands.CommandStackEventListener;
+import org.eclipse.swt.widgets.Display;
+
+
+
+/**
+ * Connection Refresh Scheduler
+ *
+ * There is one of these for each viewer. Connection Edit Parts mark themselves as dirty here when their model changes
+ * rather than refreshing their figures straight away, so that a command that changes many connections, or changes one
+ * connection many times, refreshes each connection once.<p>
+ *
+ * Each dirty Edit Part is kept with the kinds of refresh it needs, and these are done in one flush:
+ * <ul>
+ * <li>After the viewer's Command Stack has executed, undone or redone a command</li>
+ * <li>After the current event, for changes that are not made in a command</li>
+ * </ul>
+ *
+ * @author Phillip Beauvoir
+ */
+public class ConnectionRefreshScheduler {
+
+    private static final String VIEWER_PROPERTY = "connectionRefreshScheduler"; //$NON-NLS-1$
+
+    /**
+     * @param viewer The viewer
+     * @return The Scheduler for viewer, created if there isn't one
+     */
+    public static ConnectionRefreshScheduler getScheduler(EditPartViewer viewer) {
+        ConnectionRefreshScheduler scheduler = (ConnectionRefreshScheduler)viewer.getProperty(VIEWER_PROPERTY);
+        if(scheduler == null) {
+            scheduler = new ConnectionRefreshScheduler(viewer);
+            viewer.setProperty(VIEWER_PROPERTY, scheduler);
+        }
+        return scheduler;
+    }
+
+    private EditPartViewer fViewer;
+
+    private CommandStack fCommandStack;
+
+    private int fPartCount;
+
+    // Dirty Edit Parts and the kinds of refresh they need
+    private Map<AbstractDiagramConnectionEditPart, Integer> fDirtyParts = new LinkedHashMap<AbstractDiagramConnectionEditPart, Integer>();
+
+    private boolean fFlushScheduled;
+
+    private CommandStackEventListener fCommandStackListener = new CommandStackEventListener() {
+        @Override
+        public void stackChanged(CommandStackEvent event) {
+            if((event.getDetail() & CommandStack.POST_MASK) != 0) {
+                flush();
+            }
+        }
+    };
+
+    private Runnable fFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            fFlushScheduled = false;
+            flush();
+        }
+    };
+
+    private ConnectionRefreshScheduler(EditPartViewer viewer) {
+        fViewer = viewer;
+    }
+
+    /**
+     * Register an active Edit Part. The Scheduler listens to the Command Stack while it has Edit Parts.
+     * @param part
+     */
+    void addEditPart(AbstractDiagramConnectionEditPart part) {
+        if(fPartCount++ == 0 && fViewer.getEditDomain() != null) {
+            fCommandStack = fViewer.getEditDomain().getCommandStack();
+            if(fCommandStack != null) {
+                fCommandStack.addCommandStackEventListener(fCommandStackListener);
+            }
+        }
+    }
+
+    /**
+     * Unregister an Edit Part and drop its pending refresh. When the last Edit Part is removed the Scheduler is removed from the viewer.
+     * @param part
+     */
+    void removeEditPart(AbstractDiagramConnectionEditPart part) {
+        fDirtyParts.remove(part);
+
+        if(--fPartCount == 0) {
+            if(fCommandStack != null) {
+                fCommandStack.removeCommandStackEventListener(fCommandStackListener);
+                fCommandStack = null;
+            }
+
+            fDirtyParts.clear();
+
+            if(fViewer.getProperty(VIEWER_PROPERTY) == this) {
+                fViewer.setProperty(VIEWER_PROPERTY, null);
+            }
+        }
+    }
+
+    /**
+     * Mark an Edit Part as needing a refresh
+     * @param part The Edit Part
+     * @param refreshType One or more of the Edit Part's REFRESH_* flags
+     */
+    void markDirty(AbstractDiagramConnectionEditPart part, int refreshType) {
+        Integer pending = fDirtyParts.get(part);
+        fDirtyParts.put(part, pending == null ? refreshType : pending | refreshType);
+
+        // In case the change isn't made in a command, or the command doesn't complete
+        if(!fFlushScheduled) {
+            fFlushScheduled = true;
+            Display.getDefault().asyncExec(fFlushRunnable);
+        }
+    }
+
+    /**
+     * Refresh the dirty Edit Parts
+     */
+    void flush() {
+        if(fDirtyParts.isEmpty()) {
+            return;
+        }
+
+        // Swap the dirty parts as refreshing can mark parts as dirty again
+        Map<AbstractDiagramConnectionEditPart, Integer> dirtyParts = fDirtyParts;
+        fDirtyParts = new LinkedHashMap<AbstractDiagramConnectionEditPart, Integer>();
+
+        if(fViewer.getControl() == null || fViewer.getControl().isDisposed()) {
+            return;
+        }
+
+        for(Entry<AbstractDiagramConnectionEditPart, Integer> entry : dirtyParts.entrySet()) {
+            AbstractDiagramConnectionEditPart part = entry.getKey();
+            if(part.isActive()) {
+                part.refreshVisuals(entry.getValue());
+            }
+        }
+    }
+}
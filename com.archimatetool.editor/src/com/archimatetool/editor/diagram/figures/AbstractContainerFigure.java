@@ -85,7 +85,14 @@ implements IContainerFigure {
     @Override
     protected void paintFigure(Graphics graphics) {
         graphics.setAntialias(SWT.ON);
-        drawFigure(graphics);
+        
+        if(LevelOfDetail.drawSimpleFigures(this, graphics)) {
+            drawSimpleFigure(graphics);
+        }
+        else {
+            drawFigure(graphics);
+        }
+        
         if(SHOW_TARGET_FEEDBACK) {
             drawTargetFeedback(graphics);
         }
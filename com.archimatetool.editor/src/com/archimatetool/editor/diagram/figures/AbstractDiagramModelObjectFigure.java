@@ -9,6 +9,7 @@ import org.eclipse.draw2d.Figure;
 import org.eclipse.draw2d.Graphics;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
@@ -72,6 +73,57 @@ implements IDiagramModelObjectFigure {
         }
     }
     
+    /**
+     * Draw the figure as a simple shape when the zoom level is too low to show its details.
+     * The default is a filled rectangle with an outline, without text, shadows or icons.
+     * @param graphics
+     */
+    protected void drawSimpleFigure(Graphics graphics) {
+        graphics.pushState();
+        
+        if(!isEnabled()) {
+            setDisabledState(graphics);
+        }
+        
+        Rectangle bounds = getBounds().getCopy();
+        bounds.width--;
+        bounds.height--;
+        
+        graphics.setBackgroundColor(getFillColor());
+        graphics.fillRectangle(bounds);
+        graphics.setForegroundColor(getLineColor());
+        graphics.drawRectangle(bounds);
+        
+        graphics.popState();
+    }
+    
+    /**
+     * If text is not drawn at the current zoom level don't paint the child figure that holds the text control
+     */
+    @Override
+    protected void paintChildren(Graphics graphics) {
+        IFigure textFigure = getTextControl();
+        while(textFigure != null && textFigure.getParent() != this) {
+            textFigure = textFigure.getParent();
+        }
+        
+        if(textFigure == null || LevelOfDetail.drawText(this, graphics)) {
+            super.paintChildren(graphics);
+            return;
+        }
+        
+        Rectangle clip = graphics.getClip(new Rectangle());
+        
+        for(Object child : getChildren()) {
+            IFigure figure = (IFigure)child;
+            if(figure != textFigure && figure.isVisible() && figure.getBounds().intersects(clip)) {
+                graphics.clipRect(figure.getBounds());
+                figure.paint(graphics);
+                graphics.restoreState();
+            }
+        }
+    }
+    
     /**
      * Set the drawing state when disabled
      * @param graphics
@@ -54,7 +54,7 @@ public abstract class AbstractTextFlowFigure extends AbstractContainerFigure {
             }
         };
 
-        FlowPage page = new FlowPage();
+        FlowPage page = new DeferredLayoutFlowPage();
         BlockFlow block = new BlockFlow();
         fTextFlow = new TextFlow();
         fTextFlow.setLayoutManager(new ParagraphTextLayout(fTextFlow, ParagraphTextLayout.WORD_WRAP_TRUNCATE));
@@ -0,0 +1,52 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures;
+
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.text.FlowPage;
+
+
+
+/**
+ * Flow Page that doesn't lay out its text while it is outside of the viewer's visible area or while its text is hidden
+ * at the current zoom level.
+ *
+ * The page stays invalid and is laid out when it is next painted or its size is asked for.
+ *
+ * @author Phillip Beauvoir
+ */
+public class DeferredLayoutFlowPage extends FlowPage {
+
+    @Override
+    public void validate() {
+        if(isValid()) {
+            return;
+        }
+
+        if(!LevelOfDetail.isTextShown(this) || !LevelOfDetail.isInViewport(this)) {
+            return;
+        }
+
+        super.validate();
+    }
+
+    @Override
+    public void paint(Graphics graphics) {
+        if(!isValid()) {
+            super.validate();
+        }
+        super.paint(graphics);
+    }
+
+    @Override
+    public Dimension getPreferredSize(int width, int h) {
+        if(!isValid()) {
+            super.validate();
+        }
+        return super.getPreferredSize(width, h);
+    }
+}
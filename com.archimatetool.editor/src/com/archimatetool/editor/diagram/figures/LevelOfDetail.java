@@ -0,0 +1,105 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures;
+
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.ScalableFigure;
+import org.eclipse.draw2d.Viewport;
+import org.eclipse.draw2d.geometry.Rectangle;
+
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.editor.preferences.Preferences;
+
+
+
+/**
+ * Level of Detail for drawing figures at the current zoom scale.
+ *
+ * The zoom scale is the scale set by the viewer's ZoomManager, which is the scale of the figure's ScalableFigure ancestor.
+ * Below the zoom levels set in Preferences text is not drawn and figures are drawn as simple shapes.
+ * Printing and exporting images paint the figures with their own scale, so when painting the scale of the Graphics
+ * must be below the zoom level as well.
+ *
+ * @author Phillip Beauvoir
+ */
+public final class LevelOfDetail {
+
+    private LevelOfDetail() {
+    }
+
+    /**
+     * @return True if the text of figure should be drawn with graphics
+     */
+    public static boolean drawText(IFigure figure, Graphics graphics) {
+        return !isBelowZoom(figure, graphics, IPreferenceConstants.HIDE_TEXT_BELOW_ZOOM);
+    }
+
+    /**
+     * @return True if figure should be drawn as a simple shape with graphics
+     */
+    public static boolean drawSimpleFigures(IFigure figure, Graphics graphics) {
+        return isBelowZoom(figure, graphics, IPreferenceConstants.SIMPLE_FIGURES_BELOW_ZOOM);
+    }
+
+    /**
+     * @return True if the text of figure will be drawn at the current zoom scale
+     */
+    public static boolean isTextShown(IFigure figure) {
+        return !isBelowZoom(getScale(figure), IPreferenceConstants.HIDE_TEXT_BELOW_ZOOM);
+    }
+
+    /**
+     * @return True if figure is in the visible area of its viewer, or if it is not in a viewer
+     */
+    public static boolean isInViewport(IFigure figure) {
+        Viewport viewport = null;
+        for(IFigure parent = figure.getParent(); parent != null; parent = parent.getParent()) {
+            if(parent instanceof Viewport) {
+                viewport = (Viewport)parent;
+            }
+        }
+
+        if(viewport == null) {
+            return true;
+        }
+
+        Rectangle bounds = figure.getBounds().getCopy();
+        figure.translateToAbsolute(bounds);
+
+        Rectangle visible = viewport.getBounds().getCopy();
+        viewport.translateToAbsolute(visible);
+
+        return bounds.intersects(visible);
+    }
+
+    /**
+     * @return The zoom scale of figure, or 1 if it is not in a ScalableFigure
+     */
+    public static double getScale(IFigure figure) {
+        for(IFigure parent = figure.getParent(); parent != null; parent = parent.getParent()) {
+            if(parent instanceof ScalableFigure) {
+                return ((ScalableFigure)parent).getScale();
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return True if both the zoom scale of figure and the scale of graphics are below the zoom percentage in the preference key
+     */
+    private static boolean isBelowZoom(IFigure figure, Graphics graphics, String key) {
+        return isBelowZoom(getScale(figure), key) && isBelowZoom(graphics.getAbsoluteScale(), key);
+    }
+
+    /**
+     * @return True if scale is below the zoom percentage in the preference key. A zoom percentage of 0 is never used.
+     */
+    private static boolean isBelowZoom(double scale, String key) {
+        int zoom = Preferences.STORE.getInt(key);
+        return zoom > 0 && scale * 100 < zoom;
+    }
+}
@@ -66,21 +66,9 @@ extends RoundedPolylineConnection implements IDiagramConnectionFigure {
 	}
 	
     public void refreshVisuals() {
-        // If the text position has been changed by user update it
-        if(fDiagramModelConnection.getTextPosition() != fTextPosition) {
-            fTextPosition = fDiagramModelConnection.getTextPosition();
-            setLabelLocator(fTextPosition);
-        }
-        
-        setLabelFont();
-        
-        setLabelFontColor();
-        
-        setLineColor();
-        
-        setConnectionText();
+        refreshTextVisuals();
         
-        setLineWidth();
+        refreshLineVisuals();
         
         // Set Enabled according to current Viewpoint
         boolean enabled = ViewpointsManager.INSTANCE.isAllowedType(getModelConnection());
@@ -94,6 +82,26 @@ extends RoundedPolylineConnection implements IDiagramConnectionFigure {
         getConnectionLabel().setEnabled(enabled);
     }
 
+    public void refreshLineVisuals() {
+        setLineColor();
+        
+        setLineWidth();
+    }
+    
+    public void refreshTextVisuals() {
+        // If the text position has been changed by user update it
+        if(fDiagramModelConnection.getTextPosition() != fTextPosition) {
+            fTextPosition = fDiagramModelConnection.getTextPosition();
+            setLabelLocator(fTextPosition);
+        }
+        
+        setLabelFont();
+        
+        setLabelFontColor();
+        
+        setConnectionText();
+    }
+    
     /**
      * @param copy
      * @return True if the user clicked on the Relationship edit label
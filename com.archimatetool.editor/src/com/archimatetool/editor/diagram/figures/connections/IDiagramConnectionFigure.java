@@ -22,6 +22,16 @@ public interface IDiagramConnectionFigure extends Connection {
      */
     void refreshVisuals();
     
+    /**
+     * Refresh the line colour and line width for the model
+     */
+    void refreshLineVisuals();
+    
+    /**
+     * Refresh the label text, font, font colour and position for the model
+     */
+    void refreshTextVisuals();
+    
     /**
      * @param requestLoc
      * @return
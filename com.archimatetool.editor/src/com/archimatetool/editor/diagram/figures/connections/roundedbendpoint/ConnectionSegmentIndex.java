@@ -0,0 +1,199 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.figures.connections.roundedbendpoint;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.PointList;
+
+
+/**
+ * Spatial index of the line segments of the RoundedPolylineConnections in one diagram.
+ *
+ * Segments are held in a uniform grid of cells so that the segments that might cross a segment
+ * can be found without testing every segment of every connection in the diagram.
+ * A segment is put in every cell that its bounding box touches, so two segments that cross
+ * always share at least one cell.
+ *
+ * When a connection's segments change the connections that share cells with its old or new segments
+ * are told that their line points have to be computed again.
+ *
+ * @author Phillip Beauvoir
+ */
+class ConnectionSegmentIndex {
+
+	// Width and height of a grid cell
+	static final int CELL_SIZE = 128;
+
+	/*
+	 * Index for each diagram keyed by the diagram's root figure.
+	 * The index is only referenced weakly here and is kept alive by the connections that use it.
+	 */
+	private static Map<IFigure, WeakReference<ConnectionSegmentIndex>> indexes = new WeakHashMap<IFigure, WeakReference<ConnectionSegmentIndex>>();
+
+	/**
+	 * @param root The root figure of a diagram
+	 * @return The index for the diagram, created if there isn't one
+	 */
+	static ConnectionSegmentIndex getIndex(IFigure root) {
+		WeakReference<ConnectionSegmentIndex> ref = indexes.get(root);
+		ConnectionSegmentIndex index = ref != null ? ref.get() : null;
+		if (index == null) {
+			index = new ConnectionSegmentIndex();
+			indexes.put(root, new WeakReference<ConnectionSegmentIndex>(index));
+		}
+		return index;
+	}
+
+	/**
+	 * A line segment of a connection as it was when the connection was indexed
+	 */
+	static class Segment {
+		final RoundedPolylineConnection connection;
+		final Point start;
+		final Point end;
+
+		Segment(RoundedPolylineConnection connection, Point start, Point end) {
+			this.connection = connection;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	// Segments in each grid cell keyed by the cell's column and row
+	private Map<Long, List<Segment>> cells = new HashMap<Long, List<Segment>>();
+
+	// Segments of each connection
+	private Map<RoundedPolylineConnection, List<Segment>> connectionSegments = new HashMap<RoundedPolylineConnection, List<Segment>>();
+
+	/**
+	 * Index the current segments of connection in place of its previous segments
+	 */
+	void update(RoundedPolylineConnection connection) {
+		Set<RoundedPolylineConnection> affected = new HashSet<RoundedPolylineConnection>();
+		removeSegments(connection, affected);
+
+		PointList points = connection.getPoints();
+		List<Segment> segments = new ArrayList<Segment>(Math.max(0, points.size() - 1));
+
+		for (int i = 0; i < points.size() - 1; i++) {
+			Segment segment = new Segment(connection, points.getPoint(i), points.getPoint(i + 1));
+			segments.add(segment);
+
+			for (long key : getCellKeys(segment.start, segment.end)) {
+				List<Segment> cell = cells.get(key);
+				if (cell == null) {
+					cell = new ArrayList<Segment>();
+					cells.put(key, cell);
+				}
+				for (Segment other : cell) {
+					affected.add(other.connection);
+				}
+				cell.add(segment);
+			}
+		}
+
+		connectionSegments.put(connection, segments);
+		invalidate(affected, connection);
+	}
+
+	/**
+	 * Remove the segments of connection from the index
+	 */
+	void remove(RoundedPolylineConnection connection) {
+		Set<RoundedPolylineConnection> affected = new HashSet<RoundedPolylineConnection>();
+		removeSegments(connection, affected);
+		invalidate(affected, connection);
+	}
+
+	/**
+	 * @return The segments of other connections that share a cell with the segment from start to end
+	 */
+	Set<Segment> getSegments(Point start, Point end, RoundedPolylineConnection exclude) {
+		Set<Segment> result = null;
+
+		for (long key : getCellKeys(start, end)) {
+			List<Segment> cell = cells.get(key);
+			if (cell == null)
+				continue;
+
+			for (Segment segment : cell) {
+				if (segment.connection == exclude)
+					continue;
+				if (result == null)
+					result = new LinkedHashSet<Segment>();
+				result.add(segment);
+			}
+		}
+
+		return result != null ? result : Collections.<Segment>emptySet();
+	}
+
+	private void removeSegments(RoundedPolylineConnection connection, Set<RoundedPolylineConnection> affected) {
+		List<Segment> segments = connectionSegments.remove(connection);
+		if (segments == null)
+			return;
+
+		for (Segment segment : segments) {
+			for (long key : getCellKeys(segment.start, segment.end)) {
+				List<Segment> cell = cells.get(key);
+				if (cell == null)
+					continue;
+
+				cell.remove(segment);
+				if (cell.isEmpty()) {
+					cells.remove(key);
+				}
+				else {
+					for (Segment other : cell) {
+						affected.add(other.connection);
+					}
+				}
+			}
+		}
+	}
+
+	private void invalidate(Set<RoundedPolylineConnection> affected, RoundedPolylineConnection connection) {
+		for (RoundedPolylineConnection other : affected) {
+			if (other != connection)
+				other.invalidateLinePoints();
+		}
+	}
+
+	/**
+	 * @return The keys of the cells touched by the bounding box of the segment from start to end
+	 */
+	private long[] getCellKeys(Point start, Point end) {
+		int col1 = getCell(Math.min(start.x, end.x));
+		int col2 = getCell(Math.max(start.x, end.x));
+		int row1 = getCell(Math.min(start.y, end.y));
+		int row2 = getCell(Math.max(start.y, end.y));
+
+		long[] keys = new long[(col2 - col1 + 1) * (row2 - row1 + 1)];
+		int i = 0;
+		for (int col = col1; col <= col2; col++) {
+			for (int row = row1; row <= row2; row++) {
+				keys[i++] = ((long)col << 32) | (row & 0xFFFFFFFFL);
+			}
+		}
+		return keys;
+	}
+
+	private int getCell(int coordinate) {
+		return (int)Math.floor((double)coordinate / CELL_SIZE);
+	}
+}
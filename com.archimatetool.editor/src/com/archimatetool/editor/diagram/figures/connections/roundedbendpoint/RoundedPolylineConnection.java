@@ -32,7 +32,6 @@ import org.eclipse.draw2d.geometry.PointList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
 import org.eclipse.draw2d.IFigure;
 import org.eclipse.draw2d.geometry.Rectangle;
 
@@ -61,6 +60,13 @@ public class RoundedPolylineConnection extends PolylineConnection {
 	final double PI2 = Math.PI * 2.0;
 	final double PI12 = Math.PI * 1.0 / 2.0;
 
+	// Index of the segments of all connections on the current diagram, set while this connection is on a diagram
+	private ConnectionSegmentIndex segmentIndex;
+	// Points drawn by outlineShape, kept until the route of this connection or of a nearby connection changes
+	private PointList cachedLinePoints;
+	// Line-curves and line-jumps preferences used for cachedLinePoints
+	private boolean cachedLineCurves, cachedLineJumps;
+
 	@Override
 	public Rectangle getBounds() {
 		if (Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS))
@@ -70,17 +76,71 @@ public class RoundedPolylineConnection extends PolylineConnection {
 	}
 	
 	@Override
-	@SuppressWarnings("rawtypes")
+	public void addNotify() {
+		super.addNotify();
+		segmentIndex = ConnectionSegmentIndex.getIndex(getRoot());
+		segmentIndex.update(this);
+	}
+
+	@Override
+	public void removeNotify() {
+		if (segmentIndex != null) {
+			segmentIndex.remove(this);
+			segmentIndex = null;
+		}
+		super.removeNotify();
+	}
+
+	@Override
+	public void setPoints(PointList points) {
+		super.setPoints(points);
+		routeChanged();
+	}
+
+	@Override
+	public void primTranslate(int dx, int dy) {
+		super.primTranslate(dx, dy);
+		routeChanged();
+	}
+
+	private void routeChanged() {
+		cachedLinePoints = null;
+		if (segmentIndex != null)
+			segmentIndex.update(this);
+	}
+
+	/**
+	 * Line points have to be computed again because a nearby connection has changed
+	 */
+	void invalidateLinePoints() {
+		cachedLinePoints = null;
+	}
+
+	@Override
 	protected void outlineShape(Graphics g) {
+		boolean useLineCurves = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_CURVES);
+		boolean useLineJumps = Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS);
+
+		if (cachedLinePoints == null || cachedLineCurves != useLineCurves || cachedLineJumps != useLineJumps) {
+			cachedLinePoints = getLinePoints(useLineCurves, useLineJumps);
+			cachedLineCurves = useLineCurves;
+			cachedLineJumps = useLineJumps;
+		}
+
+		// Finally draw the polyLine
+		if (cachedLinePoints.size() != 0) {
+			g.drawPolyline(cachedLinePoints);
+		}
+	}
+
+	private PointList getLinePoints(boolean useLineCurves, boolean useLineJumps) {
 		// Original list of bendpoints
 		PointList bendpoints = getPoints();
 		// List of bendpoints and points added to draw line-curves and line-jumps
 		PointList linepoints = new PointList();
-		// List of all connections on current diagram
-		ArrayList connections = getAllConnections();
 
 		if (bendpoints.size() == 0) {
-			return;
+			return linepoints;
 		}
 		
 		// Start point is the first "previous" point
@@ -94,7 +154,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 			// If last bendpoint, define points for line segment
 			// and then draw polyline
 			if (i == bendpoints.size() - 1) {
-				addSegment(g, prev, bp, connections, linepoints);
+				addSegment(prev, bp, useLineJumps, linepoints);
 				continue;
 			}
 
@@ -102,7 +162,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 			Point next = bendpoints.getPoint(i + 1);
 			
 			// If line-curves are enabled draw bendpoints using ellipse approximation
-			if(Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_CURVES)) {
+			if(useLineCurves) {
 				// Switch to polar coordinates
 				PolarPoint prev_p = new PolarPoint(bp, prev);
 				PolarPoint next_p = new PolarPoint(bp, next);
@@ -141,7 +201,7 @@ public class RoundedPolylineConnection extends PolylineConnection {
 				}
 				
 				// Now that bendpoint position has been refined we can add line segment
-				addSegment(g, prev, bpprev, connections, linepoints);
+				addSegment(prev, bpprev, useLineJumps, linepoints);
 				
 				// Create circle approximation
 				for (double a = 1; a < MAX_ITER; a++) {
@@ -155,18 +215,16 @@ public class RoundedPolylineConnection extends PolylineConnection {
 				prev = bpnext;
 			} else {
 				// Add line segment
-				addSegment(g, prev, bp, connections, linepoints);
+				addSegment(prev, bp, useLineJumps, linepoints);
 				// Prepare next iteration
 				prev = bp;
 			}
 		}
 		
-		// Finally draw the polyLine
-		g.drawPolyline(linepoints);
+		return linepoints;
 	}
 	
-	@SuppressWarnings({ "rawtypes" })
-	private void addSegment(Graphics g, Point start, Point end, ArrayList connections, PointList linepoints){
+	private void addSegment(Point start, Point end, boolean useLineJumps, PointList linepoints){
 		// List of crossing points
 		ArrayList<Point> crosspoints = new ArrayList<Point>();
 		//
@@ -176,33 +234,27 @@ public class RoundedPolylineConnection extends PolylineConnection {
 		linepoints.addPoint(start);
 		
 		// If line-jumps are enabled, draw them using half circles
-		if (Preferences.STORE.getBoolean(IPreferenceConstants.USE_LINE_JUMPS)) {
+		if (useLineJumps && segmentIndex != null) {
 			// Compute angle between line segment and horizontal line
 			PolarPoint end_p = new PolarPoint(start, end);
 			double angle = end_p.theta % Math.PI;
 			boolean reverse = (end_p.theta != angle);
 			
-			// For each other connection, check if a crossing point exist.
+			// For each segment of other connections near this one, check if a crossing point exist.
 			// If yes, add it to the list
-			for (Iterator I = connections.iterator(); I.hasNext();) {
-				RoundedPolylineConnection conn = (RoundedPolylineConnection) I.next();
-				PointList bendpoints = conn.getPoints();
-				
-				// Iterate on connection segments
-				for (int j = 0; j < bendpoints.size() - 1; j++) {
-					Point bp = bendpoints.getPoint(j);
-					Point next = bendpoints.getPoint(j + 1);
-					Point crosspoint = lineIntersect(start, end, bp, next);
-					// Check if crossing point found and not too close from ends
-					if (crosspoint != null
-						&& (new PolarPoint(crosspoint, start)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, end)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, bp)).r > JUMP_MAX_RADIUS
-						&& (new PolarPoint(crosspoint, next)).r > JUMP_MAX_RADIUS) {
-						double con_angle = ((new PolarPoint(bp, next)).theta % Math.PI);
-						if (angle > con_angle && !crosspoints.contains(crosspoint))
-							crosspoints.add(crosspoint);
-					}
+			for (ConnectionSegmentIndex.Segment segment : segmentIndex.getSegments(start, end, this)) {
+				Point bp = segment.start;
+				Point next = segment.end;
+				Point crosspoint = lineIntersect(start, end, bp, next);
+				// Check if crossing point found and not too close from ends
+				if (crosspoint != null
+					&& (new PolarPoint(crosspoint, start)).r > JUMP_MAX_RADIUS
+					&& (new PolarPoint(crosspoint, end)).r > JUMP_MAX_RADIUS
+					&& (new PolarPoint(crosspoint, bp)).r > JUMP_MAX_RADIUS
+					&& (new PolarPoint(crosspoint, next)).r > JUMP_MAX_RADIUS) {
+					double con_angle = ((new PolarPoint(bp, next)).theta % Math.PI);
+					if (angle > con_angle && !crosspoints.contains(crosspoint))
+						crosspoints.add(crosspoint);
 				}
 			}
 	
@@ -228,27 +280,6 @@ public class RoundedPolylineConnection extends PolylineConnection {
 		linepoints.addPoint(end);
 	}
 
-	@SuppressWarnings("rawtypes")
-	private ArrayList getAllConnections() {
-		ArrayList result = new ArrayList();
-		getAllConnections(getRoot(), result);
-		return result;
-	}
-
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	private void getAllConnections(IFigure figure, ArrayList list) {
-		for (Iterator I = figure.getChildren().iterator(); I.hasNext();) {
-			IFigure child = (IFigure) I.next();
-			if (child == this)
-				continue;
-			getAllConnections(child, list);
-
-			if (!(child instanceof RoundedPolylineConnection))
-				continue;
-			list.add(child);
-		}
-	}
-
 	private IFigure getRoot() {
 		IFigure figure = this;
 		while (figure.getParent() != null)
@@ -23,6 +23,8 @@ import org.eclipse.draw2d.text.TextFlow;
 import org.eclipse.swt.SWT;
 
 import com.archimatetool.editor.diagram.figures.AbstractDiagramModelObjectFigure;
+import com.archimatetool.editor.diagram.figures.DeferredLayoutFlowPage;
+import com.archimatetool.editor.diagram.figures.LevelOfDetail;
 import com.archimatetool.editor.preferences.IPreferenceConstants;
 import com.archimatetool.editor.preferences.Preferences;
 import com.archimatetool.editor.utils.StringUtils;
@@ -79,7 +81,7 @@ extends AbstractDiagramModelObjectFigure {
         ToolbarLayout layout = new ToolbarLayout();
         setLayoutManager(layout);
 
-        FlowPage page = new FlowPage();
+        FlowPage page = new DeferredLayoutFlowPage();
         BlockFlow block = new BlockFlow();
         fTextFlow = new TextFlow();
         fTextFlow.setLayoutManager(new ParagraphTextLayout(fTextFlow, ParagraphTextLayout.WORD_WRAP_SOFT));
@@ -135,6 +137,11 @@ extends AbstractDiagramModelObjectFigure {
     protected void paintFigure(Graphics graphics) {
         graphics.setAntialias(SWT.ON);
         
+        if(LevelOfDetail.drawSimpleFigures(this, graphics)) {
+            drawSimpleFigure(graphics);
+            return;
+        }
+        
         boolean drawShadows = Preferences.STORE.getBoolean(IPreferenceConstants.SHOW_SHADOWS);
         int shadow_offset = drawShadows ? 3 : 0;
         
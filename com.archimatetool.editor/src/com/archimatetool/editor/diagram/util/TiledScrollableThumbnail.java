@@ -0,0 +1,514 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.diagram.util;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.draw2d.ColorConstants;
+import org.eclipse.draw2d.Figure;
+import org.eclipse.draw2d.FigureListener;
+import org.eclipse.draw2d.FreeformFigure;
+import org.eclipse.draw2d.Graphics;
+import org.eclipse.draw2d.IFigure;
+import org.eclipse.draw2d.MouseEvent;
+import org.eclipse.draw2d.MouseListener;
+import org.eclipse.draw2d.MouseMotionListener;
+import org.eclipse.draw2d.SWTGraphics;
+import org.eclipse.draw2d.ScaledGraphics;
+import org.eclipse.draw2d.UpdateListener;
+import org.eclipse.draw2d.Viewport;
+import org.eclipse.draw2d.geometry.Dimension;
+import org.eclipse.draw2d.geometry.Point;
+import org.eclipse.draw2d.geometry.Rectangle;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Display;
+
+
+
+/**
+ * Scrollable Thumbnail of a Viewport's contents that keeps the thumbnail in off-screen tiles.
+ *
+ * draw2d's ScrollableThumbnail paints the whole source figure into its thumbnail image after every change to the source.
+ * This thumbnail keeps the thumbnail in tiles and only paints the tiles that cover the damaged parts of the source again.
+ * Tiles are painted on a timer a few at a time, and until then the old tile is shown.<p>
+ *
+ * Tiles are in the source figure's coordinates and so are kept when the viewer is zoomed.
+ * They are only thrown away when the source's extent or the size of the thumbnail changes.<p>
+ *
+ * The area shown in the Viewport is drawn as a selector rectangle which can be dragged to scroll the Viewport.
+ * Clicking outside the selector moves it to the mouse.
+ *
+ * @author Phillip Beauvoir
+ */
+public class TiledScrollableThumbnail extends Figure implements UpdateListener {
+
+    /**
+     * Width and height of a tile in pixels
+     */
+    static final int TILE_SIZE = 256;
+
+    /**
+     * Delay in milliseconds before tiles are painted after a change
+     */
+    static final int UPDATE_DELAY = 200;
+
+    /**
+     * Delay in milliseconds between painting groups of tiles
+     */
+    static final int TILE_DELAY = 10;
+
+    /**
+     * Time in milliseconds to spend painting tiles before giving way to the UI
+     */
+    static final int TILE_TIME = 25;
+
+    private static class Tile {
+        Image image;
+        boolean dirty;
+    }
+
+    private Viewport fViewport;
+    private IFigure fSource;
+
+    // Tiles keyed by column and row
+    private Map<Long, Tile> fTiles = new HashMap<Long, Tile>();
+
+    // Source bounds and scale that the tiles were painted for
+    private Rectangle fSourceBounds;
+    private double fScale;
+
+    private boolean fUpdateScheduled;
+
+    // Offset of the mouse from the selector when dragging, or null
+    private Dimension fDragOffset;
+
+    private Runnable fUpdater = new Runnable() {
+        @Override
+        public void run() {
+            fUpdateScheduled = false;
+            updateTiles();
+        }
+    };
+
+    private PropertyChangeListener fViewportListener = new PropertyChangeListener() {
+        @Override
+        public void propertyChange(PropertyChangeEvent evt) {
+            repaint();
+        }
+    };
+
+    private FigureListener fFigureListener = new FigureListener() {
+        @Override
+        public void figureMoved(IFigure source) {
+            repaint();
+        }
+    };
+
+    private MouseListener fMouseListener = new MouseListener.Stub() {
+        @Override
+        public void mousePressed(MouseEvent me) {
+            Rectangle selector = getSelectorBounds();
+            if(selector == null) {
+                return;
+            }
+
+            // Clicked outside the selector so centre it on the mouse first
+            if(!selector.contains(me.getLocation())) {
+                scrollTo(new Point(me.x - selector.width / 2, me.y - selector.height / 2));
+                selector = getSelectorBounds();
+            }
+
+            fDragOffset = me.getLocation().getDifference(selector.getTopLeft());
+            me.consume();
+        }
+
+        @Override
+        public void mouseReleased(MouseEvent me) {
+            fDragOffset = null;
+        }
+    };
+
+    private MouseMotionListener fMouseMotionListener = new MouseMotionListener.Stub() {
+        @Override
+        public void mouseDragged(MouseEvent me) {
+            if(fDragOffset != null) {
+                scrollTo(me.getLocation().getTranslated(fDragOffset.getNegated()));
+                me.consume();
+            }
+        }
+    };
+
+    /**
+     * @param viewport The Viewport to show and scroll
+     */
+    public TiledScrollableThumbnail(Viewport viewport) {
+        fViewport = viewport;
+
+        fViewport.addPropertyChangeListener(Viewport.PROPERTY_VIEW_LOCATION, fViewportListener);
+        fViewport.addFigureListener(fFigureListener);
+        if(fViewport.getContents() != null) {
+            fViewport.getContents().addFigureListener(fFigureListener);
+        }
+
+        addMouseListener(fMouseListener);
+        addMouseMotionListener(fMouseMotionListener);
+    }
+
+    /**
+     * @param source The figure to show in the thumbnail. This is a figure in the Viewport's contents.
+     */
+    public void setSource(IFigure source) {
+        if(fSource != null) {
+            fSource.getUpdateManager().removeUpdateListener(this);
+        }
+
+        disposeTiles();
+        fSource = source;
+
+        if(fSource != null) {
+            fSource.getUpdateManager().addUpdateListener(this);
+            scheduleUpdate(0);
+        }
+
+        repaint();
+    }
+
+    /**
+     * Stop listening to the source and Viewport and dispose of the tiles
+     */
+    public void deactivate() {
+        setSource(null);
+
+        fViewport.removePropertyChangeListener(Viewport.PROPERTY_VIEW_LOCATION, fViewportListener);
+        fViewport.removeFigureListener(fFigureListener);
+        if(fViewport.getContents() != null) {
+            fViewport.getContents().removeFigureListener(fFigureListener);
+        }
+
+        if(fUpdateScheduled) {
+            Display.getCurrent().timerExec(-1, fUpdater);
+            fUpdateScheduled = false;
+        }
+    }
+
+    @Override
+    public void notifyPainting(Rectangle damage, @SuppressWarnings("rawtypes") Map dirtyRegions) {
+        if(fSource == null || fSourceBounds == null) {
+            return;
+        }
+
+        boolean changed = false;
+
+        for(Object o : dirtyRegions.entrySet()) {
+            @SuppressWarnings("rawtypes")
+            Entry entry = (Entry)o;
+            IFigure figure = (IFigure)entry.getKey();
+
+            if(!isSourceOrChild(figure)) {
+                continue;
+            }
+
+            // The update manager has translated the dirty region to absolute coordinates and clipped it to what is visible.
+            // The damage can be off screen, or partly off screen, so use the dirty figure's whole bounds as well.
+            Rectangle region = figure.getBounds().getCopy();
+            figure.translateToAbsolute(region);
+            Rectangle dirty = (Rectangle)entry.getValue();
+            if(!dirty.isEmpty()) {
+                region.union(dirty);
+            }
+
+            fSource.translateToRelative(region);
+            invalidateTiles(region.expand(1, 1));
+            changed = true;
+        }
+
+        if(changed) {
+            scheduleUpdate(UPDATE_DELAY);
+        }
+    }
+
+    @Override
+    public void notifyValidating() {
+    }
+
+    @Override
+    protected void paintFigure(Graphics graphics) {
+        if(fSource == null) {
+            return;
+        }
+
+        if(checkGeometry()) {
+            scheduleUpdate(0);
+        }
+
+        Rectangle clientArea = getClientArea();
+
+        for(Entry<Long, Tile> entry : fTiles.entrySet()) {
+            Tile tile = entry.getValue();
+            if(tile.image != null) {
+                int col = getColumn(entry.getKey());
+                int row = getRow(entry.getKey());
+                graphics.drawImage(tile.image, clientArea.x + col * TILE_SIZE, clientArea.y + row * TILE_SIZE);
+            }
+        }
+
+        Rectangle selector = getSelectorBounds();
+        if(selector != null) {
+            graphics.setForegroundColor(ColorConstants.menuBackgroundSelected);
+            graphics.setBackgroundColor(ColorConstants.menuBackgroundSelected);
+            graphics.setAlpha(40);
+            graphics.fillRectangle(selector);
+            graphics.setAlpha(255);
+            graphics.drawRectangle(selector.x, selector.y, selector.width - 1, selector.height - 1);
+        }
+    }
+
+    /**
+     * Work out the scale for the source's bounds and the thumbnail's size.
+     * If either has changed the tiles can't be used any more.
+     * @return True if the tiles were thrown away
+     */
+    private boolean checkGeometry() {
+        Rectangle sourceBounds = getSourceBounds();
+        Rectangle clientArea = getClientArea();
+
+        double scale = 0;
+        if(!sourceBounds.isEmpty() && !clientArea.isEmpty()) {
+            scale = Math.min(1, Math.min((double)clientArea.width / sourceBounds.width, (double)clientArea.height / sourceBounds.height));
+        }
+
+        if(sourceBounds.equals(fSourceBounds) && scale == fScale) {
+            return false;
+        }
+
+        disposeTiles();
+        fSourceBounds = sourceBounds;
+        fScale = scale;
+
+        return true;
+    }
+
+    /**
+     * @return The bounds of the source to show. For a Freeform figure this is the extent of its children
+     *         which, unlike its bounds, doesn't change as the Viewport is zoomed or resized.
+     */
+    private Rectangle getSourceBounds() {
+        if(fSource instanceof FreeformFigure) {
+            return ((FreeformFigure)fSource).getFreeformExtent().getCopy();
+        }
+        return fSource.getBounds().getCopy();
+    }
+
+    /**
+     * Paint tiles that are missing or dirty until the time is up, then schedule painting the rest
+     */
+    private void updateTiles() {
+        if(fSource == null) {
+            return;
+        }
+
+        checkGeometry();
+
+        if(fScale == 0) {
+            return;
+        }
+
+        int columns = (int)Math.ceil(fSourceBounds.width * fScale / TILE_SIZE);
+        int rows = (int)Math.ceil(fSourceBounds.height * fScale / TILE_SIZE);
+
+        Rectangle clientArea = getClientArea();
+        long start = System.currentTimeMillis();
+
+        for(int row = 0; row < rows; row++) {
+            for(int col = 0; col < columns; col++) {
+                long key = getKey(col, row);
+                Tile tile = fTiles.get(key);
+
+                if(tile != null && !tile.dirty) {
+                    continue;
+                }
+
+                // Out of time so paint the rest later
+                if(System.currentTimeMillis() - start > TILE_TIME) {
+                    scheduleUpdate(TILE_DELAY);
+                    return;
+                }
+
+                if(tile == null) {
+                    tile = new Tile();
+                    fTiles.put(key, tile);
+                }
+
+                paintTile(tile, col, row);
+                repaint(clientArea.x + col * TILE_SIZE, clientArea.y + row * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Paint the part of the source under the tile into the tile's image
+     */
+    private void paintTile(Tile tile, int col, int row) {
+        if(tile.image == null) {
+            tile.image = new Image(Display.getCurrent(), TILE_SIZE, TILE_SIZE);
+        }
+
+        GC gc = new GC(tile.image);
+        SWTGraphics swtGraphics = new SWTGraphics(gc);
+        ScaledGraphics graphics = new ScaledGraphics(swtGraphics);
+
+        try {
+            Color background = fSource.getBackgroundColor();
+            graphics.setBackgroundColor(background != null ? background : ColorConstants.white);
+            graphics.fillRectangle(0, 0, TILE_SIZE, TILE_SIZE);
+
+            // Tile position in the thumbnail, then the scale, then the source position
+            graphics.translate(-col * TILE_SIZE, -row * TILE_SIZE);
+            graphics.scale(fScale);
+            graphics.translate(-fSourceBounds.x, -fSourceBounds.y);
+
+            // Only paint the source's figures under the tile
+            graphics.clipRect(new Rectangle(
+                    fSourceBounds.x + (int)Math.floor(col * TILE_SIZE / fScale) - 1,
+                    fSourceBounds.y + (int)Math.floor(row * TILE_SIZE / fScale) - 1,
+                    (int)Math.ceil(TILE_SIZE / fScale) + 2,
+                    (int)Math.ceil(TILE_SIZE / fScale) + 2));
+
+            if(fSource.getForegroundColor() != null) {
+                graphics.setForegroundColor(fSource.getForegroundColor());
+            }
+            if(fSource.getFont() != null) {
+                graphics.setFont(fSource.getFont());
+            }
+
+            fSource.paint(graphics);
+        }
+        finally {
+            graphics.dispose();
+            swtGraphics.dispose();
+            gc.dispose();
+        }
+
+        tile.dirty = false;
+    }
+
+    /**
+     * Mark the tiles over region as dirty
+     * @param region A region in the source's coordinates
+     */
+    private void invalidateTiles(Rectangle region) {
+        int col1 = (int)Math.floor((region.x - fSourceBounds.x) * fScale / TILE_SIZE);
+        int row1 = (int)Math.floor((region.y - fSourceBounds.y) * fScale / TILE_SIZE);
+        int col2 = (int)Math.floor((region.right() - fSourceBounds.x) * fScale / TILE_SIZE);
+        int row2 = (int)Math.floor((region.bottom() - fSourceBounds.y) * fScale / TILE_SIZE);
+
+        for(int row = Math.max(0, row1); row <= row2; row++) {
+            for(int col = Math.max(0, col1); col <= col2; col++) {
+                Tile tile = fTiles.get(getKey(col, row));
+                if(tile != null) {
+                    tile.dirty = true;
+                }
+            }
+        }
+    }
+
+    private void disposeTiles() {
+        for(Tile tile : fTiles.values()) {
+            if(tile.image != null) {
+                tile.image.dispose();
+            }
+        }
+        fTiles.clear();
+        fSourceBounds = null;
+        fScale = 0;
+    }
+
+    private void scheduleUpdate(int delay) {
+        if(!fUpdateScheduled) {
+            fUpdateScheduled = true;
+            Display.getCurrent().timerExec(delay, fUpdater);
+        }
+    }
+
+    /**
+     * @return The part of the source shown in the Viewport as a rectangle in this figure, or null
+     */
+    private Rectangle getSelectorBounds() {
+        if(fSource == null || fSourceBounds == null || fScale == 0) {
+            return null;
+        }
+
+        Rectangle visible = getVisibleSourceArea();
+        Rectangle clientArea = getClientArea();
+
+        return new Rectangle(
+                clientArea.x + (int)Math.round((visible.x - fSourceBounds.x) * fScale),
+                clientArea.y + (int)Math.round((visible.y - fSourceBounds.y) * fScale),
+                (int)Math.round(visible.width * fScale),
+                (int)Math.round(visible.height * fScale));
+    }
+
+    /**
+     * @return The part of the source shown in the Viewport in the source's coordinates
+     */
+    private Rectangle getVisibleSourceArea() {
+        Rectangle visible = fViewport.getBounds().getCopy();
+        fViewport.translateToAbsolute(visible);
+        fSource.translateToRelative(visible);
+        return visible;
+    }
+
+    /**
+     * Scroll the Viewport so that the selector's top left is at location
+     * @param location A location in this figure
+     */
+    private void scrollTo(Point location) {
+        if(fSourceBounds == null || fScale == 0) {
+            return;
+        }
+
+        Rectangle clientArea = getClientArea();
+
+        // The location in the source, then in absolute coordinates
+        Point sourceLocation = new Point(
+                fSourceBounds.x + (int)Math.round((location.x - clientArea.x) / fScale),
+                fSourceBounds.y + (int)Math.round((location.y - clientArea.y) / fScale));
+        fSource.translateToAbsolute(sourceLocation);
+
+        Rectangle visible = fViewport.getBounds().getCopy();
+        fViewport.translateToAbsolute(visible);
+
+        Point viewLocation = fViewport.getViewLocation().getTranslated(sourceLocation.getDifference(visible.getTopLeft()));
+        fViewport.setViewLocation(viewLocation);
+    }
+
+    private boolean isSourceOrChild(IFigure figure) {
+        for(IFigure f = figure; f != null; f = f.getParent()) {
+            if(f == fSource) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getKey(int col, int row) {
+        return ((long)col << 32) | (row & 0xFFFFFFFFL);
+    }
+
+    private static int getColumn(long key) {
+        return (int)(key >> 32);
+    }
+
+    private static int getRow(long key) {
+        return (int)key;
+    }
+}
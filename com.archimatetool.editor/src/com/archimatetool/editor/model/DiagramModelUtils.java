@@ -6,7 +6,9 @@
 package com.archimatetool.editor.model;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
@@ -24,6 +26,7 @@ import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.model.IJunctionElement;
 import com.archimatetool.model.IRelationship;
 import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.model.util.DiagramReferencesAdapter;
 
 
 
@@ -40,25 +43,23 @@ public class DiagramModelUtils {
      * @return A List of diagram models (may be empty, but never null)
      */
     public static List<IDiagramModel> findReferencedDiagramsForElement(IArchimateElement element) {
-        List<IDiagramModel> models = new ArrayList<IDiagramModel>();
+        Set<IDiagramModel> models = new LinkedHashSet<IDiagramModel>();
         
         if(element != null && element.getArchimateModel() != null) {
-            for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
-                // Find it
-                boolean result = !findDiagramModelComponentsForElement(diagramModel, element).isEmpty();
-                
-                // Not found, maybe it's expressed as a nested parent/child
-                if(!result && element instanceof IRelationship && ConnectionPreferences.useNestedConnections()) {
-                    result = !findNestedComponentsForRelationship(diagramModel, (IRelationship)element).isEmpty();
-                }
-                
-                if(result && !models.contains(diagramModel)) {
-                    models.add(diagramModel);
+            // Find it
+            for(IDiagramModelComponent dc : findDiagramModelComponentsForElement(element)) {
+                models.add(dc.getDiagramModel());
+            }
+            
+            // Maybe it's expressed as a nested parent/child
+            if(element instanceof IRelationship && ConnectionPreferences.useNestedConnections()) {
+                for(IDiagramModelArchimateObject[] nested : findNestedComponentsForRelationship((IRelationship)element)) {
+                    models.add(nested[0].getDiagramModel());
                 }
             }
         }
         
-        return models;
+        return new ArrayList<IDiagramModel>(models);
     }
     
     /**
@@ -70,10 +71,23 @@ public class DiagramModelUtils {
             return false;
         }
         
-        for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
-            if(isElementReferencedInDiagram(diagramModel, element)) {
-                return true;
+        DiagramReferencesAdapter adapter = DiagramReferencesAdapter.getAdapter(element.getArchimateModel());
+        if(adapter == null) {
+            for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
+                if(isElementReferencedInDiagram(diagramModel, element)) {
+                    return true;
+                }
             }
+            return false;
+        }
+        
+        if(adapter.hasReferences(element)) {
+            return true;
+        }
+        
+        // Expressed as a nested parent/child
+        if(element instanceof IRelationship && ConnectionPreferences.useNestedConnections()) {
+            return !findNestedComponentsForRelationship((IRelationship)element).isEmpty();
         }
         
         return false;
@@ -100,6 +114,29 @@ public class DiagramModelUtils {
     
     // ========================================================================================================
     
+    /**
+     * Find all Diagram Model Components in all Diagram Models for a given element or relationship
+     * @param element
+     * @return The list
+     */
+    public static List<IDiagramModelComponent> findDiagramModelComponentsForElement(IArchimateElement element) {
+        List<IDiagramModelComponent> list = new ArrayList<IDiagramModelComponent>();
+        
+        if(element != null && element.getArchimateModel() != null) {
+            DiagramReferencesAdapter adapter = DiagramReferencesAdapter.getAdapter(element.getArchimateModel());
+            if(adapter != null) {
+                list.addAll(adapter.getReferences(element));
+            }
+            else {
+                for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
+                    list.addAll(findDiagramModelComponentsForElement(diagramModel, element));
+                }
+            }
+        }
+        
+        return list;
+    }
+    
     /**
      * Find all Diagram Model Components for a given element or relationship in a Diagram Model
      * @param diagramModel
@@ -127,7 +164,19 @@ public class DiagramModelUtils {
      */
     public static List<IDiagramModelArchimateObject> findDiagramModelObjectsForElement(IDiagramModelContainer parent, IArchimateElement element) {
         List<IDiagramModelArchimateObject> list = new ArrayList<IDiagramModelArchimateObject>();
-        __findDiagramModelObjectsForElement(list, parent, element);
+        
+        DiagramReferencesAdapter adapter = getDiagramReferencesAdapter(parent);
+        if(adapter != null) {
+            for(IDiagramModelComponent dc : adapter.getReferences(element)) {
+                if(dc instanceof IDiagramModelArchimateObject && isAncestor(parent, dc)) {
+                    list.add((IDiagramModelArchimateObject)dc);
+                }
+            }
+        }
+        else {
+            __findDiagramModelObjectsForElement(list, parent, element);
+        }
+        
         return list;
     }
     
@@ -152,7 +201,20 @@ public class DiagramModelUtils {
      */
     public static List<IDiagramModelArchimateConnection> findDiagramModelConnectionsForRelation(IDiagramModelContainer parent, IRelationship relationship) {
         List<IDiagramModelArchimateConnection> list = new ArrayList<IDiagramModelArchimateConnection>();
-        __findDiagramModelConnectionsForRelation(list, parent, relationship);
+        
+        DiagramReferencesAdapter adapter = getDiagramReferencesAdapter(parent);
+        if(adapter != null) {
+            // A connection is contained in its source object
+            for(IDiagramModelComponent dc : adapter.getReferences(relationship)) {
+                if(dc instanceof IDiagramModelArchimateConnection && isAncestor(parent, dc)) {
+                    list.add((IDiagramModelArchimateConnection)dc);
+                }
+            }
+        }
+        else {
+            __findDiagramModelConnectionsForRelation(list, parent, relationship);
+        }
+        
         return list;
     }
 
@@ -171,6 +233,26 @@ public class DiagramModelUtils {
         }
     }
 
+    /**
+     * @return The DiagramReferencesAdapter for the model that component belongs to, or null
+     */
+    private static DiagramReferencesAdapter getDiagramReferencesAdapter(IDiagramModelComponent component) {
+        IDiagramModel diagramModel = component.getDiagramModel();
+        return diagramModel == null ? null : DiagramReferencesAdapter.getAdapter(diagramModel.getArchimateModel());
+    }
+    
+    /**
+     * @return true if ancestor is component or one of its containers
+     */
+    private static boolean isAncestor(IDiagramModelContainer ancestor, IDiagramModelComponent component) {
+        for(EObject eObject = component; eObject != null; eObject = eObject.eContainer()) {
+            if(eObject == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Find any references to other Diagram Models
      * @param parent The Diagram Model to search
@@ -229,6 +311,26 @@ public class DiagramModelUtils {
         return list;
     }
     
+    /**
+     * Find matching pairs of IDiagramModelArchimateObject types that are nested in all Diagram Models
+     * @param relation
+     * @return
+     */
+    public static List<IDiagramModelArchimateObject[]> findNestedComponentsForRelationship(IRelationship relation) {
+        List<IDiagramModelArchimateObject[]> list = new ArrayList<IDiagramModelArchimateObject[]>();
+        
+        for(IDiagramModelComponent dc1 : findDiagramModelComponentsForElement(relation.getSource())) {
+            for(IDiagramModelComponent dc2 : findDiagramModelComponentsForElement(relation.getTarget())) {
+                if(dc1 instanceof IDiagramModelArchimateObject && dc2 instanceof IDiagramModelArchimateObject
+                        && dc2.eContainer() == dc1 && isNestedRelationship((IDiagramModelArchimateObject)dc1, (IDiagramModelArchimateObject)dc2)) {
+                    list.add(new IDiagramModelArchimateObject[] {(IDiagramModelArchimateObject)dc1, (IDiagramModelArchimateObject)dc2});
+                }
+            }
+        }
+        
+        return list;
+    }
+    
     /**
      * @param parent
      * @param child
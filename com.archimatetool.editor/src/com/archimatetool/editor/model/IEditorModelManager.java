@@ -10,6 +10,8 @@ import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
+import org.eclipse.emf.ecore.EStructuralFeature;
+
 import com.archimatetool.editor.model.impl.EditorModelManager;
 import com.archimatetool.model.IArchimateModel;
 
@@ -31,17 +33,14 @@ public interface IEditorModelManager {
     String PROPERTY_MODEL_REMOVED = "IEditorModelManager.model.removed"; //$NON-NLS-1$
     String PROPERTY_MODEL_SAVED = "IEditorModelManager.model.saved"; //$NON-NLS-1$
     
-    String COMMAND_STACK_CHANGED = "IEditorModelManager.model.dirty"; //$NON-NLS-1$
-
-    String PROPERTY_ECORE_EVENT = "IEditorModelManager.ecore.event"; //$NON-NLS-1$
-    
     /*
-     *  Notification that many ECore events will be fired in succession.
-     *  Listeners can choose to then ignore the events and then update when notified of end.
+     * A model file from the last session is no longer being loaded in the background, either because it has been loaded
+     * or because it could not be loaded or loading was cancelled. The old value is the file.
      */
-    String PROPERTY_ECORE_EVENTS_START = "IEditorModelManager.ecore.events.start"; //$NON-NLS-1$
-    String PROPERTY_ECORE_EVENTS_END = "IEditorModelManager.ecore.events.end"; //$NON-NLS-1$
+    String PROPERTY_MODEL_LOADING = "IEditorModelManager.model.loading"; //$NON-NLS-1$
     
+    String COMMAND_STACK_CHANGED = "IEditorModelManager.model.dirty"; //$NON-NLS-1$
+
     /*
      * If the user creates a new view and it's open and then the user closes the application without first
      * saving the model, then Eclipse tries to restore it again next time. So we don't persist the state
@@ -55,9 +54,21 @@ public interface IEditorModelManager {
     IEditorModelManager INSTANCE = new EditorModelManager();
     
     /**
-     * @return Models
+     * @return Models. The models from the last session are loaded in the background so this might not include all of them yet.
      */
     List<IArchimateModel> getModels();
+    
+    /**
+     * @return The files of the models from the last session that are still being loaded in the background
+     */
+    List<File> getLoadingModelFiles();
+    
+    /**
+     * If the model backed by file is being loaded from the last session wait until it is loaded.
+     * This must be called on the UI thread, which keeps dispatching events while waiting.
+     * @param file The model file
+     */
+    void waitForModel(File file);
 
     /**
      * @return New Model
@@ -152,4 +163,25 @@ public interface IEditorModelManager {
      * @param newValue New Value
      */
     void firePropertyChange(Object source, String prop, Object oldValue, Object newValue);
+    
+    /**
+     * Add a listener for changes to models.
+     * The ECore notifications of a command execution, undo or redo are sent to the listener together.
+     * @param listener The listener
+     * @param model The model to listen to, or null for all models
+     * @param features The features to listen to. If none are given, all features.
+     */
+    void addModelChangeListener(IModelChangeListener listener, IArchimateModel model, EStructuralFeature... features);
+    
+    /**
+     * Remove a listener for changes to models
+     * @param listener The listener
+     */
+    void removeModelChangeListener(IModelChangeListener listener);
+    
+    /**
+     * Send the ECore notifications held back by the commands being executed, undone or redone to model change listeners now.
+     * A command should call this before it asks a listener such as the Models Tree to show an object that it has just added.
+     */
+    void flushModelChanges();
 }
@@ -0,0 +1,32 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model;
+
+import java.util.List;
+
+import org.eclipse.emf.common.notify.Notification;
+
+import com.archimatetool.model.IArchimateModel;
+
+
+
+/**
+ * Listener for changes to models registered with {@link IEditorModelManager#addModelChangeListener}
+ *
+ * @author Phillip Beauvoir
+ */
+public interface IModelChangeListener {
+
+    /**
+     * A model has changed. Notifications that happen while a command is executed, undone or redone on the model's
+     * command stack are collected and sent together when the command has finished. Notifications that happen outside
+     * of a command are sent one at a time.
+     *
+     * @param model The model that changed
+     * @param notifications An unmodifiable list of the ECore notifications in the order that they happened
+     */
+    void modelChanged(IArchimateModel model, List<Notification> notifications);
+}
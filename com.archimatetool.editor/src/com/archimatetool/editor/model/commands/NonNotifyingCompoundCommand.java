@@ -7,13 +7,14 @@ package com.archimatetool.editor.model.commands;
 
 import org.eclipse.gef.commands.CompoundCommand;
 
-import com.archimatetool.editor.model.IEditorModelManager;
-
 
 
 /**
- * Compound Command that will set a property to listeners to ignore notifications.
- * Used where many commands might cause excessive amounts of responses in clients listening to model changes. 
+ * Compound Command for many commands that might cause excessive amounts of responses in clients listening to model changes.<p>
+ * 
+ * This used to tell listeners to ignore notifications until the end of the command. The notifications of every command
+ * executed, undone or redone on a model's Command Stack are now sent to model change listeners together
+ * (see {@link com.archimatetool.editor.model.IEditorModelManager#addModelChangeListener}), so this is a plain Compound Command.
  * 
  * @author Phillip Beauvoir
  */
@@ -25,37 +26,4 @@ public class NonNotifyingCompoundCommand extends CompoundCommand {
     public NonNotifyingCompoundCommand(String label) {
         super(label);
     }
-    
-    @Override
-    public void execute() {
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
-        
-        super.execute();
-        
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
-    }
-    
-    @Override
-    public void undo() {
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
-        
-        super.undo();
-        
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
-    }
-    
-    @Override
-    public void redo() { // redo() as called by CompoundCommand is *not* the same as execute()!
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
-        
-        super.redo();
-        
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
-    }
 }
@@ -14,7 +14,13 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -30,9 +36,7 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Display;
 
 import com.archimatetool.editor.model.IArchiveManager;
-import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.utils.FileUtils;
-import com.archimatetool.editor.utils.ZipUtils;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IDiagramModelImageProvider;
@@ -63,9 +67,15 @@ public class ArchiveManager implements IArchiveManager {
     private boolean fImagesLoaded = false;
     
     /**
-     * Paths of images loaded
+     * Paths of images loaded. Each path holds a reference to its entry in BYTE_ARRAY_STORAGE.
      */
-    private List<String> fLoadedImagePaths = new ArrayList<String>();
+    private Set<String> fLoadedImagePaths = new LinkedHashSet<String>();
+    
+    /**
+     * Private copy of the model's archive file that lazy images are read from.
+     * The model file itself might be changed, moved or deleted by other programs while the model is open.
+     */
+    private File fImagesFile;
     
     /**
      * Adapter monitors added image components added by user (copy & paste, DND, image set, etc)
@@ -80,19 +90,13 @@ public class ArchiveManager implements IArchiveManager {
             if(msg.getEventType() == Notification.ADD) {
                 if(msg.getNewValue() instanceof IDiagramModelImageProvider) {
                     IDiagramModelImageProvider imageProvider = (IDiagramModelImageProvider)msg.getNewValue();
-                    String imagePath = imageProvider.getImagePath();
-                    if(imagePath != null && !fLoadedImagePaths.contains(imagePath)) {
-                        fLoadedImagePaths.add(imagePath);
-                    }
+                    addLoadedImagePath(imageProvider.getImagePath());
                 }
             }
             // Image path set
             else if(msg.getEventType() == Notification.SET) {
                 if(msg.getFeature() == IArchimatePackage.Literals.DIAGRAM_MODEL_IMAGE_PROVIDER__IMAGE_PATH) {
-                    String imagePath = (String)msg.getNewValue();
-                    if(imagePath != null && !fLoadedImagePaths.contains(imagePath)) {
-                        fLoadedImagePaths.add(imagePath);
-                    }
+                    addLoadedImagePath((String)msg.getNewValue());
                 }
             }
         }
@@ -136,8 +140,10 @@ public class ArchiveManager implements IArchiveManager {
     
     @Override
     public Image createImage(String path) throws Exception {
-        if(BYTE_ARRAY_STORAGE.hasEntry(path)) {
-            return new Image(Display.getCurrent(), BYTE_ARRAY_STORAGE.getInputStream(path));
+        // This will read the bytes of a lazy entry if needed
+        InputStream in = BYTE_ARRAY_STORAGE.getInputStream(path);
+        if(in != null) {
+            return new Image(Display.getCurrent(), in);
         }
         
         return null;
@@ -161,17 +167,48 @@ public class ArchiveManager implements IArchiveManager {
     }
     
     /**
-     * Load images from model's archive file
+     * Load images from model's archive file.
+     * The file is copied and only the locations of the images in the copy are recorded.
+     * Their bytes are read from the copy when an image is first created.
      */
     @Override
     public void loadImages() throws IOException {
-        if(!fImagesLoaded && loadImagesFromModelFile(fModel.getFile())) {
-            fImagesLoaded = true;
+        if(fImagesLoaded) {
+            return;
+        }
+        
+        File file = fModel.getFile();
+        if(file == null || !file.exists() || !FACTORY.isArchiveFile(file)) {
+            return;
+        }
+        
+        File imagesFile = File.createTempFile("~archi", ".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+        imagesFile.deleteOnExit();
+        
+        try {
+            FileUtils.copyFile(file, imagesFile, false);
+            loadImagesFromModelFile(imagesFile, true);
         }
+        catch(IOException ex) {
+            imagesFile.delete();
+            throw ex;
+        }
+        
+        fImagesFile = imagesFile;
+        fImagesLoaded = true;
     }
     
     @Override
     public boolean loadImagesFromModelFile(File file) throws IOException {
+        // Another model's file might be changed or deleted so read the images now
+        return loadImagesFromModelFile(file, false);
+    }
+    
+    /**
+     * @param file The model file
+     * @param lazy If true only record the locations of the images in file and read them when needed
+     */
+    private boolean loadImagesFromModelFile(File file, boolean lazy) throws IOException {
         if(file == null || !file.exists() || !FACTORY.isArchiveFile(file)) {
             return false;
         }
@@ -183,15 +220,16 @@ public class ArchiveManager implements IArchiveManager {
             String entryName = zipEntry.getName();
             if(entryName.startsWith("images/")) { //$NON-NLS-1$
                 // Add to ByteArrayStorage
-                if(!BYTE_ARRAY_STORAGE.hasEntry(entryName)) {
+                if(lazy) {
+                    BYTE_ARRAY_STORAGE.addLazyEntry(entryName, file, zipEntry);
+                }
+                else if(!BYTE_ARRAY_STORAGE.hasEntry(entryName) || BYTE_ARRAY_STORAGE.isLazyEntry(entryName)) {
                     InputStream in = zipFile.getInputStream(zipEntry);
                     BYTE_ARRAY_STORAGE.addStreamEntry(entryName, in);
                 }
                 
-                // Add to list
-                if(!fLoadedImagePaths.contains(entryName)) {
-                    fLoadedImagePaths.add(entryName);
-                }
+                // Add to loaded paths
+                addLoadedImagePath(entryName);
             }
         }
         
@@ -200,6 +238,15 @@ public class ArchiveManager implements IArchiveManager {
         return true;
     }
     
+    /**
+     * Add an image path as loaded and used by this model
+     */
+    private void addLoadedImagePath(String imagePath) {
+        if(imagePath != null && fLoadedImagePaths.add(imagePath)) {
+            BYTE_ARRAY_STORAGE.addReference(imagePath);
+        }
+    }
+    
     @Override
     public boolean hasImages() {
         for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
@@ -222,70 +269,143 @@ public class ArchiveManager implements IArchiveManager {
             return;
         }
         
-        if(hasImages()) {
-            saveModelToArchiveFile(file);
+        // Read all the images first. If an image can't be read the save fails here and the file is left as it is.
+        Map<String, byte[]> images = getImageBytes();
+        
+        // Save to a new file next to the model's file and then replace it so that a failed save doesn't leave a corrupt file
+        File tmpFile = File.createTempFile("~" + file.getName(), ".tmp", file.getAbsoluteFile().getParentFile()); //$NON-NLS-1$ //$NON-NLS-2$
+        
+        try {
+            if(images.isEmpty()) {
+                saveModelToXMLFile(file, tmpFile);
+            }
+            else {
+                saveModelToArchiveFile(file, tmpFile, images);
+            }
+            
+            FileUtils.replaceFile(tmpFile, file);
         }
-        else {
-            saveModelToXMLFile(file);
+        finally {
+            tmpFile.delete();
         }
     }
     
     /**
      * Save the model to Archive File format
+     * @param file The model's file
+     * @param outFile The file to write to
+     * @param images The bytes of the images
      */
-    private void saveModelToArchiveFile(File file) throws IOException {
-        // Temp file for xml model file
-        File tmpFile = File.createTempFile("archimate", null); //$NON-NLS-1$
-        tmpFile.deleteOnExit();
-        saveModelToXMLFile(tmpFile);
-        
-        // Create Zip File output stream to model's file
-        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+    private void saveModelToArchiveFile(File file, File outFile, Map<String, byte[]> images) throws IOException {
+        // Create Zip File output stream
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outFile));
         ZipOutputStream zOut = new ZipOutputStream(out);
         
         try {
             // Add the model xml file
-            ZipUtils.addFileToZip(tmpFile, "model.xml", zOut); //$NON-NLS-1$
+            zOut.putNextEntry(new ZipEntry("model.xml")); //$NON-NLS-1$
+            createResource(file).save(zOut, null);
+            zOut.closeEntry();
             
             // Add any images
-            saveImages(zOut);
+            saveImages(zOut, images);
         }
         finally {
-            tmpFile.delete();
             zOut.close();
         }
     }
     
     /**
      * Save the model to XML File format
+     * @param file The model's file
+     * @param outFile The file to write to
+     */
+    private void saveModelToXMLFile(File file, File outFile) throws IOException {
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outFile));
+        
+        try {
+            createResource(file).save(out, null);
+        }
+        finally {
+            out.close();
+        }
+    }
+    
+    /**
+     * @return A Resource for the model's file containing the model
      */
-    private void saveModelToXMLFile(File file) throws IOException {
+    private Resource createResource(File file) {
         ResourceSet resourceSet = ArchimateResourceFactory.createResourceSet();
         Resource resource = resourceSet.createResource(URI.createFileURI(file.getAbsolutePath()));
         resource.getContents().add(fModel);
-        resource.save(null);
+        return resource;
     }
     
-    private void saveImages(ZipOutputStream zOut) throws IOException {
-        List<String> added = new ArrayList<String>();
+    /**
+     * @return The bytes of the images used in the model in image path order
+     * @throws IOException if a lazy image can't be read from its copy of the archive file
+     */
+    private Map<String, byte[]> getImageBytes() throws IOException {
+        Map<String, byte[]> images = new LinkedHashMap<String, byte[]>();
         
         for(Iterator<EObject> iter = fModel.eAllContents(); iter.hasNext();) {
             EObject eObject = iter.next();
             if(eObject instanceof IDiagramModelImageProvider) {
                 IDiagramModelImageProvider imageProvider = (IDiagramModelImageProvider)eObject;
                 String imagePath = imageProvider.getImagePath();
-                if(imagePath != null && !added.contains(imagePath)) {
-                    byte[] bytes = BYTE_ARRAY_STORAGE.getEntry(imagePath);
+                if(imagePath != null && !images.containsKey(imagePath)) {
+                    byte[] bytes = BYTE_ARRAY_STORAGE.loadEntry(imagePath);
                     if(bytes != null) {
-                        ZipEntry zipEntry = new ZipEntry(imagePath);
-                        zOut.putNextEntry(zipEntry);
-                        zOut.write(bytes);
-                        zOut.closeEntry();
-                        added.add(imagePath);
+                        images.put(imagePath, bytes);
                     }
                 }
             }
         }
+        
+        return images;
+    }
+    
+    private void saveImages(ZipOutputStream zOut, Map<String, byte[]> images) throws IOException {
+        for(Entry<String, byte[]> entry : images.entrySet()) {
+            byte[] bytes = entry.getValue();
+            ZipEntry zipEntry = new ZipEntry(entry.getKey());
+            
+            // Compressing an already compressed image format gains nothing so store it
+            if(isCompressedImage(bytes)) {
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(bytes.length);
+                zipEntry.setCompressedSize(bytes.length);
+                zipEntry.setCrc(crc.getValue());
+            }
+            
+            zOut.putNextEntry(zipEntry);
+            zOut.write(bytes);
+            zOut.closeEntry();
+        }
+    }
+    
+    /**
+     * @return true if bytes are a PNG, JPEG or GIF image
+     */
+    boolean isCompressedImage(byte[] bytes) {
+        // PNG
+        if(bytes.length >= 4 && (bytes[0] & 0xFF) == 0x89 && bytes[1] == 'P' && bytes[2] == 'N' && bytes[3] == 'G') {
+            return true;
+        }
+        
+        // JPEG
+        if(bytes.length >= 3 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xD8 && (bytes[2] & 0xFF) == 0xFF) {
+            return true;
+        }
+        
+        // GIF
+        if(bytes.length >= 4 && bytes[0] == 'G' && bytes[1] == 'I' && bytes[2] == 'F' && bytes[3] == '8') {
+            return true;
+        }
+        
+        return false;
     }
     
     private String createArchiveImagePathname(File file) {
@@ -310,31 +430,28 @@ public class ArchiveManager implements IArchiveManager {
         }
         
         fLoadedImagePaths = null;
+        
+        if(fImagesFile != null) {
+            deleteImagesFile();
+        }
     }
     
     /**
      * Unload any images not in use in other models
      */
     private void unloadUnusedImages() {
-        // Gather all image paths that are in use in other models
-        List<String> allPathsInUse = new ArrayList<String>();
-        
-        for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
-            if(model != fModel) { // don't bother with this model as we no longer use any images
-                ArchiveManager archiveManager = (ArchiveManager)model.getAdapter(IArchiveManager.class);
-                for(String imagePath : archiveManager.fLoadedImagePaths) {
-                    if(!allPathsInUse.contains(imagePath)) {
-                        allPathsInUse.add(imagePath);
-                    }
-                }
-            }
-        }
-        
-        // Release all unused image data and cached images that are not in image paths
+        // Release this model's references. Image data no longer referenced by any other model is removed.
         for(String imagePath : fLoadedImagePaths) {
-            if(!allPathsInUse.contains(imagePath)) {
-                BYTE_ARRAY_STORAGE.removeEntry(imagePath);
-            }
+            BYTE_ARRAY_STORAGE.releaseReference(imagePath);
         }
     }
+    
+    /**
+     * Delete the copy of the archive file. Images still used by other models that can only be read from it are read first.
+     */
+    private void deleteImagesFile() {
+        BYTE_ARRAY_STORAGE.removeLazySource(fImagesFile);
+        fImagesFile.delete();
+        fImagesFile = null;
+    }
 }
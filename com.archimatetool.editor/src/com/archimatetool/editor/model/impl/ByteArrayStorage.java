@@ -11,47 +11,172 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * Byte Array Storage Unit
  * 
+ * Entries are also indexed by a SHA-256 hash of their content so that finding an existing entry with the same bytes
+ * is a map lookup rather than a comparison with every stored entry. Entries with the same hash are compared byte for byte
+ * so that a hash collision can't return the wrong entry.<p>
+ * 
+ * Entries are reference counted by the Archive Managers that use them and removed when no longer referenced.<p>
+ * 
+ * Lazy entries record only where their bytes are in a zip file. The bytes are read when first needed and are held by a
+ * soft reference so that they can be evicted under memory pressure and read again later. The length and modification time
+ * of the zip file are recorded with the entry, and the entry is not read from the file if these have changed since.
+ * Lazy entries are added to the content hash index when their bytes are first read.
+ * 
  * @author Phillip Beauvoir
  */
 public class ByteArrayStorage {
     
     private Map<String, byte[]> fdataTable = new HashMap<String, byte[]>();
     
-    InputStream getInputStream(String entryName) {
-        if(entryName != null) {
-            byte[] bytes = fdataTable.get(entryName);
-            if(bytes != null) {
-                return new ByteArrayInputStream(bytes);
+    /**
+     * Content hash -> Names of entries with that content hash
+     */
+    private Map<String, List<String>> fHashTable = new HashMap<String, List<String>>();
+    
+    /**
+     * Entry name -> Content hash
+     */
+    private Map<String, String> fEntryHashes = new HashMap<String, String>();
+    
+    /**
+     * Entry name -> Number of references to it
+     */
+    private Map<String, Integer> fRefCounts = new HashMap<String, Integer>();
+    
+    /**
+     * Entry name -> Lazy entry
+     */
+    private Map<String, LazyEntry> fLazyTable = new HashMap<String, LazyEntry>();
+    
+    /**
+     * An entry whose bytes are read from a zip file when needed.
+     * More than one model file can have the entry, in which case any of them can be read.
+     */
+    private static class LazyEntry {
+        List<LazySource> sources = new ArrayList<LazySource>(1);
+        String zipEntryName;
+        long size;
+        SoftReference<byte[]> bytes;
+        
+        LazyEntry(File zipFile, String zipEntryName, long size) {
+            sources.add(new LazySource(zipFile));
+            this.zipEntryName = zipEntryName;
+            this.size = size;
+        }
+        
+        /**
+         * Add zipFile as a place to read the entry from, or record it again if it is already one
+         */
+        void addSource(File zipFile) {
+            removeSource(zipFile);
+            sources.add(0, new LazySource(zipFile));
+        }
+        
+        void removeSource(File zipFile) {
+            for(Iterator<LazySource> iter = sources.iterator(); iter.hasNext();) {
+                if(iter.next().zipFile.equals(zipFile)) {
+                    iter.remove();
+                }
             }
         }
+    }
+    
+    /**
+     * A zip file that a lazy entry can be read from, with its length and modification time when the entry was added
+     */
+    private static class LazySource {
+        File zipFile;
+        long length;
+        long lastModified;
+        
+        LazySource(File zipFile) {
+            this.zipFile = zipFile;
+            length = zipFile.length();
+            lastModified = zipFile.lastModified();
+        }
+        
+        /**
+         * @return true if the zip file is still there and hasn't been changed
+         */
+        boolean isUnchanged() {
+            return zipFile.isFile() && zipFile.length() == length && zipFile.lastModified() == lastModified;
+        }
+    }
+    
+    InputStream getInputStream(String entryName) throws IOException {
+        byte[] bytes = loadEntry(entryName);
+        if(bytes != null) {
+            return new ByteArrayInputStream(bytes);
+        }
         return null;
     }
 
     String getKey(byte[] bytes) {
-        for(Entry<String, byte[]> entry : fdataTable.entrySet()) {
-            byte[] entryBytes = entry.getValue();
-            if(isEqual(bytes, entryBytes)) {
-                return entry.getKey();
+        if(bytes == null) {
+            return null;
+        }
+        
+        return getKey(bytes, getHash(bytes), true);
+    }
+    
+    /**
+     * @param load If true lazy entries that are not in memory are read to compare them, otherwise they are skipped
+     */
+    private String getKey(byte[] bytes, String hash, boolean load) {
+        List<String> entryNames = fHashTable.get(hash);
+        if(entryNames != null) {
+            // Check the bytes in case of a hash collision
+            for(String entryName : entryNames) {
+                if(Arrays.equals(bytes, load ? getEntry(entryName) : getEntryInMemory(entryName))) {
+                    return entryName;
+                }
             }
         }
         
         return null;
     }
     
+    /**
+     * @return The bytes of an entry if they are in memory, without reading a lazy entry
+     */
+    private byte[] getEntryInMemory(String entryName) {
+        byte[] bytes = fdataTable.get(entryName);
+        if(bytes == null) {
+            LazyEntry lazyEntry = fLazyTable.get(entryName);
+            if(lazyEntry != null && lazyEntry.bytes != null) {
+                bytes = lazyEntry.bytes.get();
+            }
+        }
+        return bytes;
+    }
+    
     long getEntrySize(String entryName) {
         if(entryName != null) {
             byte[] bytes = fdataTable.get(entryName);
             if(bytes != null) {
                 return bytes.length;
             }
+            LazyEntry lazyEntry = fLazyTable.get(entryName);
+            if(lazyEntry != null) {
+                return lazyEntry.size;
+            }
         }
         return -1;
     }
@@ -61,19 +186,238 @@ public class ByteArrayStorage {
     }
 
     boolean hasEntries() {
-        return !fdataTable.isEmpty();
+        return !fdataTable.isEmpty() || !fLazyTable.isEmpty();
     }
     
     boolean hasEntry(String entryName) {
-        return fdataTable.containsKey(entryName);
+        return fdataTable.containsKey(entryName) || fLazyTable.containsKey(entryName);
+    }
+    
+    /**
+     * @return true if entryName is a lazy entry
+     */
+    boolean isLazyEntry(String entryName) {
+        return fLazyTable.containsKey(entryName);
+    }
+    
+    /**
+     * @return true if entryName is a lazy entry whose bytes are currently in memory
+     */
+    boolean isLazyEntryLoaded(String entryName) {
+        LazyEntry lazyEntry = fLazyTable.get(entryName);
+        return lazyEntry != null && lazyEntry.bytes != null && lazyEntry.bytes.get() != null;
     }
     
     void removeEntry(String entryName) {
+        fLazyTable.remove(entryName);
         fdataTable.remove(entryName);
+        removeFromHashIndex(entryName);
     }
     
+    private void removeFromHashIndex(String entryName) {
+        String hash = fEntryHashes.remove(entryName);
+        if(hash == null) {
+            return;
+        }
+        
+        List<String> entryNames = fHashTable.get(hash);
+        if(entryNames != null) {
+            entryNames.remove(entryName);
+            if(entryNames.isEmpty()) {
+                fHashTable.remove(hash);
+            }
+        }
+    }
+    
+    /**
+     * Add a reference to an entry, whether or not it has been added yet
+     */
+    void addReference(String entryName) {
+        Integer count = fRefCounts.get(entryName);
+        fRefCounts.put(entryName, count == null ? 1 : count + 1);
+    }
+    
+    /**
+     * Release a reference to an entry and remove the entry if it is no longer referenced
+     */
+    void releaseReference(String entryName) {
+        Integer count = fRefCounts.get(entryName);
+        if(count == null) {
+            return;
+        }
+        
+        if(count > 1) {
+            fRefCounts.put(entryName, count - 1);
+        }
+        else {
+            fRefCounts.remove(entryName);
+            removeEntry(entryName);
+        }
+    }
+    
+    /**
+     * @return The number of references to an entry
+     */
+    int getReferenceCount(String entryName) {
+        Integer count = fRefCounts.get(entryName);
+        return count == null ? 0 : count;
+    }
+    
+    /**
+     * @return The bytes of an entry, or null if there is no entry or a lazy entry can't be read
+     */
     byte[] getEntry(String entryName) {
-        return fdataTable.get(entryName);
+        try {
+            return loadEntry(entryName);
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * @return The bytes of an entry, reading a lazy entry if needed, or null if there is no entry
+     * @throws IOException if a lazy entry can't be read from any of its zip files
+     */
+    byte[] loadEntry(String entryName) throws IOException {
+        if(entryName == null) {
+            return null;
+        }
+        
+        byte[] bytes = fdataTable.get(entryName);
+        if(bytes == null) {
+            LazyEntry lazyEntry = fLazyTable.get(entryName);
+            if(lazyEntry != null) {
+                bytes = loadLazyEntry(entryName, lazyEntry);
+            }
+        }
+        
+        return bytes;
+    }
+    
+    /**
+     * Add a lazy entry for a zip entry in a zip file.
+     * If the entry is already lazy the zip file is added as another place to read it from.
+     * If the entry is already in memory nothing is done.
+     */
+    void addLazyEntry(String entryName, File zipFile, ZipEntry zipEntry) {
+        if(fdataTable.containsKey(entryName)) {
+            return;
+        }
+        
+        LazyEntry lazyEntry = fLazyTable.get(entryName);
+        if(lazyEntry == null) {
+            fLazyTable.put(entryName, new LazyEntry(zipFile, zipEntry.getName(), zipEntry.getSize()));
+        }
+        else {
+            lazyEntry.addSource(zipFile);
+        }
+    }
+    
+    /**
+     * Remove a zip file as a place to read lazy entries from.
+     * Lazy entries that can only be read from that zip file are read into memory first.
+     */
+    void removeLazySource(File zipFile) {
+        for(Iterator<Entry<String, LazyEntry>> iter = fLazyTable.entrySet().iterator(); iter.hasNext();) {
+            Entry<String, LazyEntry> entry = iter.next();
+            LazyEntry lazyEntry = entry.getValue();
+            
+            if(lazyEntry.sources.size() == 1 && lazyEntry.sources.get(0).zipFile.equals(zipFile)) {
+                try {
+                    byte[] bytes = loadLazyEntry(entry.getKey(), lazyEntry);
+                    fdataTable.put(entry.getKey(), bytes);
+                }
+                catch(IOException ex) {
+                    ex.printStackTrace();
+                    removeFromHashIndex(entry.getKey());
+                }
+                iter.remove();
+            }
+            else {
+                lazyEntry.removeSource(zipFile);
+            }
+        }
+    }
+    
+    /**
+     * @return The bytes of a lazy entry, reading them from one of its zip files if they are not in memory
+     * @throws IOException if none of the zip files can be read or all of them have changed since the entry was added
+     */
+    private byte[] loadLazyEntry(String entryName, LazyEntry lazyEntry) throws IOException {
+        byte[] bytes = lazyEntry.bytes != null ? lazyEntry.bytes.get() : null;
+        if(bytes != null) {
+            return bytes;
+        }
+        
+        IOException error = null;
+        
+        for(LazySource source : lazyEntry.sources) {
+            // The file might not have the same bytes for the entry any more
+            if(!source.isUnchanged()) {
+                continue;
+            }
+            
+            try {
+                bytes = getBytesFromZipFile(source.zipFile, lazyEntry.zipEntryName);
+            }
+            catch(IOException ex) {
+                error = ex;
+            }
+            
+            if(bytes != null) {
+                break;
+            }
+        }
+        
+        if(bytes == null) {
+            throw new IOException("Image " + entryName + " can't be read because its model file has been changed, moved or deleted", error); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        
+        lazyEntry.size = bytes.length;
+        
+        // Index the content and share the bytes of an entry with the same content
+        String hash = fEntryHashes.get(entryName);
+        if(hash == null) {
+            hash = getHash(bytes);
+            addToHashIndex(entryName, hash);
+        }
+        
+        String key = getKey(bytes, hash, false);
+        if(key != null && !key.equals(entryName)) {
+            bytes = getEntryInMemory(key);
+        }
+        
+        lazyEntry.bytes = new SoftReference<byte[]>(bytes);
+        
+        return bytes;
+    }
+    
+    /**
+     * @return The bytes of a zip entry in a zip file, or null if the zip file doesn't have the entry
+     */
+    private byte[] getBytesFromZipFile(File file, String zipEntryName) throws IOException {
+        ZipFile zipFile = null;
+        
+        try {
+            zipFile = new ZipFile(file);
+            ZipEntry zipEntry = zipFile.getEntry(zipEntryName);
+            if(zipEntry != null) {
+                return getBytesFromStream(zipFile.getInputStream(zipEntry));
+            }
+        }
+        finally {
+            try {
+                if(zipFile != null) {
+                    zipFile.close();
+                }
+            }
+            catch(IOException ex) {
+            }
+        }
+        
+        return null;
     }
     
     void addFileContentEntry(String entryName, File file) throws IOException {
@@ -86,14 +430,34 @@ public class ByteArrayStorage {
     }
 
     void addByteContentEntry(String entryName, byte[] bytes) {
+        // Replacing an entry
+        removeEntry(entryName);
+        
+        String hash = getHash(bytes);
+        
         // If we have these bytes already, let's re-reference them
-        String key = getKey(bytes);
+        String key = getKey(bytes, hash, true);
         if(key != null) {
             fdataTable.put(entryName, getEntry(key));
         }
         else {
             fdataTable.put(entryName, bytes);
         }
+        
+        addToHashIndex(entryName, hash);
+    }
+    
+    private void addToHashIndex(String entryName, String hash) {
+        fEntryHashes.put(entryName, hash);
+        
+        List<String> entryNames = fHashTable.get(hash);
+        if(entryNames == null) {
+            entryNames = new ArrayList<String>(1);
+            fHashTable.put(hash, entryNames);
+        }
+        if(!entryNames.contains(entryName)) {
+            entryNames.add(entryName);
+        }
     }
     
     byte[] getBytesFromFile(File file) throws IOException {
@@ -105,30 +469,34 @@ public class ByteArrayStorage {
         return null;
     }
     
-    private boolean isEqual(byte[] b1, byte[] b2) {
-        if(b1 == null || b2 == null) {
-            return false;
+    /**
+     * @return The SHA-256 hash of bytes as a hex string
+     */
+    String getHash(byte[] bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+        }
+        catch(NoSuchAlgorithmException ex) {
+            // Every Java platform is required to support SHA-256
+            throw new RuntimeException(ex);
         }
         
-        if(b1.length == b2.length) {
-            int i = 0;
-            int j = 0;
-            int n = b1.length;
-            while(n-- != 0) {
-                if(b1[i++] != b2[j++]) {
-                    return false;
-                }
-            }
-            return true;
+        byte[] hash = digest.digest(bytes);
+        
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for(byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
         }
         
-        return false;
+        return sb.toString();
     }
     
     /**
      * Read in a stream and return its contents as a byte array
      */
-    private byte[] getBytesFromStream(InputStream in) throws IOException {
+    byte[] getBytesFromStream(InputStream in) throws IOException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         byte[] buf = new byte[8192];
         try {
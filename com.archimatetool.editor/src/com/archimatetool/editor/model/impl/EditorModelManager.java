@@ -11,18 +11,32 @@ import java.beans.PropertyChangeSupport;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.commands.CommandStackEvent;
+import org.eclipse.gef.commands.CommandStackEventListener;
 import org.eclipse.gef.commands.CommandStackListener;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
@@ -40,6 +54,7 @@ import com.archimatetool.editor.Logger;
 import com.archimatetool.editor.diagram.util.AnimationUtil;
 import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.editor.model.IModelChangeListener;
 import com.archimatetool.editor.model.compatibility.CompatibilityHandlerException;
 import com.archimatetool.editor.model.compatibility.IncompatibleModelException;
 import com.archimatetool.editor.model.compatibility.LaterModelVersionException;
@@ -62,7 +77,8 @@ import com.archimatetool.model.util.ArchimateResourceFactory;
  * Editor Model Manager.<p>
  * <p>
  * Acts as an adapter to the Archimate Models passing on notifications to listeners
- * so that clients only have to register here once rather than for each model.<p>
+ * so that clients only have to register here once rather than for each model.
+ * The notifications of each command are passed on together.<p>
  * Also can pass on arbitrary PropertyChangeEvents to registered listeners.<br>
  * Also manages CommandStacks for models.<br>
  * Also handles persistence of models.
@@ -77,21 +93,66 @@ implements IEditorModelManager {
      */
     private PropertyChangeSupport fListeners = new PropertyChangeSupport(this);
     
+    /**
+     * Model change listeners
+     */
+    private ModelChangeBus fModelChangeBus = new ModelChangeBus();
+    
     /**
      * Models Open
      */
     private List<IArchimateModel> fModels;
     
+    /**
+     * Files of models from the last session that are being loaded in the background
+     */
+    private List<File> fLoadingFiles = new ArrayList<File>();
+    
+    /**
+     * Files of models from the last session that were not loaded because loading them was cancelled.
+     * These are kept in the backing file so that they are loaded next time.
+     */
+    private List<File> fUnloadedFiles = new ArrayList<File>();
+    
+    /**
+     * Job loading the models from the last session, or null if not loading
+     */
+    private Job fLoadJob;
+    
     /**
      * Backing File
      */
     private File backingFile = new File(ArchimateEditorPlugin.INSTANCE.getUserDataFolder(), "models.xml"); //$NON-NLS-1$
     
+    /**
+     * Binary snapshots of opened models, kept next to the backing file
+     */
+    private ModelSnapshotCache fSnapshotCache = new ModelSnapshotCache(new File(ArchimateEditorPlugin.INSTANCE.getUserDataFolder(), "snapshots")); //$NON-NLS-1$
+    
+    /**
+     * Delete the snapshots when they are turned off in Preferences and take them when they are turned on
+     */
+    private IPropertyChangeListener snapshotPreferenceListener = new IPropertyChangeListener() {
+        public void propertyChange(org.eclipse.jface.util.PropertyChangeEvent event) {
+            if(IPreferenceConstants.MODEL_SNAPSHOTS == event.getProperty()) {
+                if(Preferences.STORE.getBoolean(IPreferenceConstants.MODEL_SNAPSHOTS)) {
+                    for(IArchimateModel model : getModels()) {
+                        scheduleSnapshot(model.getFile());
+                    }
+                }
+                else {
+                    fSnapshotCache.pruneSnapshots(Collections.<File>emptyList());
+                }
+            }
+        }
+    };
+    
     /**
      * Listen to the App closing so we can ask to save
      */
     private IWorkbenchListener workBenchListener = new IWorkbenchListener() {
         public void postShutdown(IWorkbench workbench) {
+            saveSnapshots();
         }
 
         public boolean preShutdown(IWorkbench  workbench, boolean forced) {
@@ -110,12 +171,18 @@ implements IEditorModelManager {
                 }
             }
             
+            // Stop loading models from the last session
+            if(fLoadJob != null) {
+                fLoadJob.cancel();
+            }
+            
             return true;
         }
     };
     
     public EditorModelManager() {
         PlatformUI.getWorkbench().addWorkbenchListener(workBenchListener);
+        Preferences.STORE.addPropertyChangeListener(snapshotPreferenceListener);
     }
     
     @Override
@@ -163,12 +230,44 @@ implements IEditorModelManager {
         createNewArchiveManager(model);
         
         firePropertyChange(this, PROPERTY_MODEL_CREATED, null, model);
-        model.eAdapters().add(new ECoreAdapter());
+        model.eAdapters().add(new ECoreAdapter(model));
+    }
+    
+    @Override
+    public List<File> getLoadingModelFiles() {
+        // Start loading if this is the first call
+        getModels();
+        return Collections.unmodifiableList(fLoadingFiles);
+    }
+    
+    @Override
+    public void waitForModel(File file) {
+        // Start loading if this is the first call
+        getModels();
+        
+        Display display = Display.getCurrent();
+        if(display == null) {
+            return;
+        }
+        
+        // The models are registered in Runnables sent to the UI thread so keep dispatching them
+        while(fLoadingFiles.contains(file) && !display.isDisposed()) {
+            if(!display.readAndDispatch()) {
+                display.sleep();
+            }
+        }
     }
     
     @Override
     public IArchimateModel openModel(File file) {
-        if(file == null || !file.exists() || isModelLoaded(file)) {
+        if(file == null || !file.exists()) {
+            return null;
+        }
+        
+        // If it is being loaded from the last session wait for it
+        waitForModel(file);
+        
+        if(isModelLoaded(file)) {
             return null;
         }
         
@@ -198,7 +297,7 @@ implements IEditorModelManager {
         // New Archive Manager
         createNewArchiveManager(model);
         
-        model.eAdapters().add(new ECoreAdapter());
+        model.eAdapters().add(new ECoreAdapter(model));
 
         firePropertyChange(this, PROPERTY_MODEL_OPENED, null, model);
     }
@@ -209,21 +308,21 @@ implements IEditorModelManager {
             return null;
         }
         
-        // Ascertain if this is an archive file
-        boolean useArchiveFormat = IArchiveManager.FACTORY.isArchiveFile(file);
+        ParsedModelFile parsedFile = new ParsedModelFile(file);
+        parsedFile.parse(getSnapshotCache());
+        return loadModel(parsedFile);
+    }
+    
+    /**
+     * Check, fix and register a model whose file has been parsed. This must be called on the UI thread.
+     * @return The model or null if it could not be loaded
+     */
+    private IArchimateModel loadModel(ParsedModelFile parsedFile) {
+        File file = parsedFile.file;
+        Resource resource = parsedFile.resource;
         
-        // Create the Resource
-        ResourceSet resourceSet = ArchimateResourceFactory.createResourceSet();
-        Resource resource = resourceSet.createResource(useArchiveFormat ?
-                                                       IArchiveManager.FACTORY.createArchiveModelURI(file) :
-                                                       URI.createFileURI(file.getAbsolutePath()));
-
-        // Load the model file
-        try {
-            resource.load(null);
-        }
-        catch(IOException ex) {
-            // Error occured loading model. Was it a disaster?
+        // Error occured loading model. Was it a disaster?
+        if(parsedFile.loadException != null) {
             try {
                 ModelCompatibility.checkErrors(resource);
             }
@@ -261,8 +360,15 @@ implements IEditorModelManager {
         IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
         model.setFile(file);
         model.setDefaults();
+        
+        // Take a snapshot of a model parsed without errors so that it can be opened from the snapshot next time
+        ModelSnapshotCache snapshotCache = getSnapshotCache();
+        if(snapshotCache != null && !parsedFile.fromSnapshot && parsedFile.loadException == null) {
+            snapshotCache.scheduleSnapshot(file, parsedFile.length, parsedFile.lastModified);
+        }
+        
         getModels().add(model);
-        model.eAdapters().add(new ECoreAdapter());
+        model.eAdapters().add(new ECoreAdapter(model));
 
         // New Command Stack
         createNewCommandStack(model);
@@ -294,6 +400,7 @@ implements IEditorModelManager {
         
         getModels().remove(model);
         model.eAdapters().clear();
+        fModelChangeBus.removeModel(model);
         firePropertyChange(this, PROPERTY_MODEL_REMOVED, null, model);
         
         // Delete the CommandStack *LAST* because GEF Editor(s) will still reference it!
@@ -301,6 +408,9 @@ implements IEditorModelManager {
         
         // Delete Archive Manager
         deleteArchiveManager(model);
+        
+        // Delete the snapshot as the model is no longer open
+        fSnapshotCache.deleteSnapshot(model.getFile());
 
         return true;
     }
@@ -363,6 +473,9 @@ implements IEditorModelManager {
         IArchiveManager archiveManager = (IArchiveManager)model.getAdapter(IArchiveManager.class);
         archiveManager.saveModel();
         
+        // Snapshot of the saved file
+        scheduleSnapshot(file);
+        
         // Set CommandStack Save point
         CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
         stack.markSaveLocation();
@@ -475,6 +588,19 @@ implements IEditorModelManager {
             }
         });
         
+        // Send the ECore notifications of each command together
+        cmdStack.addCommandStackEventListener(new CommandStackEventListener() {
+            public void stackChanged(CommandStackEvent event) {
+                int detail = event.getDetail();
+                if(detail == CommandStack.PRE_EXECUTE || detail == CommandStack.PRE_UNDO || detail == CommandStack.PRE_REDO) {
+                    fModelChangeBus.beginTransaction(model);
+                }
+                else if(detail == CommandStack.POST_EXECUTE || detail == CommandStack.POST_UNDO || detail == CommandStack.POST_REDO) {
+                    fModelChangeBus.endTransaction(model);
+                }
+            }
+        });
+        
         // Animate Commands
         AnimationUtil.registerCommandStack(cmdStack);
         
@@ -533,17 +659,32 @@ implements IEditorModelManager {
     //========================== Persist backing file  ==========================
 
     public void saveState() throws IOException {
-        Document doc = new Document();
-        Element rootElement = new Element("models"); //$NON-NLS-1$
-        doc.setRootElement(rootElement);
+        List<File> files = new ArrayList<File>();
+        
         for(IArchimateModel model : getModels()) {
             File file = model.getFile(); // has been saved
             if(file != null) {
-                Element modelElement = new Element("model"); //$NON-NLS-1$
-                modelElement.setAttribute("file", file.getAbsolutePath()); //$NON-NLS-1$
-                rootElement.addContent(modelElement);
+                files.add(file);
             }
         }
+        
+        // Models from the last session that are not loaded yet or were cancelled, unless they have been opened since
+        List<File> unloadedFiles = new ArrayList<File>(fLoadingFiles);
+        unloadedFiles.addAll(fUnloadedFiles);
+        for(File file : unloadedFiles) {
+            if(!files.contains(file)) {
+                files.add(file);
+            }
+        }
+        
+        Document doc = new Document();
+        Element rootElement = new Element("models"); //$NON-NLS-1$
+        doc.setRootElement(rootElement);
+        for(File file : files) {
+            Element modelElement = new Element("model"); //$NON-NLS-1$
+            modelElement.setAttribute("file", file.getAbsolutePath()); //$NON-NLS-1$
+            rootElement.addContent(modelElement);
+        }
         JDOMUtils.write2XMLFile(doc, backingFile);
     }
     
@@ -551,18 +692,152 @@ implements IEditorModelManager {
         if(backingFile.exists()) {
             Document doc = JDOMUtils.readXMLFile(backingFile);
             if(doc.hasRootElement()) {
+                List<File> files = new ArrayList<File>();
+                
                 Element rootElement = doc.getRootElement();
                 for(Object e : rootElement.getChildren("model")) { //$NON-NLS-1$
                     Element modelElement = (Element)e;
                     String filePath = modelElement.getAttributeValue("file"); //$NON-NLS-1$
                     if(filePath != null) {
-                        loadModel(new File(filePath));
+                        files.add(new File(filePath));
                     }
                 }
+                
+                // Delete snapshots of files that are no longer open before any are taken
+                fSnapshotCache.pruneSnapshots(files);
+                
+                loadModels(files);
             }
         }
     }
     
+    /**
+     * Load model files in a background Job. The files are parsed at the same time on a pool of worker threads and each
+     * model is then checked, fixed and registered on the UI thread in the order of files as soon as it has been parsed.
+     * Until then each file is in the list of loading files and is shown as a placeholder in the Models Tree.
+     * @param files The model files
+     */
+    private void loadModels(final List<File> files) {
+        if(files.isEmpty()) {
+            return;
+        }
+        
+        fLoadingFiles.addAll(files);
+        
+        final ModelSnapshotCache snapshotCache = getSnapshotCache();
+        final Display display = PlatformUI.getWorkbench().getDisplay();
+        
+        fLoadJob = new Job(Messages.EditorModelManager_12) {
+            @Override
+            protected IStatus run(final IProgressMonitor monitor) {
+                monitor.beginTask(Messages.EditorModelManager_12, files.size());
+                
+                int threads = Math.max(1, Math.min(files.size(), Runtime.getRuntime().availableProcessors()));
+                ExecutorService executor = Executors.newFixedThreadPool(threads);
+                
+                try {
+                    List<Future<ParsedModelFile>> futures = new ArrayList<Future<ParsedModelFile>>();
+                    
+                    for(final File file : files) {
+                        futures.add(executor.submit(new Callable<ParsedModelFile>() {
+                            public ParsedModelFile call() {
+                                if(monitor.isCanceled() || !file.exists()) {
+                                    return null;
+                                }
+                                ParsedModelFile parsedFile = new ParsedModelFile(file);
+                                parsedFile.parse(snapshotCache);
+                                return parsedFile;
+                            }
+                        }));
+                    }
+                    
+                    for(int i = 0; i < futures.size() && !monitor.isCanceled(); i++) {
+                        final File file = files.get(i);
+                        monitor.subTask(file.getName());
+                        
+                        ParsedModelFile parsedFile = null;
+                        
+                        try {
+                            parsedFile = futures.get(i).get();
+                        }
+                        catch(ExecutionException ex) {
+                            Logger.logError("Could not load model", ex.getCause()); //$NON-NLS-1$
+                            ex.printStackTrace();
+                        }
+                        catch(InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        
+                        final ParsedModelFile result = parsedFile;
+                        
+                        syncExec(display, new Runnable() {
+                            public void run() {
+                                modelFileLoaded(file, result);
+                            }
+                        });
+                        
+                        monitor.worked(1);
+                    }
+                }
+                finally {
+                    executor.shutdownNow();
+                    
+                    syncExec(display, new Runnable() {
+                        public void run() {
+                            loadingFinished();
+                        }
+                    });
+                    
+                    monitor.done();
+                }
+                
+                return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+            }
+        };
+        
+        fLoadJob.schedule();
+    }
+    
+    private void syncExec(Display display, Runnable runnable) {
+        if(!display.isDisposed()) {
+            display.syncExec(runnable);
+        }
+    }
+    
+    /**
+     * A model file from the last session has been parsed in the background. This is called on the UI thread.
+     * @param parsedFile The parsed file, or null if it could not be parsed
+     */
+    private void modelFileLoaded(File file, ParsedModelFile parsedFile) {
+        if(!fLoadingFiles.remove(file)) {
+            return;
+        }
+        
+        // It might have been loaded while it was being parsed
+        if(parsedFile != null && !isModelLoaded(file)) {
+            loadModel(parsedFile);
+        }
+        
+        firePropertyChange(this, PROPERTY_MODEL_LOADING, file, null);
+    }
+    
+    /**
+     * Loading the models from the last session has finished or was cancelled. This is called on the UI thread.
+     */
+    private void loadingFinished() {
+        fLoadJob = null;
+        
+        // Cancelled so keep the files that were not loaded
+        List<File> files = new ArrayList<File>(fLoadingFiles);
+        fUnloadedFiles.addAll(files);
+        fLoadingFiles.clear();
+        
+        for(File file : files) {
+            firePropertyChange(this, PROPERTY_MODEL_LOADING, file, null);
+        }
+    }
+    
     //========================== Model Listener events  ==========================
 
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -577,6 +852,106 @@ implements IEditorModelManager {
         fListeners.firePropertyChange(new PropertyChangeEvent(source, prop, oldValue, newValue));
     }
     
+    public void addModelChangeListener(IModelChangeListener listener, IArchimateModel model, EStructuralFeature... features) {
+        fModelChangeBus.addListener(listener, model, features);
+    }
+    
+    public void removeModelChangeListener(IModelChangeListener listener) {
+        fModelChangeBus.removeListener(listener);
+    }
+    
+    public void flushModelChanges() {
+        fModelChangeBus.flush();
+    }
+    
+    /**
+     * @return The snapshot cache, or null if not using snapshots as set in Preferences
+     */
+    private ModelSnapshotCache getSnapshotCache() {
+        return Preferences.STORE.getBoolean(IPreferenceConstants.MODEL_SNAPSHOTS) ? fSnapshotCache : null;
+    }
+    
+    /**
+     * Schedule a snapshot of a model file to be saved when the application exits, if using snapshots
+     */
+    private void scheduleSnapshot(File file) {
+        ModelSnapshotCache snapshotCache = getSnapshotCache();
+        if(snapshotCache != null) {
+            snapshotCache.scheduleSnapshot(file);
+        }
+    }
+    
+    /**
+     * Save the scheduled snapshots of the open models that are the same as their files, if using snapshots
+     */
+    private void saveSnapshots() {
+        ModelSnapshotCache snapshotCache = getSnapshotCache();
+        if(snapshotCache == null || fModels == null) {
+            return;
+        }
+        
+        List<IArchimateModel> models = new ArrayList<IArchimateModel>();
+        for(IArchimateModel model : fModels) {
+            if(!isModelDirty(model)) {
+                models.add(model);
+            }
+        }
+        
+        snapshotCache.saveScheduledSnapshots(models);
+    }
+    
+    // ======================= Parsed Model File =========================================
+    
+    /**
+     * A model file and its loaded Resource.
+     * Parsing doesn't touch the UI or the open models so it can be done on any thread.
+     */
+    private static class ParsedModelFile {
+        File file;
+        Resource resource;
+        IOException loadException;
+        boolean fromSnapshot;
+        
+        // Size and modification time of the file before it was read
+        long length;
+        long lastModified;
+        
+        ParsedModelFile(File file) {
+            this.file = file;
+        }
+        
+        /**
+         * @param snapshotCache If not null, the model is read from its snapshot if it has a valid one
+         */
+        void parse(ModelSnapshotCache snapshotCache) {
+            length = file.length();
+            lastModified = file.lastModified();
+            
+            // Ascertain if this is an archive file
+            boolean useArchiveFormat = IArchiveManager.FACTORY.isArchiveFile(file);
+            
+            // Create the Resource
+            ResourceSet resourceSet = ArchimateResourceFactory.createResourceSet();
+            resource = resourceSet.createResource(useArchiveFormat ?
+                                                  IArchiveManager.FACTORY.createArchiveModelURI(file) :
+                                                  URI.createFileURI(file.getAbsolutePath()));
+            
+            // Load from the snapshot
+            if(snapshotCache != null && snapshotCache.loadSnapshot(file, resource)) {
+                fromSnapshot = true;
+                return;
+            }
+
+            // Load the model file
+            try {
+                resource.load(null);
+            }
+            catch(IOException ex) {
+                loadException = ex;
+            }
+        }
+    }
+    
     // ======================= ECore Adapter =========================================
     
     /**
@@ -584,11 +959,17 @@ implements IEditorModelManager {
      * Forwards on messages so that listeners don't have to adapt to ECore objects
      */
     private class ECoreAdapter extends EContentAdapter {
+        private IArchimateModel fModel;
+        
+        ECoreAdapter(IArchimateModel model) {
+            fModel = model;
+        }
+        
         @Override
         public void notifyChanged(Notification msg) {
             super.notifyChanged(msg);
             // Forward on to listeners...
-            firePropertyChange(this, PROPERTY_ECORE_EVENT, null, msg);
+            fModelChangeBus.notifyChanged(fModel, msg);
         }
     }
 }
@@ -19,6 +19,8 @@ public class Messages extends NLS {
 
     public static String EditorModelManager_11;
 
+    public static String EditorModelManager_12;
+
     public static String EditorModelManager_2;
 
     public static String EditorModelManager_3;
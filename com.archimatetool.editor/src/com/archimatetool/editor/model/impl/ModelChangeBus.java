@@ -0,0 +1,171 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+import com.archimatetool.editor.model.IModelChangeListener;
+import com.archimatetool.model.IArchimateModel;
+
+
+
+/**
+ * Model Change Bus
+ *
+ * Collects the ECore notifications of models and sends them to {@link IModelChangeListener}s. Between
+ * {@link #beginTransaction(IArchimateModel)} and {@link #endTransaction(IArchimateModel)} the notifications of a model
+ * are held back and then sent as one list, otherwise they are sent as they happen. Held back notifications can be sent
+ * early with {@link #flush()}, for example before showing something in the UI that was just added. A listener can subscribe to one
+ * model or to all models, and to some features or to all features, and is only sent the notifications that it
+ * subscribed to.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelChangeBus {
+
+    private static class Subscription {
+        IModelChangeListener listener;
+        IArchimateModel model;
+        Set<EStructuralFeature> features;
+    }
+
+    private List<Subscription> fSubscriptions = new CopyOnWriteArrayList<Subscription>();
+
+    /**
+     * Model -> Notifications held back in the current transaction
+     */
+    private Map<IArchimateModel, List<Notification>> fTransactions = new HashMap<IArchimateModel, List<Notification>>();
+
+    /**
+     * Add a listener
+     * @param listener The listener
+     * @param model The model to listen to, or null for all models
+     * @param features The features to listen to. If none are given, all features.
+     */
+    public void addListener(IModelChangeListener listener, IArchimateModel model, EStructuralFeature... features) {
+        Subscription subscription = new Subscription();
+        subscription.listener = listener;
+        subscription.model = model;
+        if(features.length > 0) {
+            subscription.features = new HashSet<EStructuralFeature>(Arrays.asList(features));
+        }
+        fSubscriptions.add(subscription);
+    }
+
+    /**
+     * Remove all subscriptions of a listener
+     * @param listener The listener
+     */
+    public void removeListener(IModelChangeListener listener) {
+        for(Subscription subscription : fSubscriptions) {
+            if(subscription.listener == listener) {
+                fSubscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Start holding back the notifications of model
+     * @param model The model
+     */
+    public void beginTransaction(IArchimateModel model) {
+        // Previous transaction didn't end, perhaps because a command threw an exception
+        endTransaction(model);
+        fTransactions.put(model, new ArrayList<Notification>());
+    }
+
+    /**
+     * Send the notifications of model held back since {@link #beginTransaction(IArchimateModel)}
+     * @param model The model
+     */
+    public void endTransaction(IArchimateModel model) {
+        List<Notification> notifications = fTransactions.remove(model);
+        if(notifications != null && !notifications.isEmpty()) {
+            dispatch(model, notifications);
+        }
+    }
+
+    /**
+     * Send the notifications held back so far in all transactions. The transactions carry on.
+     */
+    public void flush() {
+        for(IArchimateModel model : new ArrayList<IArchimateModel>(fTransactions.keySet())) {
+            List<Notification> notifications = fTransactions.get(model);
+            if(notifications != null && !notifications.isEmpty()) {
+                // A listener might change the model so hold back those notifications in a new list
+                fTransactions.put(model, new ArrayList<Notification>());
+                dispatch(model, notifications);
+            }
+        }
+    }
+
+    /**
+     * @param model The model
+     * @return true if notifications of model are being held back
+     */
+    public boolean isInTransaction(IArchimateModel model) {
+        return fTransactions.containsKey(model);
+    }
+
+    /**
+     * A notification from model
+     * @param model The model
+     * @param msg The notification
+     */
+    public void notifyChanged(IArchimateModel model, Notification msg) {
+        List<Notification> notifications = fTransactions.get(model);
+        if(notifications != null) {
+            notifications.add(msg);
+        }
+        else {
+            dispatch(model, Collections.singletonList(msg));
+        }
+    }
+
+    /**
+     * Forget about model
+     * @param model The model
+     */
+    public void removeModel(IArchimateModel model) {
+        fTransactions.remove(model);
+    }
+
+    private void dispatch(IArchimateModel model, List<Notification> notifications) {
+        List<Notification> all = Collections.unmodifiableList(notifications);
+
+        for(Subscription subscription : fSubscriptions) {
+            if(subscription.model != null && subscription.model != model) {
+                continue;
+            }
+
+            if(subscription.features == null) {
+                subscription.listener.modelChanged(model, all);
+            }
+            else {
+                List<Notification> filtered = new ArrayList<Notification>();
+                for(Notification msg : notifications) {
+                    if(subscription.features.contains(msg.getFeature())) {
+                        filtered.add(msg);
+                    }
+                }
+                if(!filtered.isEmpty()) {
+                    subscription.listener.modelChanged(model, Collections.unmodifiableList(filtered));
+                }
+            }
+        }
+    }
+}
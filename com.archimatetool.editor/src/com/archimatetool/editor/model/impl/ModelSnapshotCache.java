@@ -0,0 +1,363 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.BinaryResourceImpl;
+
+import com.archimatetool.editor.Logger;
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.ModelVersion;
+
+
+
+/**
+ * Model Snapshot Cache
+ *
+ * Keeps a binary snapshot of each model file that has been opened so that the model can be read from the snapshot
+ * rather than by parsing the file's XML the next time it is opened.<p>
+ *
+ * A snapshot records the path, size, modification time and SHA-256 content hash of the model file that it was taken
+ * from, and the model version. It is only used if all of these match the model file as it is now, otherwise the
+ * model file is parsed as usual.<p>
+ *
+ * Snapshots are only read from files and so can be loaded on any thread. A snapshot is not saved each time a model
+ * is loaded or saved as that would mean serialising the whole model again. Instead the model file is scheduled with
+ * {@link #scheduleSnapshot(File)} and the snapshots of all scheduled files are saved together from the open models
+ * with {@link #saveScheduledSnapshots(Collection)}, which is called when the application exits.
+ * Snapshots of model files that are no longer open are deleted with {@link #deleteSnapshot(File)} and
+ * {@link #pruneSnapshots(Collection)}.
+ *
+ * @author Phillip Beauvoir
+ */
+public class ModelSnapshotCache {
+
+    /**
+     * Identifies a snapshot file and its format
+     */
+    static final String SNAPSHOT_FORMAT = "archi-snapshot-1"; //$NON-NLS-1$
+
+    static final String SNAPSHOT_EXTENSION = ".snapshot"; //$NON-NLS-1$
+
+    private File fFolder;
+
+    /**
+     * Model files waiting to have their snapshots saved, with their size and modification time when they were scheduled
+     */
+    private Map<File, long[]> fScheduledFiles = new HashMap<File, long[]>();
+
+    /**
+     * @param folder The folder to keep the snapshots in
+     */
+    public ModelSnapshotCache(File folder) {
+        fFolder = folder;
+    }
+
+    /**
+     * Schedule a snapshot of file as it is now to be saved by {@link #saveScheduledSnapshots(Collection)}
+     * @param file The model file
+     */
+    public void scheduleSnapshot(File file) {
+        if(file != null) {
+            scheduleSnapshot(file, file.length(), file.lastModified());
+        }
+    }
+
+    /**
+     * Schedule a snapshot of file to be saved by {@link #saveScheduledSnapshots(Collection)}
+     * @param file The model file
+     * @param length The size of file when the model was read from it or saved to it
+     * @param lastModified The modification time of file when the model was read from it or saved to it
+     */
+    public void scheduleSnapshot(File file, long length, long lastModified) {
+        if(file == null) {
+            return;
+        }
+
+        synchronized(fScheduledFiles) {
+            fScheduledFiles.put(file, new long[] { length, lastModified });
+        }
+    }
+
+    /**
+     * Save the snapshots of the scheduled model files of models. This must be called on the thread that owns the models.
+     * A snapshot is not saved if the model file has changed since it was scheduled.
+     * @param models The open models. Models that are not the same as their file, as they have been changed, should not be included.
+     */
+    public void saveScheduledSnapshots(Collection<IArchimateModel> models) {
+        for(IArchimateModel model : models) {
+            File file = model.getFile();
+            if(file == null) {
+                continue;
+            }
+
+            long[] stamp;
+            synchronized(fScheduledFiles) {
+                stamp = fScheduledFiles.remove(file);
+            }
+
+            // Not scheduled, or changed since the model was read from it or saved to it
+            if(stamp == null || file.length() != stamp[0] || file.lastModified() != stamp[1]) {
+                continue;
+            }
+
+            try {
+                saveSnapshot(file, model);
+            }
+            catch(Exception ex) { // IOException or a RuntimeException from the binary save
+                Logger.logError("Could not save model snapshot", ex); //$NON-NLS-1$
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Load the model in the snapshot of file into resource
+     * @param file The model file
+     * @param resource The Resource to add the model to
+     * @return true if there is a snapshot of file as it is now and the model was added to resource
+     */
+    public boolean loadSnapshot(File file, Resource resource) {
+        File snapshotFile = getSnapshotFile(file);
+        if(!snapshotFile.exists()) {
+            return false;
+        }
+
+        DataInputStream in = null;
+
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+
+            if(!isValidHeader(in, file)) {
+                return false;
+            }
+
+            Resource binaryResource = new BinaryResourceImpl(URI.createFileURI(snapshotFile.getAbsolutePath()));
+            binaryResource.load(in, null);
+
+            EObject model = binaryResource.getContents().isEmpty() ? null : binaryResource.getContents().get(0);
+            if(!(model instanceof IArchimateModel)) {
+                return false;
+            }
+
+            resource.getContents().add(model);
+            return true;
+        }
+        catch(Exception ex) { // IOException or a RuntimeException from a corrupt snapshot
+            ex.printStackTrace();
+            closeQuietly(in);
+            in = null;
+            snapshotFile.delete();
+            return false;
+        }
+        finally {
+            closeQuietly(in);
+        }
+    }
+
+    /**
+     * Save a snapshot of model, which must be the same as the model in file. The model is serialised as it is in memory
+     * so the model file is not read again, other than to take its content hash.
+     * The model is put back in its Resource afterwards. This must be called on the thread that owns the model.
+     * @param file The model file
+     * @param model The model as it is in file
+     * @throws IOException
+     */
+    public void saveSnapshot(File file, IArchimateModel model) throws IOException {
+        if(file == null || !file.exists() || model == null) {
+            return;
+        }
+
+        fFolder.mkdirs();
+
+        File snapshotFile = getSnapshotFile(file);
+        File tmpFile = File.createTempFile("~" + snapshotFile.getName(), ".tmp", fFolder); //$NON-NLS-1$ //$NON-NLS-2$
+
+        // The binary Resource takes the model from its Resource while it is saved
+        Resource resource = model.eResource();
+
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+
+            try {
+                out.writeUTF(SNAPSHOT_FORMAT);
+                out.writeUTF(ModelVersion.VERSION);
+                out.writeUTF(file.getAbsolutePath());
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+                out.writeUTF(getContentHash(file));
+
+                Resource binaryResource = new BinaryResourceImpl(URI.createFileURI(snapshotFile.getAbsolutePath()));
+                binaryResource.getContents().add(model);
+                binaryResource.save(out, null);
+            }
+            finally {
+                out.close();
+            }
+
+            FileUtils.replaceFile(tmpFile, snapshotFile);
+        }
+        finally {
+            if(resource != null) {
+                resource.getContents().add(model);
+            }
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Delete the snapshot of file, if there is one, and don't save one if it is scheduled
+     * @param file The model file
+     */
+    public void deleteSnapshot(File file) {
+        if(file == null) {
+            return;
+        }
+
+        synchronized(fScheduledFiles) {
+            fScheduledFiles.remove(file);
+        }
+
+        getSnapshotFile(file).delete();
+    }
+
+    /**
+     * Delete all snapshots, and files left by snapshots that were not finished, except those of files
+     * @param files The model files whose snapshots are kept
+     */
+    public void pruneSnapshots(Collection<File> files) {
+        Set<String> keep = new HashSet<String>();
+        for(File file : files) {
+            if(file != null) {
+                keep.add(getSnapshotFile(file).getName());
+            }
+        }
+
+        synchronized(fScheduledFiles) {
+            fScheduledFiles.keySet().retainAll(files);
+        }
+
+        File[] folderFiles = fFolder.listFiles();
+        if(folderFiles == null) {
+            return;
+        }
+
+        for(File folderFile : folderFiles) {
+            String name = folderFile.getName();
+            boolean isSnapshot = name.endsWith(SNAPSHOT_EXTENSION);
+            boolean isTmpFile = name.startsWith("~") && name.endsWith(".tmp"); //$NON-NLS-1$ //$NON-NLS-2$
+            if((isSnapshot && !keep.contains(name)) || isTmpFile) {
+                folderFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @return The snapshot file for a model file, named from a hash of the model file's path
+     */
+    File getSnapshotFile(File file) {
+        String name = getHash(file.getAbsolutePath().getBytes());
+        return new File(fFolder, name + SNAPSHOT_EXTENSION);
+    }
+
+    /**
+     * @return true if the header read from in is for file as it is now
+     */
+    private boolean isValidHeader(DataInputStream in, File file) throws IOException {
+        if(!SNAPSHOT_FORMAT.equals(in.readUTF())) {
+            return false;
+        }
+        if(!ModelVersion.VERSION.equals(in.readUTF())) {
+            return false;
+        }
+        if(!file.getAbsolutePath().equals(in.readUTF())) {
+            return false;
+        }
+        if(file.length() != in.readLong()) {
+            return false;
+        }
+        if(file.lastModified() != in.readLong()) {
+            return false;
+        }
+
+        // Size and time match so check the content last as it means reading the whole file
+        return getContentHash(file).equals(in.readUTF());
+    }
+
+    /**
+     * @return The SHA-256 hash of the contents of file as a hex string
+     */
+    String getContentHash(File file) throws IOException {
+        MessageDigest digest = getDigest();
+
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buf = new byte[65536];
+            int size;
+            while((size = in.read(buf)) != -1) {
+                digest.update(buf, 0, size);
+            }
+        }
+        finally {
+            in.close();
+        }
+
+        return toHex(digest.digest());
+    }
+
+    private String getHash(byte[] bytes) {
+        return toHex(getDigest().digest(bytes));
+    }
+
+    private MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+        }
+        catch(NoSuchAlgorithmException ex) {
+            // Every Java platform is required to support SHA-256
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private String toHex(byte[] hash) {
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for(byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private void closeQuietly(InputStream in) {
+        if(in != null) {
+            try {
+                in.close();
+            }
+            catch(IOException ex) {
+            }
+        }
+    }
+}
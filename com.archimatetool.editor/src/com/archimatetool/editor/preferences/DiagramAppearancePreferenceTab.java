@@ -14,6 +14,7 @@ import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 
 import com.archimatetool.editor.diagram.sketch.ISketchEditor;
 
@@ -27,6 +28,9 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
     
     private Button fShowShadowsButton;
     
+    private Spinner fHideTextBelowZoomSpinner;
+    private Spinner fSimpleFiguresBelowZoomSpinner;
+    
     private Combo fDefaultSketchBackgroundCombo;
     
     
@@ -38,14 +42,24 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
         
         Group figuresGroup = new Group(client, SWT.NULL);
         figuresGroup.setText(Messages.DiagramAppearancePreferenceTab_0);
-        figuresGroup.setLayout(new GridLayout());
+        figuresGroup.setLayout(new GridLayout(3, false));
         figuresGroup.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
         
         fShowShadowsButton = new Button(figuresGroup, SWT.CHECK);
         fShowShadowsButton.setText(Messages.DiagramFiguresPreferencePage_9);
         GridData gd = new GridData(GridData.FILL_HORIZONTAL);
+        gd.horizontalSpan = 3;
         fShowShadowsButton.setLayoutData(gd);
         
+        // Level of detail zoom levels. 0 is never.
+        Label label = new Label(figuresGroup, SWT.NULL);
+        label.setText(Messages.DiagramAppearancePreferenceTab_1);
+        fHideTextBelowZoomSpinner = createZoomSpinner(figuresGroup);
+        
+        label = new Label(figuresGroup, SWT.NULL);
+        label.setText(Messages.DiagramAppearancePreferenceTab_2);
+        fSimpleFiguresBelowZoomSpinner = createZoomSpinner(figuresGroup);
+        
         // -------------- Sketch ----------------------------
 
         Group sketchGroup = new Group(client, SWT.NULL);
@@ -54,7 +68,7 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
         sketchGroup.setLayoutData(new GridData(GridData.FILL_HORIZONTAL));
 
         // Default Sketch background
-        Label label = new Label(sketchGroup, SWT.NULL);
+        label = new Label(sketchGroup, SWT.NULL);
         label.setText(Messages.DiagramPreferencePage_20);
         fDefaultSketchBackgroundCombo = new Combo(sketchGroup, SWT.READ_ONLY);
         fDefaultSketchBackgroundCombo.setItems(ISketchEditor.BACKGROUNDS);
@@ -66,9 +80,22 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
         return client;
     }
     
+    private Spinner createZoomSpinner(Composite parent) {
+        Spinner spinner = new Spinner(parent, SWT.BORDER);
+        spinner.setMinimum(0);
+        spinner.setMaximum(100);
+        spinner.setIncrement(5);
+        
+        Label label = new Label(parent, SWT.NULL);
+        label.setText(Messages.DiagramAppearancePreferenceTab_3);
+        
+        return spinner;
+    }
     
     private void setValues() {
         fShowShadowsButton.setSelection(getPreferenceStore().getBoolean(SHOW_SHADOWS));
+        fHideTextBelowZoomSpinner.setSelection(getPreferenceStore().getInt(HIDE_TEXT_BELOW_ZOOM));
+        fSimpleFiguresBelowZoomSpinner.setSelection(getPreferenceStore().getInt(SIMPLE_FIGURES_BELOW_ZOOM));
         fDefaultSketchBackgroundCombo.select(getPreferenceStore().getInt(SKETCH_DEFAULT_BACKGROUND));        
     }
     
@@ -78,6 +105,8 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
 
     public boolean performOk() {
         getPreferenceStore().setValue(SHOW_SHADOWS, fShowShadowsButton.getSelection());
+        getPreferenceStore().setValue(HIDE_TEXT_BELOW_ZOOM, fHideTextBelowZoomSpinner.getSelection());
+        getPreferenceStore().setValue(SIMPLE_FIGURES_BELOW_ZOOM, fSimpleFiguresBelowZoomSpinner.getSelection());
         getPreferenceStore().setValue(SKETCH_DEFAULT_BACKGROUND, fDefaultSketchBackgroundCombo.getSelectionIndex());
         
         return true;
@@ -85,6 +114,8 @@ public class DiagramAppearancePreferenceTab implements IPreferenceConstants {
     
     protected void performDefaults() {
         fShowShadowsButton.setSelection(getPreferenceStore().getDefaultBoolean(SHOW_SHADOWS));
+        fHideTextBelowZoomSpinner.setSelection(getPreferenceStore().getDefaultInt(HIDE_TEXT_BELOW_ZOOM));
+        fSimpleFiguresBelowZoomSpinner.setSelection(getPreferenceStore().getDefaultInt(SIMPLE_FIGURES_BELOW_ZOOM));
         fDefaultSketchBackgroundCombo.select(getPreferenceStore().getDefaultInt(SKETCH_DEFAULT_BACKGROUND));
     }
 }
\ No newline at end of file
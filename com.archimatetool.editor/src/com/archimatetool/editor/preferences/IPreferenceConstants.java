@@ -27,6 +27,7 @@ public interface IPreferenceConstants {
     
     String OPEN_DIAGRAMS_ON_LOAD = "openDiagramsOnLoad"; //$NON-NLS-1$
     String BACKUP_ON_SAVE = "backupOnSave"; //$NON-NLS-1$
+    String MODEL_SNAPSHOTS = "modelSnapshots"; //$NON-NLS-1$
     
     String ANIMATE = "animate"; //$NON-NLS-1$
     String ANIMATION_SPEED = "animationSpeed"; //$NON-NLS-1$
@@ -84,4 +85,7 @@ public interface IPreferenceConstants {
     String ANIMATE_VISUALISER_NODES = "animateVisualiserNodes"; //$NON-NLS-1$
     
     String SHOW_SHADOWS = "showShadows"; //$NON-NLS-1$
+    
+    String HIDE_TEXT_BELOW_ZOOM = "hideTextBelowZoom"; //$NON-NLS-1$
+    String SIMPLE_FIGURES_BELOW_ZOOM = "simpleFiguresBelowZoom"; //$NON-NLS-1$
 }
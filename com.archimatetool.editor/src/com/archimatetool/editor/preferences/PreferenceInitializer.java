@@ -48,6 +48,7 @@ implements IPreferenceConstants {
         
         store.setDefault(OPEN_DIAGRAMS_ON_LOAD, false);
         store.setDefault(BACKUP_ON_SAVE, true);
+        store.setDefault(MODEL_SNAPSHOTS, true);
         
         store.setDefault(SKETCH_DEFAULT_BACKGROUND, 1);
         
@@ -87,6 +88,10 @@ implements IPreferenceConstants {
         // Show shadows
         store.setDefault(SHOW_SHADOWS, false);
         
+        // Level of detail zoom percentages (0 is off)
+        store.setDefault(HIDE_TEXT_BELOW_ZOOM, 0);
+        store.setDefault(SIMPLE_FIGURES_BELOW_ZOOM, 0);
+        
         // Eclipse traditional tabs
         IPreferenceStore eclipseStore = PlatformUI.getPreferenceStore();
         eclipseStore.setDefault(IWorkbenchPreferenceConstants.SHOW_TRADITIONAL_STYLE_TABS, false);
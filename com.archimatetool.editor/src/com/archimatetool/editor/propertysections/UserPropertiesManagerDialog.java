@@ -6,12 +6,10 @@
 package com.archimatetool.editor.propertysections;
 
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.Map.Entry;
 
 import org.eclipse.draw2d.ColorConstants;
 import org.eclipse.emf.common.util.EList;
-import org.eclipse.emf.ecore.EObject;
 import org.eclipse.gef.commands.Command;
 import org.eclipse.gef.commands.CommandStack;
 import org.eclipse.gef.commands.CompoundCommand;
@@ -61,6 +59,7 @@ import com.archimatetool.editor.ui.components.ExtendedTitleAreaDialog;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IProperties;
 import com.archimatetool.model.IProperty;
+import com.archimatetool.model.util.PropertyKeysAdapter;
 
 
 
@@ -302,19 +301,11 @@ public class UserPropertiesManagerDialog extends ExtendedTitleAreaDialog {
     }
 
     private void getAllUniquePropertyKeysForModel() {
-        for(Iterator<EObject> iter = fArchimateModel.eAllContents(); iter.hasNext();) {
-            EObject element = iter.next();
-            if(element instanceof IProperty) {
-                String key = ((IProperty)element).getKey();
-                if(key != null) {
-                    if(fKeysTable.containsKey(key)) {
-                        fKeysTable.get(key).usedTimes++;
-                    }
-                    else {
-                        fKeysTable.put(key, new KeyEntry(key));
-                    }
-                }
-            }
+        PropertyKeysAdapter adapter = PropertyKeysAdapter.getAdapter(fArchimateModel);
+        for(String key : adapter.getKeys()) {
+            KeyEntry keyEntry = new KeyEntry(key);
+            keyEntry.usedTimes = adapter.getUsageCount(key);
+            fKeysTable.put(key, keyEntry);
         }
     }
 
@@ -374,12 +365,10 @@ public class UserPropertiesManagerDialog extends ExtendedTitleAreaDialog {
      * Check for deletions
      */
     private void checkDeletions(CompoundCommand compoundCmd) {
-        for(Iterator<EObject> iter = fArchimateModel.eAllContents(); iter.hasNext();) {
-            EObject element = iter.next();
-            if(element instanceof IProperty) {
-                IProperty property = (IProperty)element;
-                String key = property.getKey();
-                if(key != null && !fKeysTable.containsKey(key)) {
+        PropertyKeysAdapter adapter = PropertyKeysAdapter.getAdapter(fArchimateModel);
+        for(String key : adapter.getKeys()) {
+            if(!fKeysTable.containsKey(key)) {
+                for(IProperty property : adapter.getProperties(key)) {
                     Command cmd = new DeletePropertyKeyCommand(((IProperties)property.eContainer()).getProperties(), property);
                     compoundCmd.add(cmd);
                 }
@@ -404,15 +393,9 @@ public class UserPropertiesManagerDialog extends ExtendedTitleAreaDialog {
      * Change all instances of key to new name
      */
     private void addKeyNameChangeCommands(CompoundCommand compoundCmd, String oldName, String newName) {
-        for(Iterator<EObject> iter = fArchimateModel.eAllContents(); iter.hasNext();) {
-            EObject element = iter.next();
-            if(element instanceof IProperty) {
-                String key = ((IProperty)element).getKey();
-                if(key != null && key.equals(oldName)) {
-                    Command cmd = new RenamePropertyKeyCommand((IProperty)element, oldName, newName);
-                    compoundCmd.add(cmd);
-                }
-            }
+        for(IProperty property : PropertyKeysAdapter.getAdapter(fArchimateModel).getProperties(oldName)) {
+            Command cmd = new RenamePropertyKeyCommand(property, oldName, newName);
+            compoundCmd.add(cmd);
         }
     }
 
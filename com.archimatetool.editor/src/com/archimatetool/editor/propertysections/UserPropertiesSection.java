@@ -8,7 +8,6 @@ package com.archimatetool.editor.propertysections;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
-import java.util.Iterator;
 import java.util.List;
 import java.util.regex.Matcher;
 
@@ -98,6 +97,7 @@ import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IDiagramModelComponent;
 import com.archimatetool.model.IProperties;
 import com.archimatetool.model.IProperty;
+import com.archimatetool.model.util.PropertyKeysAdapter;
 
 
 
@@ -479,13 +479,9 @@ public class UserPropertiesSection extends AbstractArchimatePropertySection {
 
         List<String> list = new ArrayList<String>();
 
-        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
-            EObject element = iter.next();
-            if(element instanceof IProperty) {
-                String key = ((IProperty)element).getKey();
-                if(StringUtils.isSetAfterTrim(key) && !list.contains(key)) {
-                    list.add(key);
-                }
+        for(String key : PropertyKeysAdapter.getAdapter(model).getKeys()) {
+            if(StringUtils.isSetAfterTrim(key)) {
+                list.add(key);
             }
         }
 
@@ -256,6 +256,41 @@ public final class FileUtils  {
 		srcFile.delete();
 	}
 	
+	/**
+	 * Replace a file with another file in the same folder by renaming it.
+	 * On platforms where renaming over an existing file fails the existing file is renamed out of the way first
+	 * and restored if the rename fails, so that destFile is always either the old or the new file.
+	 * The existing file is renamed to a new temporary name so that no other file in the folder is touched.
+	 * @param srcFile The new file
+	 * @param destFile The file to replace
+	 * @throws IOException
+	 */
+	public static void replaceFile(File srcFile, File destFile) throws IOException {
+	    // Atomic on most platforms
+	    if(srcFile.renameTo(destFile)) {
+	        return;
+	    }
+	    
+	    if(!destFile.exists()) {
+	        throw new IOException("Could not rename " + srcFile + " to " + destFile); //$NON-NLS-1$ //$NON-NLS-2$
+	    }
+	    
+	    // A unique name in the same folder. The temporary file is deleted as renaming over it may fail too.
+	    File backupFile = File.createTempFile("~" + destFile.getName(), ".old", destFile.getAbsoluteFile().getParentFile()); //$NON-NLS-1$ //$NON-NLS-2$
+	    backupFile.delete();
+	    
+	    if(!destFile.renameTo(backupFile)) {
+	        throw new IOException("Could not rename " + destFile + " to " + backupFile); //$NON-NLS-1$ //$NON-NLS-2$
+	    }
+	    
+	    if(!srcFile.renameTo(destFile)) {
+	        backupFile.renameTo(destFile);
+	        throw new IOException("Could not rename " + srcFile + " to " + destFile); //$NON-NLS-1$ //$NON-NLS-2$
+	    }
+	    
+	    backupFile.delete();
+	}
+	
 	/**
 	 * Delete a folder and its contents
 	 * @param afolder -  a folder
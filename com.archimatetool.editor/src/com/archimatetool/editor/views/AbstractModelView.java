@@ -8,7 +8,10 @@ package com.archimatetool.editor.views;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EObject;
@@ -26,11 +29,15 @@ import org.eclipse.ui.views.properties.tabbed.TabbedPropertySheetPage;
 
 import com.archimatetool.editor.ArchimateEditorPlugin;
 import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.editor.model.IModelChangeListener;
+import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IDiagramModelArchimateConnection;
 import com.archimatetool.model.IDiagramModelArchimateObject;
 import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IRelationship;
+import com.archimatetool.model.util.ArchimateModelUtils;
 
 
 
@@ -40,7 +47,7 @@ import com.archimatetool.model.IFolder;
  * @author Phillip Beauvoir
  */
 public abstract class AbstractModelView extends ViewPart
-implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageContributor, IModelView {
+implements IContextProvider, PropertyChangeListener, IModelChangeListener, ITabbedPropertySheetPageContributor, IModelView {
 
     /**
      * This is an empty, unused CommandStack used in case we have no Models open or selected in the Tree View.
@@ -51,11 +58,6 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
     protected UndoAction fActionUndo = new UndoAction(this);
     protected RedoAction fActionRedo = new RedoAction(this);
     
-    /**
-     * If true will not refresh viewer on multiple eCore notifications
-     */
-    private Boolean fIgnoreECoreNotifications = false;
-    
     /**
      * Buffer notifications to optimise updates
      */
@@ -73,6 +75,7 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
 
         // Register us as a Model Listener - this has to be done last, *after* the tree/selection listener is created
         IEditorModelManager.INSTANCE.addPropertyChangeListener(this);
+        IEditorModelManager.INSTANCE.addModelChangeListener(this, null);
     }
     
     /**
@@ -132,31 +135,20 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
     //                       Listen to Editor Model Changes
     // =================================================================================
     public void propertyChange(PropertyChangeEvent evt) {
-        String propertyName = evt.getPropertyName();
-        Object newValue = evt.getNewValue();
-        
-        // Buffer all incoming notifications
-        if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENTS_START) {
-            fIgnoreECoreNotifications = true;
-            notificationBuffer = new ArrayList<Notification>();
+        // Sub-classes can over-ride
+    }
+    
+    public void modelChanged(IArchimateModel model, List<Notification> notifications) {
+        // Single event
+        if(notifications.size() == 1) {
+            eCoreChanged(notifications.get(0));
         }
-        // Refresh all buffered notifications
-        else if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENTS_END) {
+        // Refresh all the notifications of a command together
+        else {
+            notificationBuffer = notifications;
             refreshElementsFromBufferedNotifications();
-            fIgnoreECoreNotifications = false;
             notificationBuffer = null;
         }
-        // ECore model event
-        else if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENT) {
-            // Normal event
-            if(!fIgnoreECoreNotifications) {
-                eCoreChanged((Notification)newValue);
-            }
-            // Else add to buffer
-            else {
-                notificationBuffer.add((Notification)newValue);
-            }
-        }
     }
     
     /**
@@ -183,7 +175,13 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
         }
         // Large structural model change
         else if(type == Notification.ADD_MANY || type == Notification.REMOVE_MANY || type == Notification.MOVE) {
-            getViewer().refresh();
+            // Refresh the folder or model whose children changed
+            if(notifier instanceof IFolder || notifier instanceof IArchimateModel) {
+                getViewer().refresh(notifier);
+            }
+            else {
+                getViewer().refresh();
+            }
         }
         // Set
         else if(type == Notification.SET) {            
@@ -191,6 +189,11 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
             if(feature == IArchimatePackage.Literals.NAMEABLE__NAME) {
                 getViewer().refresh(((EObject)notifier).eContainer());
                 getViewer().update(notifier, null);
+                
+                // Relationship labels show the names of their source and target
+                if(notifier instanceof IArchimateElement) {
+                    getViewer().update(ArchimateModelUtils.getRelationships((IArchimateElement)notifier).toArray(), null);
+                }
             }
             // Interface type icon
             else if(feature == IArchimatePackage.Literals.INTERFACE_ELEMENT__INTERFACE_TYPE) {
@@ -207,36 +210,88 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
             return;
         }
         
-        List<Object> refreshElements = new ArrayList<Object>();
-        List<Object> updateElements = new ArrayList<Object>();
+        Set<Object> refreshElements = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        Set<Object> updateElements = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        List<Notification> otherNotifications = new ArrayList<Notification>();
             
         for(Notification msg : notificationBuffer) {
-            // Get parent nodes to refresh
-            Object parent = getParentToRefreshFromNotification(msg);
-            if(parent != null && !refreshElements.contains(parent)) {
-                refreshElements.add(parent);
+            int type = msg.getEventType();
+            Object notifier = msg.getNotifier();
+            
+            if(type == Notification.ADD || type == Notification.REMOVE) {
+                // Get parent nodes to refresh
+                Object parent = getParentToRefreshFromNotification(msg);
+                if(parent != null) {
+                    refreshElements.add(parent);
+                }
+                // Get elements to update
+                Object element = getElementToUpdateFromNotification(msg);
+                if(element != null) {
+                    updateElements.add(element);
+                }
             }
-            // Get elements to update
-            Object element = getElementToUpdateFromNotification(msg);
-            if(element != null && !updateElements.contains(element)) {
-                updateElements.add(element);
+            // Children of a folder or model changed
+            else if((type == Notification.ADD_MANY || type == Notification.REMOVE_MANY || type == Notification.MOVE)
+                    && (notifier instanceof IFolder || notifier instanceof IArchimateModel)) {
+                refreshElements.add(notifier);
+            }
+            // Element Name - need to refresh parent node as well as update element because of using a ViewerSorter
+            else if(type == Notification.SET && msg.getFeature() == IArchimatePackage.Literals.NAMEABLE__NAME) {
+                Object parent = ((EObject)notifier).eContainer();
+                if(parent != null) {
+                    refreshElements.add(parent);
+                }
+                updateElements.add(notifier);
+                
+                // Relationship labels show the names of their source and target
+                if(notifier instanceof IArchimateElement) {
+                    for(IRelationship relationship : ArchimateModelUtils.getRelationships((IArchimateElement)notifier)) {
+                        updateElements.add(relationship);
+                    }
+                }
+            }
+            else {
+                otherNotifications.add(msg);
             }
         }
         
         // Refresh and update consolidated nodes
         getViewer().getControl().setRedraw(false);
 
+        // Refreshing a node refreshes and updates all of its children so skip any nodes under a node that is refreshed
         for(Object object : refreshElements) {
-            getViewer().refresh(object);
+            if(!hasAncestorIn(object, refreshElements)) {
+                getViewer().refresh(object);
+            }
         }
 
         for(Object object : updateElements) {
-            getViewer().update(object, null);
+            if(!refreshElements.contains(object) && !hasAncestorIn(object, refreshElements)) {
+                getViewer().update(object, null);
+            }
+        }
+        
+        for(Notification msg : otherNotifications) {
+            eCoreChanged(msg);
         }
 
         getViewer().getControl().setRedraw(true);
     }
     
+    /**
+     * @return true if any container of object is in set
+     */
+    private boolean hasAncestorIn(Object object, Set<Object> set) {
+        if(object instanceof EObject) {
+            for(EObject parent = ((EObject)object).eContainer(); parent != null; parent = parent.eContainer()) {
+                if(set.contains(parent)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
     /**
      * @param msg
      * @return The correct parent node (IFolder) to refresh when one of its children is added/removed
@@ -302,5 +357,6 @@ implements IContextProvider, PropertyChangeListener, ITabbedPropertySheetPageCon
         
         // Unregister us as a Model Manager Listener
         IEditorModelManager.INSTANCE.removePropertyChangeListener(this);
+        IEditorModelManager.INSTANCE.removeModelChangeListener(this);
     }
 }
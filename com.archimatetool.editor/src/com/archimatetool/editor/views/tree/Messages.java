@@ -19,6 +19,8 @@ public class Messages extends NLS {
 
     public static String TreeModelView_2;
 
+    public static String TreeModelViewer_0;
+
     public static String TreeModelViewerDragDropHandler_0;
     static {
         // initialize resource bundle
@@ -6,6 +6,7 @@
 package com.archimatetool.editor.views.tree;
 
 import java.beans.PropertyChangeEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 
@@ -119,7 +120,7 @@ implements ITreeModelView, IUIRequestListener {
         layout.verticalSpacing = 0;
         parent.setLayout(layout);
         
-        fTreeViewer = new TreeModelViewer(parent, SWT.NULL);
+        fTreeViewer = new TreeModelViewer(parent, SWT.VIRTUAL);
         fTreeViewer.getControl().setLayoutData(new GridData(GridData.FILL_BOTH));
         
         fTreeViewer.setInput(IEditorModelManager.INSTANCE);
@@ -473,26 +474,25 @@ implements ITreeModelView, IUIRequestListener {
             getViewer().refresh();
         }
         
+        // Model from the last session loaded in the background, or not loaded, so replace its placeholder
+        else if(propertyName == IEditorModelManager.PROPERTY_MODEL_LOADING) {
+            getViewer().refresh();
+            
+            File file = (File)evt.getOldValue();
+            for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
+                if(file.equals(model.getFile())) {
+                    TreeStateHelper.INSTANCE.restoreExpandedTreeElements(model);
+                    break;
+                }
+            }
+        }
+        
         // Model dirty state, so update Actions and modified state of source (asterisk on model node)
         else if(propertyName == IEditorModelManager.COMMAND_STACK_CHANGED) {
             updateActions();
             getViewer().update(source, null);
         }
         
-        // Ecore Events will come so turn tree refresh off
-        else if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENTS_START) {
-            super.propertyChange(evt);
-            // Remove Syncing
-            TreeSelectionSynchroniser.INSTANCE.setSynchronise(false);
-        }
-        
-        // Ecore Events have finished so turn tree refresh on
-        else if(propertyName == IEditorModelManager.PROPERTY_ECORE_EVENTS_END) {
-            super.propertyChange(evt);
-            // Add Syncing
-            TreeSelectionSynchroniser.INSTANCE.setSynchronise(true);
-        }
-        
         else {
             super.propertyChange(evt);
         }
@@ -521,6 +521,17 @@ implements ITreeModelView, IUIRequestListener {
     //                       React to ECore Model Changes
     // =================================================================================
     
+    @Override
+    protected void refreshElementsFromBufferedNotifications() {
+        // Remove Syncing
+        TreeSelectionSynchroniser.INSTANCE.setSynchronise(false);
+        
+        super.refreshElementsFromBufferedNotifications();
+        
+        // Add Syncing
+        TreeSelectionSynchroniser.INSTANCE.setSynchronise(true);
+    }
+    
     @Override
     protected void eCoreChanged(Notification msg) {
         int type = msg.getEventType();
@@ -5,19 +5,28 @@
  */
 package com.archimatetool.editor.views.tree;
 
+import java.io.File;
+import java.text.CollationKey;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.viewers.IColorProvider;
 import org.eclipse.jface.viewers.IFontProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.jface.viewers.ViewerSorter;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
@@ -29,6 +38,9 @@ import org.eclipse.swt.widgets.Widget;
 import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.ArchimateLabelProvider;
+import com.archimatetool.editor.ui.ColorFactory;
+import com.archimatetool.editor.ui.IArchimateImages;
+import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.editor.views.tree.search.SearchFilter;
 import com.archimatetool.model.FolderType;
 import com.archimatetool.model.IArchimateElement;
@@ -53,56 +65,37 @@ public class TreeModelViewer extends TreeViewer {
      */
     private TreeViewpointFilterProvider fViewpointFilterProvider;
     
+    /**
+     * Content Provider used if the Tree is virtual, or null
+     */
+    private LazyModelTreeViewerContentProvider fLazyContentProvider;
+    
+    private ViewerSorter fSorter = new ModelTreeViewerSorter();
+    
+    private ModelTreeViewerLabelProvider fLabelProvider;
+    
+    /**
+     * @param parent The parent
+     * @param style The style. If this includes SWT.VIRTUAL the Tree is virtual and only the rows that are shown are
+     *              created, with the children of each folder filtered and sorted once and cached until it is refreshed.
+     */
     public TreeModelViewer(Composite parent, int style) {
         super(parent, style | SWT.MULTI);
         
-        setContentProvider(new ModelTreeViewerContentProvider());
-        setLabelProvider(new ModelTreeViewerLabelProvider());
+        if((style & SWT.VIRTUAL) != 0) {
+            // A lazy content provider does its own filtering and sorting so no sorter is set on the viewer
+            fLazyContentProvider = new LazyModelTreeViewerContentProvider();
+            setContentProvider(fLazyContentProvider);
+        }
+        else {
+            setContentProvider(new ModelTreeViewerContentProvider());
+            setSorter(fSorter);
+        }
         
-        setUseHashlookup(true);
+        fLabelProvider = new ModelTreeViewerLabelProvider();
+        setLabelProvider(fLabelProvider);
         
-        // Sort
-        setSorter(new ViewerSorter() {
-            @SuppressWarnings("unchecked")
-            @Override
-            public int compare(Viewer viewer, Object e1, Object e2) {
-                int cat1 = category(e1);
-                int cat2 = category(e2);
-
-                if(cat1 != cat2) {
-                    return cat1 - cat2;
-                }
-                
-                // Only user folders are sorted
-                if((e1 instanceof IFolder && e2 instanceof IFolder) && (((IFolder)e1).getType() != FolderType.USER 
-                        || ((IFolder)e2).getType() != FolderType.USER)) {
-                    return 0;
-                }
-                
-                String name1 = ArchimateLabelProvider.INSTANCE.getLabel(e1);
-                String name2 = ArchimateLabelProvider.INSTANCE.getLabel(e2);
-                
-                if(name1 == null) {
-                    name1 = "";//$NON-NLS-1$
-                }
-                if(name2 == null) {
-                    name2 = "";//$NON-NLS-1$
-                }
-                
-                return getComparator().compare(name1, name2);
-            }
-            
-            @Override
-            public int category(Object element) {
-                if(element instanceof IFolder) {
-                    return 0;
-                }
-                if(element instanceof EObject) {
-                    return 1;
-                }
-                return 0;
-            }
-        });
+        setUseHashlookup(true);
         
         // Cell Editor
         fCellEditor = new TreeCellEditor(getTree());
@@ -127,6 +120,7 @@ public class TreeModelViewer extends TreeViewer {
         if(fCellEditor != null && fCellEditor.isEditing()) {
             fCellEditor.cancelEditing();
         }
+        invalidate(element);
         super.refresh(element);
     }
     
@@ -135,9 +129,74 @@ public class TreeModelViewer extends TreeViewer {
         if(fCellEditor != null && fCellEditor.isEditing()) {
             fCellEditor.cancelEditing();
         }
+        invalidate(element);
         super.refresh(element, updateLabels);
     }
     
+    @Override
+    public void update(Object element, String[] properties) {
+        fLabelProvider.invalidate(element);
+        super.update(element, properties);
+    }
+    
+    @Override
+    public void update(Object[] elements, String[] properties) {
+        for(Object element : elements) {
+            fLabelProvider.invalidate(element);
+        }
+        super.update(elements, properties);
+    }
+    
+    /**
+     * Clear cached children and labels of element and its descendants before it is refreshed, or all of them if element is the input.
+     * Only the subtree of element is visited. In a virtual Tree this goes down through the cached children of each parent
+     * so that the children that were shown are cleared even if they have since been removed from the model.
+     */
+    private void invalidate(Object element) {
+        if(element == null || element == getInput()) {
+            if(fLazyContentProvider != null) {
+                fLazyContentProvider.fChildren.clear();
+            }
+            if(fLabelProvider != null) {
+                fLabelProvider.fTexts.clear();
+                fLabelProvider.fFonts.clear();
+            }
+            return;
+        }
+        
+        Deque<Object> stack = new ArrayDeque<Object>();
+        stack.push(element);
+        
+        while(!stack.isEmpty()) {
+            Object next = stack.pop();
+            
+            if(fLabelProvider != null) {
+                fLabelProvider.invalidate(next);
+            }
+            
+            Object[] children = null;
+            if(fLazyContentProvider != null) {
+                children = fLazyContentProvider.fChildren.remove(next);
+            }
+            else if(getContentProvider() instanceof ITreeContentProvider) {
+                children = ((ITreeContentProvider)getContentProvider()).getChildren(next);
+            }
+            
+            if(children != null) {
+                for(Object child : children) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return true if the Tree is virtual
+     */
+    public boolean isLazy() {
+        return fLazyContentProvider != null;
+    }
+    
     /**
      * Finds the widget which represents the given element.
      * @param element the element
@@ -161,6 +220,100 @@ public class TreeModelViewer extends TreeViewer {
         return null;
     }
     
+    /**
+     * Sorter
+     */
+    private static class ModelTreeViewerSorter extends ViewerSorter {
+        
+        /**
+         * An element with its category and collation key worked out once for sorting
+         */
+        private class SortKey implements Comparable<SortKey> {
+            Object element;
+            int category;
+            CollationKey key;
+            
+            SortKey(Object element) {
+                this.element = element;
+                category = category(element);
+                
+                // Only user folders are sorted
+                if(!(element instanceof IFolder) || ((IFolder)element).getType() == FolderType.USER) {
+                    key = getCollator().getCollationKey(getName(element));
+                }
+            }
+            
+            public int compareTo(SortKey other) {
+                if(category != other.category) {
+                    return category - other.category;
+                }
+                
+                if(key == null || other.key == null) {
+                    return 0;
+                }
+                
+                return key.compareTo(other.key);
+            }
+        }
+        
+        @Override
+        public void sort(Viewer viewer, Object[] elements) {
+            // Work out the names and collation keys once rather than on each comparison
+            SortKey[] keys = new SortKey[elements.length];
+            for(int i = 0; i < elements.length; i++) {
+                keys[i] = new SortKey(elements[i]);
+            }
+            
+            Arrays.sort(keys);
+            
+            for(int i = 0; i < elements.length; i++) {
+                elements[i] = keys[i].element;
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        @Override
+        public int compare(Viewer viewer, Object e1, Object e2) {
+            int cat1 = category(e1);
+            int cat2 = category(e2);
+
+            if(cat1 != cat2) {
+                return cat1 - cat2;
+            }
+            
+            // Only user folders are sorted
+            if((e1 instanceof IFolder && e2 instanceof IFolder) && (((IFolder)e1).getType() != FolderType.USER 
+                    || ((IFolder)e2).getType() != FolderType.USER)) {
+                return 0;
+            }
+            
+            return getComparator().compare(getName(e1), getName(e2));
+        }
+        
+        @Override
+        public int category(Object element) {
+            if(element instanceof IFolder) {
+                return 0;
+            }
+            if(element instanceof EObject) {
+                return 1;
+            }
+            // Placeholder of a model being loaded
+            if(element instanceof File) {
+                return 2;
+            }
+            return 0;
+        }
+        
+        private String getName(Object element) {
+            if(element instanceof File) {
+                return ((File)element).getName();
+            }
+            String name = ArchimateLabelProvider.INSTANCE.getLabel(element);
+            return name == null ? "" : name; //$NON-NLS-1$
+        }
+    }
+    
     /**
      *  Content Provider
      */
@@ -177,8 +330,12 @@ public class TreeModelViewer extends TreeViewer {
         }
 
         public Object[] getChildren(Object parentElement) {
+            // Models and placeholders of models being loaded
             if(parentElement instanceof IEditorModelManager) {
-            	return ((IEditorModelManager)parentElement).getModels().toArray();
+                List<Object> list = new ArrayList<Object>();
+                list.addAll(((IEditorModelManager)parentElement).getModels());
+                list.addAll(((IEditorModelManager)parentElement).getLoadingModelFiles());
+                return list.toArray();
             }
             
             if(parentElement instanceof IArchimateModel) {
@@ -211,6 +368,93 @@ public class TreeModelViewer extends TreeViewer {
         }
     }
     
+    /**
+     * Lazy Content Provider for a virtual Tree.
+     * 
+     * The filtered and sorted children of a parent are worked out when the parent is first expanded and cached so that
+     * rows can be looked up by index as they are scrolled into view. The cache of a parent and its descendants is
+     * cleared when the parent is refreshed.
+     */
+    private class LazyModelTreeViewerContentProvider implements ILazyTreeContentProvider {
+        
+        private ModelTreeViewerContentProvider fDelegate = new ModelTreeViewerContentProvider();
+        
+        /**
+         * Parent -> Filtered and sorted children
+         */
+        private Map<Object, Object[]> fChildren = new HashMap<Object, Object[]>();
+        
+        public void inputChanged(Viewer v, Object oldInput, Object newInput) {
+            fChildren.clear();
+        }
+        
+        public void dispose() {
+            fChildren.clear();
+        }
+        
+        public void updateElement(Object parent, int index) {
+            Object[] children = getSortedChildren(parent);
+            if(index < children.length) {
+                Object child = children[index];
+                replace(parent, index, child);
+                setChildCount(child, getChildCount(child));
+            }
+        }
+        
+        public void updateChildCount(Object element, int currentChildCount) {
+            int count = getChildCount(element);
+            if(count != currentChildCount) {
+                setChildCount(element, count);
+            }
+        }
+        
+        public Object getParent(Object element) {
+            if(element instanceof IArchimateModel || element instanceof File) {
+                return getInput();
+            }
+            return fDelegate.getParent(element);
+        }
+        
+        private int getChildCount(Object element) {
+            Object[] children = fChildren.get(element);
+            if(children != null) {
+                return children.length;
+            }
+            
+            // Without filters the count is known without getting the children
+            if(getFilters().length == 0) {
+                if(element instanceof IEditorModelManager) {
+                    return ((IEditorModelManager)element).getModels().size()
+                            + ((IEditorModelManager)element).getLoadingModelFiles().size();
+                }
+                if(element instanceof IArchimateModel) {
+                    return ((IArchimateModel)element).getFolders().size();
+                }
+                if(element instanceof IFolder) {
+                    return ((IFolder)element).getFolders().size() + ((IFolder)element).getElements().size();
+                }
+                return 0;
+            }
+            
+            return getSortedChildren(element).length;
+        }
+        
+        private Object[] getSortedChildren(Object parent) {
+            Object[] children = fChildren.get(parent);
+            
+            if(children == null) {
+                children = fDelegate.getChildren(parent);
+                for(ViewerFilter filter : getFilters()) {
+                    children = filter.filter(TreeModelViewer.this, parent, children);
+                }
+                fSorter.sort(TreeModelViewer.this, children);
+                fChildren.put(parent, children);
+            }
+            
+            return children;
+        }
+    }
+    
     /**
      * Label Provider
      */
@@ -218,8 +462,34 @@ public class TreeModelViewer extends TreeViewer {
         Font fontItalic = JFaceResources.getFontRegistry().getItalic(""); //$NON-NLS-1$
         Font fontBold = JFaceResources.getFontRegistry().getBold(""); //$NON-NLS-1$
         
+        /**
+         * Element -> Text and Element -> Font (which may be null) of elements that have been shown.
+         * Entries are removed when the element is updated or refreshed in the viewer.
+         */
+        Map<Object, String> fTexts = new HashMap<Object, String>();
+        Map<Object, Font> fFonts = new HashMap<Object, Font>();
+        
+        void invalidate(Object element) {
+            fTexts.remove(element);
+            fFonts.remove(element);
+        }
+        
         @Override
         public String getText(Object element) {
+            String text = fTexts.get(element);
+            if(text == null) {
+                text = createText(element);
+                fTexts.put(element, text);
+            }
+            return text;
+        }
+        
+        private String createText(Object element) {
+            // Placeholder of a model being loaded
+            if(element instanceof File) {
+                return NLS.bind(Messages.TreeModelViewer_0, FileUtils.getFileNameWithoutExtension((File)element));
+            }
+            
             String name = ArchimateLabelProvider.INSTANCE.getLabel(element);
             
             // If a dirty model show asterisk
@@ -242,13 +512,32 @@ public class TreeModelViewer extends TreeViewer {
             return name;
         }
         
+        @Override
+        public void dispose() {
+            fTexts.clear();
+            fFonts.clear();
+        }
+        
         @Override
         public Image getImage(Object element) {
+            if(element instanceof File) {
+                return IArchimateImages.ImageFactory.getImage(IArchimateImages.ICON_MODELS_16);
+            }
             return ArchimateLabelProvider.INSTANCE.getImage(element);
         }
         
         @Override
         public Font getFont(Object element) {
+            if(fFonts.containsKey(element)) {
+                return fFonts.get(element);
+            }
+            
+            Font font = createFont(element);
+            fFonts.put(element, font);
+            return font;
+        }
+        
+        private Font createFont(Object element) {
             SearchFilter filter = getSearchFilter();
             if(filter != null && filter.isFiltering() && filter.matchesFilter(element)) {
                 return fontBold;
@@ -265,6 +554,9 @@ public class TreeModelViewer extends TreeViewer {
 
         @Override
         public Color getForeground(Object element) {
+            if(element instanceof File) {
+                return ColorFactory.get(128, 128, 128);
+            }
             return fViewpointFilterProvider.getTextColor(element);
         }
 
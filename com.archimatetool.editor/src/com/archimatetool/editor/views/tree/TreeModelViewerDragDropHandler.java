@@ -148,8 +148,8 @@ public class TreeModelViewerDragDropHandler {
         IArchimateModel model = null;
         
         for(Object object : selection.toArray()) {
-            // Can't drag Models
-            if(object instanceof IArchimateModel) {
+            // Can't drag Models or placeholders of models being loaded
+            if(object instanceof IArchimateModel || !(object instanceof EObject)) {
                 fIsValidTreeSelection = false;
                 break;
             }
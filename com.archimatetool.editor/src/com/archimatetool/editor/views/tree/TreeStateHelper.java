@@ -90,21 +90,29 @@ public class TreeStateHelper {
             if(o instanceof IArchimateModelElement) {
                 fTreeViewer.expandToLevel(o, 1);
             }
-            
-            // String ids
-            if(o instanceof FileMap) {
+        }
+        
+        // String ids
+        for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
+            restoreExpandedTreeElements(model);
+        }
+    }
+    
+    /**
+     * Restore expanded elements of a model, such as one loaded in the background after the TreeView was created
+     */
+    void restoreExpandedTreeElements(IArchimateModel model) {
+        if(fTreeViewer == null || model.getFile() == null) {
+            return;
+        }
+        
+        for(Object o : fExpandedElements) {
+            if(o instanceof FileMap && model.getFile().equals(((FileMap)o).file)) {
                 try {
-                    File file = ((FileMap)o).file;
-                    String[] elements = ((FileMap)o).elements;
-                    for(IArchimateModel model : IEditorModelManager.INSTANCE.getModels()) {
-                        if(file.equals(model.getFile())) {
-                            for(String id : elements) {
-                                EObject element = ArchimateModelUtils.getObjectByID(model, id);
-                                if(element != null) {
-                                    fTreeViewer.expandToLevel(element, 1);
-                                }
-                            }
-                            break; // found model
+                    for(String id : ((FileMap)o).elements) {
+                        EObject element = ArchimateModelUtils.getObjectByID(model, id);
+                        if(element != null) {
+                            fTreeViewer.expandToLevel(element, 1);
                         }
                     }
                 }
@@ -158,6 +166,23 @@ public class TreeStateHelper {
             }
         }
         
+        // Models from the last session that are not loaded yet keep their expanded elements
+        for(Object o : fExpandedElements) {
+            if(o instanceof FileMap) {
+                FileMap fm = (FileMap)o;
+                if(!map.containsKey(fm.file) && !IEditorModelManager.INSTANCE.isModelLoaded(fm.file)) {
+                    StringBuilder sb = new StringBuilder();
+                    for(String id : fm.elements) {
+                        if(sb.length() > 0) {
+                            sb.append(ELEMENT_SEP_CHAR);
+                        }
+                        sb.append(id);
+                    }
+                    map.put(fm.file, sb.toString());
+                }
+            }
+        }
+        
         for(File file : map.keySet()) {
             IMemento elementMem = expandedMem.createChild(MEMENTO_MODEL);
             elementMem.putString(MEMENTO_FILE, file.getAbsolutePath());
@@ -232,12 +232,10 @@ public class DeleteCommandHandler {
             // Archimate Elements
             if(object instanceof IArchimateElement) {
                 IArchimateElement element = (IArchimateElement)object;
-                for(IDiagramModel diagramModel : element.getArchimateModel().getDiagramModels()) {
+                for(IDiagramModelComponent dc : DiagramModelUtils.findDiagramModelComponentsForElement(element)) {
                     // Check diagram model is not selected to be deleted - no point in deleting any of its children
-                    if(!fElementsToDelete.contains(diagramModel)) {
-                        for(IDiagramModelComponent dc : DiagramModelUtils.findDiagramModelComponentsForElement(diagramModel, element)) {
-                            addToList(dc, fElementsToDelete);
-                        }
+                    if(!fElementsToDelete.contains(dc.getDiagramModel())) {
+                        addToList(dc, fElementsToDelete);
                     }
                 }
             }
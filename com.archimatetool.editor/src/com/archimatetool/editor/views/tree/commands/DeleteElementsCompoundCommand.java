@@ -7,6 +7,7 @@ package com.archimatetool.editor.views.tree.commands;
 
 import org.eclipse.jface.viewers.StructuredSelection;
 
+import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.editor.ui.services.UIRequestManager;
 import com.archimatetool.editor.views.tree.TreeSelectionRequest;
@@ -14,7 +15,7 @@ import com.archimatetool.editor.views.tree.TreeSelectionRequest;
 
 /**
  * This Compound Command stores an element so that when elements are deleted the tree node can be re-selected.
- * It turns off refresh in the Tree, saving on slow redraws.
+ * Like any command its notifications are sent to the Tree together, saving on slow redraws.
  * 
  * @author Phillip Beauvoir
  */
@@ -41,6 +42,9 @@ public class DeleteElementsCompoundCommand extends NonNotifyingCompoundCommand {
 
         // Select object
         if(fObjectToSelect != null) {
+            // Show the deletions in the Tree before selecting in it
+            IEditorModelManager.INSTANCE.flushModelChanges();
+            
             UIRequestManager.INSTANCE.fireRequest(new TreeSelectionRequest(this, new StructuredSelection(fObjectToSelect), true));
         }
     }
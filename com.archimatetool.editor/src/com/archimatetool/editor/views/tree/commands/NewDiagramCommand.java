@@ -9,6 +9,7 @@ import org.eclipse.gef.commands.Command;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.Viewer;
 
+import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.services.EditorManager;
 import com.archimatetool.editor.ui.services.UIRequestManager;
 import com.archimatetool.editor.views.tree.TreeEditElementRequest;
@@ -49,6 +50,9 @@ public class NewDiagramCommand extends Command {
 
         fFolder.getElements().remove(fDiagramModel);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select the parent node if no node is selected (this happens when the node is deleted)
         TreeSelectionRequest request = new TreeSelectionRequest(this, new StructuredSelection(fFolder), true) {
             @Override
@@ -63,6 +67,9 @@ public class NewDiagramCommand extends Command {
     public void redo() {
         fFolder.getElements().add(fDiagramModel);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select
         UIRequestManager.INSTANCE.fireRequest(new TreeSelectionRequest(this, new StructuredSelection(fDiagramModel), true));
         
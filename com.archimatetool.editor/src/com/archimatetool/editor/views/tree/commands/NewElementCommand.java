@@ -9,6 +9,7 @@ import org.eclipse.gef.commands.Command;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.Viewer;
 
+import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.services.UIRequestManager;
 import com.archimatetool.editor.views.tree.TreeEditElementRequest;
 import com.archimatetool.editor.views.tree.TreeSelectionRequest;
@@ -45,6 +46,9 @@ public class NewElementCommand extends Command {
     public void undo() {
         fFolder.getElements().remove(fElement);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select the parent node if no node is selected (this happens when the node is deleted)
         TreeSelectionRequest request = new TreeSelectionRequest(this, new StructuredSelection(fFolder), true) {
             @Override
@@ -59,6 +63,9 @@ public class NewElementCommand extends Command {
     public void redo() {
         fFolder.getElements().add(fElement);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select
         UIRequestManager.INSTANCE.fireRequest(new TreeSelectionRequest(this, new StructuredSelection(fElement), true));
     }
@@ -9,6 +9,7 @@ import org.eclipse.gef.commands.Command;
 import org.eclipse.jface.viewers.StructuredSelection;
 import org.eclipse.jface.viewers.Viewer;
 
+import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.ui.services.UIRequestManager;
 import com.archimatetool.editor.views.tree.TreeEditElementRequest;
 import com.archimatetool.editor.views.tree.TreeSelectionRequest;
@@ -44,6 +45,9 @@ public class NewFolderCommand extends Command {
     public void undo() {
         fParent.getFolders().remove(fFolder);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select the parent node if no node is selected (this happens when the node is deleted)
         TreeSelectionRequest request = new TreeSelectionRequest(this, new StructuredSelection(fParent), true) {
             @Override
@@ -58,6 +62,9 @@ public class NewFolderCommand extends Command {
     public void redo() {
         fParent.getFolders().add(fFolder);
         
+        // Show the change in the Tree before selecting in it
+        IEditorModelManager.INSTANCE.flushModelChanges();
+        
         // Select
         UIRequestManager.INSTANCE.fireRequest(new TreeSelectionRequest(this, new StructuredSelection(fFolder), true));
     }
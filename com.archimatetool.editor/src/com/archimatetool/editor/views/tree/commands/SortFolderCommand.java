@@ -13,7 +13,6 @@ import org.eclipse.emf.common.util.ECollections;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.gef.commands.Command;
 
-import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IDiagramModelComponent;
 import com.archimatetool.model.IFolder;
@@ -43,25 +42,13 @@ public class SortFolderCommand extends Command implements Comparator<EObject>  {
     
     @Override
     public void execute() {
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
-        
         ECollections.sort(fFolder.getElements(), this);
-        
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
     }
     
     @Override
     public void undo() {
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
-
         fFolder.getElements().clear();
         fFolder.getElements().addAll(fList);
-        
-        IEditorModelManager.INSTANCE.firePropertyChange(this,
-                IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
     }
     
     @Override
@@ -6,8 +6,17 @@
 package com.archimatetool.editor.views.tree.search;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.jface.viewers.IStructuredSelection;
@@ -17,23 +26,36 @@ import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.widgets.Display;
 
-import com.archimatetool.editor.utils.StringUtils;
-import com.archimatetool.model.IDocumentable;
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateModelElement;
 import com.archimatetool.model.IFolder;
-import com.archimatetool.model.IFolderContainer;
-import com.archimatetool.model.INameable;
-import com.archimatetool.model.IProperties;
-import com.archimatetool.model.IProperty;
 
 
 /**
  * Search Filter
  * 
+ * The objects in a model that match the filter are found once from the model's {@link SearchIndex} when the filter
+ * changes or the model changes, so that selecting an element in the tree is a look up in a set.<p>
+ * 
+ * When the filter changes the matching objects are found in a background Job. Changes to the search text are
+ * delayed by {@link #SEARCH_TEXT_DELAY} so that a burst of key strokes causes only one search, and a new change
+ * cancels any search that is still running. The Job works on copies of the filter settings and of the candidates
+ * in each model's index taken on the UI thread, and the previous results are used until it is done. When the Job
+ * is done the tree is refreshed once and only the folders leading to the matching objects are expanded.
+ * 
  * @author Phillip Beauvoir
  */
 public class SearchFilter extends ViewerFilter {
+
+    /**
+     * Milliseconds to wait for more typing before searching
+     */
+    static final long SEARCH_TEXT_DELAY = 250;
+
     private TreeViewer fViewer;
     private String fSearchText = ""; //$NON-NLS-1$
+    private String fSearchTextLowerCase = ""; //$NON-NLS-1$
     private TreePath[] fExpanded;
 
     private boolean fFilterName;
@@ -44,6 +66,180 @@ public class SearchFilter extends ViewerFilter {
 
     private boolean fShowAllFolders = false;
 
+    /**
+     * Model -> Result of filtering the model with fCriteria
+     */
+    private Map<IArchimateModel, FilterResult> fResults = new HashMap<IArchimateModel, FilterResult>();
+
+    /**
+     * The filter settings of fResults
+     */
+    private FilterCriteria fCriteria = new FilterCriteria();
+
+    /**
+     * Models that we have attached a SearchIndex to
+     */
+    private Set<IArchimateModel> fIndexedModels = new HashSet<IArchimateModel>();
+
+    /**
+     * Incremented whenever the filter changes so that the result of an out of date FilterJob is thrown away
+     */
+    private int fGeneration;
+
+    private FilterJob fFilterJob;
+
+    /**
+     * The objects in a model matching the filter and the objects to show
+     */
+    private static class FilterResult {
+        int modificationCount;
+        Set<Object> matches = new HashSet<Object>();
+        Set<Object> visible = new HashSet<Object>();
+        Set<Object> expanded = new HashSet<Object>();
+    }
+
+    /**
+     * A copy of the filter settings, so that the settings can change while a FilterJob is using them
+     */
+    private static class FilterCriteria {
+        String searchTextLowerCase = ""; //$NON-NLS-1$
+        boolean filterName;
+        boolean filterDocumentation;
+        List<EClass> objectFilter = new ArrayList<EClass>();
+        List<String> propertiesFilter = new ArrayList<String>();
+
+        /**
+         * Query whether element matches filter criteria
+         * @param element The element
+         * @param entry The index entry of element
+         * @return
+         */
+        boolean matches(EObject element, SearchIndex.Entry entry) {
+            // EObject Type filter - do this first as the master filter
+            if(isObjectFiltered(element)) {
+                return false;
+            }
+
+            boolean textSearchResult = false;
+            boolean propertyKeyResult = false;
+
+            // Properties Key filter
+            if(isFilteringPropertyKeys()) {
+                for(int i = 0; i < entry.propertyKeys.length; i++) {
+                    if(propertiesFilter.contains(entry.propertyKeys[i])) {
+                        propertyKeyResult = true;
+                        if(hasSearchText() && entry.propertyValues[i].contains(searchTextLowerCase)) {
+                            textSearchResult = true;
+                        }
+                    }
+                }
+            }
+
+            // If has search Text and no text found yet
+            if(hasSearchText()) {
+                // Name...
+                if(filterName && !textSearchResult && entry.name != null) {
+                    if(entry.name.contains(searchTextLowerCase)) {
+                        textSearchResult = true;
+                    }
+                }
+
+                // Then Documentation
+                if(filterDocumentation && !textSearchResult && entry.documentation != null) {
+                    if(entry.documentation.contains(searchTextLowerCase)) {
+                        textSearchResult = true;
+                    }
+                }
+            }
+
+            if((hasSearchText())) {
+                return textSearchResult;
+            }
+
+            if(isFilteringPropertyKeys()) {
+                return propertyKeyResult;
+            }
+
+            return !isObjectFiltered(element);
+        }
+
+        private boolean isObjectFiltered(EObject element) {
+            return !objectFilter.isEmpty() && !objectFilter.contains(element.eClass());
+        }
+
+        private boolean hasSearchText() {
+            return searchTextLowerCase.length() > 0;
+        }
+
+        private boolean isFilteringPropertyKeys() {
+            return !propertiesFilter.isEmpty();
+        }
+    }
+
+    /**
+     * Job to filter the models in the background
+     */
+    private class FilterJob extends Job {
+        private int generation;
+        private FilterCriteria criteria;
+        private Map<IArchimateModel, SearchIndex.Snapshot> snapshots;
+        private Display display;
+
+        FilterJob(int generation, FilterCriteria criteria) {
+            super("Search Filter"); //$NON-NLS-1$
+            this.generation = generation;
+            this.criteria = criteria;
+            display = Display.getCurrent();
+            setSystem(true);
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            if(monitor.isCanceled() || display.isDisposed()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            // The indexes are changed on the UI thread so copy what we need from them there.
+            // This is done now rather than when the job is scheduled so that it is done once for a burst of key strokes.
+            display.syncExec(new Runnable() {
+                @Override
+                public void run() {
+                    if(generation == fGeneration && !fViewer.getControl().isDisposed()) {
+                        snapshots = getSnapshots(criteria);
+                    }
+                }
+            });
+
+            // The filter changed while we were waiting
+            if(snapshots == null) {
+                return Status.CANCEL_STATUS;
+            }
+
+            final Map<IArchimateModel, FilterResult> results = new HashMap<IArchimateModel, FilterResult>();
+
+            for(Entry<IArchimateModel, SearchIndex.Snapshot> entry : snapshots.entrySet()) {
+                FilterResult result = createResult(entry.getValue(), criteria, monitor);
+                if(result == null) {
+                    return Status.CANCEL_STATUS;
+                }
+                results.put(entry.getKey(), result);
+            }
+
+            if(monitor.isCanceled() || display.isDisposed()) {
+                return Status.CANCEL_STATUS;
+            }
+
+            display.asyncExec(new Runnable() {
+                @Override
+                public void run() {
+                    applyResults(generation, criteria, results);
+                }
+            });
+
+            return Status.OK_STATUS;
+        }
+    }
+
     public SearchFilter(TreeViewer viewer) {
         fViewer = viewer;
     }
@@ -55,28 +251,117 @@ public class SearchFilter extends ViewerFilter {
         }
 
         fSearchText = text;
-        refresh();
+        fSearchTextLowerCase = text.toLowerCase();
+        refresh(SEARCH_TEXT_DELAY);
     }
 
     private void refresh() {
-        Display.getCurrent().asyncExec(new Runnable() {
-            @Override
-            public void run() {
-                fViewer.getTree().setRedraw(false);
+        refresh(0);
+    }
 
-                fViewer.refresh();
+    private void refresh(long delay) {
+        fGeneration++;
+        cancelFilterJob();
 
-                // Something to show
-                if(isFiltering()) {
-                    fViewer.expandAll();
-                }
-                else {
+        // Keep the current results until the job is done
+        if(isFiltering()) {
+            fFilterJob = new FilterJob(fGeneration, getCriteria());
+            fFilterJob.schedule(delay);
+        }
+        else {
+            fResults.clear();
+            fCriteria = getCriteria();
+
+            final int generation = fGeneration;
+
+            Display.getCurrent().asyncExec(new Runnable() {
+                @Override
+                public void run() {
+                    if(generation != fGeneration || fViewer.getControl().isDisposed()) {
+                        return;
+                    }
+
+                    fViewer.getTree().setRedraw(false);
+                    fViewer.refresh();
                     restoreState();
+                    fViewer.getTree().setRedraw(true);
                 }
+            });
+        }
+    }
+
+    /**
+     * Apply the results of a FilterJob and update the tree
+     */
+    private void applyResults(int generation, FilterCriteria criteria, Map<IArchimateModel, FilterResult> results) {
+        // The filter has changed since the job was scheduled
+        if(generation != fGeneration || fViewer.getControl().isDisposed()) {
+            return;
+        }
+
+        fCriteria = criteria;
+        fResults.clear();
+
+        // Use the results unless the model changed while the job was running
+        for(Entry<IArchimateModel, FilterResult> entry : results.entrySet()) {
+            SearchIndex index = SearchIndex.getIndex(entry.getKey());
+            if(index != null && entry.getValue().modificationCount == index.getModificationCount()) {
+                fResults.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        fViewer.getTree().setRedraw(false);
+
+        fViewer.refresh();
+
+        // Expand the folders leading to the matching objects
+        Set<Object> expanded = new HashSet<Object>();
+        for(IArchimateModel model : results.keySet()) {
+            FilterResult result = getResult(model);
+            if(result != null) {
+                expanded.addAll(result.expanded);
+            }
+        }
+        fViewer.setExpandedElements(expanded.toArray());
+
+        fViewer.getTree().setRedraw(true);
+    }
 
-                fViewer.getTree().setRedraw(true);
+    /**
+     * @return A Snapshot of the SearchIndex of each model in the tree for criteria, attaching an index to the model if needed
+     */
+    private Map<IArchimateModel, SearchIndex.Snapshot> getSnapshots(FilterCriteria criteria) {
+        Map<IArchimateModel, SearchIndex.Snapshot> snapshots = new HashMap<IArchimateModel, SearchIndex.Snapshot>();
+
+        // The viewer's content provider may be lazy so get the models from the input
+        if(fViewer.getInput() instanceof IEditorModelManager) {
+            for(IArchimateModel model : ((IEditorModelManager)fViewer.getInput()).getModels()) {
+                snapshots.put(model, SearchIndex.getOrCreateIndex(model).createSnapshot(criteria.searchTextLowerCase));
+                fIndexedModels.add(model);
             }
-        });
+        }
+
+        return snapshots;
+    }
+
+    /**
+     * @return A copy of the filter settings
+     */
+    private FilterCriteria getCriteria() {
+        FilterCriteria criteria = new FilterCriteria();
+        criteria.searchTextLowerCase = fSearchTextLowerCase;
+        criteria.filterName = fFilterName;
+        criteria.filterDocumentation = fFilterDocumentation;
+        criteria.objectFilter.addAll(fObjectFilter);
+        criteria.propertiesFilter.addAll(fPropertiesFilter);
+        return criteria;
+    }
+
+    private void cancelFilterJob() {
+        if(fFilterJob != null) {
+            fFilterJob.cancel();
+            fFilterJob = null;
+        }
     }
 
     public void clear() {
@@ -84,7 +369,19 @@ public class SearchFilter extends ViewerFilter {
             restoreState();
         }
         fSearchText = ""; //$NON-NLS-1$
+        fSearchTextLowerCase = ""; //$NON-NLS-1$
         reset();
+        fResults.clear();
+        fCriteria = getCriteria();
+
+        fGeneration++;
+        cancelFilterJob();
+
+        // Don't keep the search indexes up to date when not searching
+        for(IArchimateModel model : fIndexedModels) {
+            SearchIndex.removeIndex(model);
+        }
+        fIndexedModels.clear();
     }
 
     public void resetFilters() {
@@ -115,27 +412,17 @@ public class SearchFilter extends ViewerFilter {
      * @return
      */
     public boolean isElementVisible(Object parentElement, Object element) {
-        if(element instanceof IFolderContainer) {
-            for(IFolder folder : ((IFolderContainer)element).getFolders()) {
-                if(isElementVisible(parentElement, folder)) {
-                    return true;
-                }
-            }
-        }
-
-        if(element instanceof IFolder) {
-            for(Object o : ((IFolder)element).getElements()) {
-                if(isElementVisible(parentElement, o)) {
-                    return true;
-                }
+        if(fShowAllFolders) {
+            if(element instanceof IFolder) {
+                return true;
             }
-
-            if(fShowAllFolders) {
+            if(element instanceof IArchimateModel && !((IArchimateModel)element).getFolders().isEmpty()) {
                 return true;
             }
         }
-        
-        return matchesFilter(element);
+
+        FilterResult result = getResult(element);
+        return result != null && result.visible.contains(element);
     }
     
     /**
@@ -144,58 +431,66 @@ public class SearchFilter extends ViewerFilter {
      * @return
      */
     public boolean matchesFilter(Object element) {
-        // EObject Type filter - do this first as the master filter
-        if(isObjectFiltered(element)) {
-            return false;
+        FilterResult result = getResult(element);
+        return result != null && result.matches.contains(element);
+    }
+
+    /**
+     * @return The result of filtering the model of element, filtering the model first with the current results'
+     *         filter settings if it hasn't been filtered since the model changed
+     */
+    private FilterResult getResult(Object element) {
+        if(!(element instanceof IArchimateModelElement)) {
+            return null;
         }
 
-        boolean textSearchResult = false;
-        boolean propertyKeyResult = false;
+        IArchimateModel model = ((IArchimateModelElement)element).getArchimateModel();
+        if(model == null) {
+            return null;
+        }
 
-        // Properties Key filter
-        if(isFilteringPropertyKeys() && element instanceof IProperties) {
-            for(IProperty property : ((IProperties)element).getProperties()) {
-                if(fPropertiesFilter.contains(property.getKey())) {
-                    propertyKeyResult = true;
-                    if(hasSearchText() && property.getValue().toLowerCase().contains(fSearchText.toLowerCase())) {
-                        textSearchResult = true;
-                    }
-                }
-            }
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+        fIndexedModels.add(model);
+
+        FilterResult result = fResults.get(model);
+        if(result == null || result.modificationCount != index.getModificationCount()) {
+            result = createResult(index.createSnapshot(fCriteria.searchTextLowerCase), fCriteria, null);
+            fResults.put(model, result);
         }
 
-        // If has search Text and no text found yet
-        if(hasSearchText()) {
-            // Name...
-            if(fFilterName && !textSearchResult && element instanceof INameable) {
-                String name = StringUtils.safeString(((INameable)element).getName());
-                if(name.toLowerCase().contains(fSearchText.toLowerCase())) {
-                    textSearchResult = true;
-                }
-            }
+        return result;
+    }
 
-            // Then Documentation
-            if(fFilterDocumentation && !textSearchResult && element instanceof IDocumentable) {
-                String text = StringUtils.safeString(((IDocumentable)element).getDocumentation());
-                if(text.toLowerCase().contains(fSearchText.toLowerCase())) {
-                    textSearchResult = true;
-                }
+    /**
+     * Filter the objects in a snapshot of an index
+     * @param snapshot The Snapshot of a model's SearchIndex
+     * @param criteria The filter settings
+     * @param monitor Progress monitor used for cancellation, can be null
+     * @return The result, or null if cancelled
+     */
+    private static FilterResult createResult(SearchIndex.Snapshot snapshot, FilterCriteria criteria, IProgressMonitor monitor) {
+        FilterResult result = new FilterResult();
+        result.modificationCount = snapshot.modificationCount;
+
+        for(int i = 0; i < snapshot.objects.size(); i++) {
+            if(monitor != null && (i + 1) % 1000 == 0 && monitor.isCanceled()) {
+                return null;
             }
-        }
 
-        if((hasSearchText())) {
-            return textSearchResult;
-        }
+            EObject object = snapshot.objects.get(i);
 
-        if(isFilteringPropertyKeys()) {
-            return propertyKeyResult;
-        }
+            if(criteria.matches(object, snapshot.entries.get(i))) {
+                result.matches.add(object);
 
-        return !isObjectFiltered(element);
-    }
+                // Show the object and the folders and model that it is in
+                for(EObject o = object; o != null && result.visible.add(o); o = o.eContainer());
 
-    private boolean isObjectFiltered(Object element) {
-        return !fObjectFilter.isEmpty() && !fObjectFilter.contains(((EObject)element).eClass());
+                // Expand the folders and model that it is in
+                for(EObject o = object.eContainer(); o != null && result.expanded.add(o); o = o.eContainer());
+            }
+        }
+
+        return result;
     }
 
     public boolean isFiltering() {
@@ -206,10 +501,6 @@ public class SearchFilter extends ViewerFilter {
         return fSearchText.length() > 0;
     }
 
-    private boolean isFilteringPropertyKeys() {
-        return !fPropertiesFilter.isEmpty();
-    }
-
     public void setFilterOnName(boolean set) {
         if(fFilterName != set) {
             fFilterName = set;
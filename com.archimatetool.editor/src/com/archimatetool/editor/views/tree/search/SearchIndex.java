@@ -0,0 +1,353 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.views.tree.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IDocumentable;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.INameable;
+import com.archimatetool.model.IProperties;
+import com.archimatetool.model.IProperty;
+
+
+/**
+ * Inverted index of the text of the objects shown in the Models Tree that is used by the Search Filter.
+ *
+ * The model, its folders and the objects in its folders each have an entry holding the lower case name, documentation
+ * and property values of the object. Each of these is split into n-grams of {@link #GRAM_SIZE} characters and every n-gram
+ * is mapped to the objects that have it, so the objects that could contain some search text are found by intersecting
+ * the objects of each n-gram of the search text rather than by looking at every object in the model.<p>
+ *
+ * The index is attached to a model when it is first searched and is kept up to date from notifications as objects are
+ * added, removed, renamed and so on. It should be removed when it is no longer needed.
+ *
+ * @author Phillip Beauvoir
+ */
+public class SearchIndex extends EContentAdapter {
+
+    /**
+     * Length of the n-grams. Search text shorter than this is matched against every entry.
+     */
+    static final int GRAM_SIZE = 3;
+
+    /**
+     * The indexed text of an object. Strings are lower case.
+     * An entry is not changed once it is in the index, it is replaced by a new entry when its object changes.
+     */
+    static class Entry {
+        String name;
+        String documentation;
+        String[] propertyKeys;
+        String[] propertyValues;
+        Set<String> grams;
+    }
+
+    /**
+     * A copy of the candidates for some search text and their entries.
+     * This doesn't change when the index changes so it can be read by another thread.
+     */
+    static class Snapshot {
+        int modificationCount;
+        List<EObject> objects;
+        List<Entry> entries;
+    }
+
+    /**
+     * @param model The Archimate model
+     * @return The SearchIndex attached to the model, or null if there isn't one
+     */
+    public static SearchIndex getIndex(IArchimateModel model) {
+        return model == null ? null : (SearchIndex)EcoreUtil.getExistingAdapter(model, SearchIndex.class);
+    }
+
+    /**
+     * @param model The Archimate model
+     * @return The SearchIndex attached to the model, attaching a new one first if there isn't one
+     */
+    public static SearchIndex getOrCreateIndex(IArchimateModel model) {
+        SearchIndex index = getIndex(model);
+        if(index == null) {
+            index = new SearchIndex();
+            model.eAdapters().add(index);
+        }
+        return index;
+    }
+
+    /**
+     * Remove the SearchIndex from the model if there is one
+     * @param model The Archimate model
+     */
+    public static void removeIndex(IArchimateModel model) {
+        SearchIndex index = getIndex(model);
+        if(index != null) {
+            model.eAdapters().remove(index);
+        }
+    }
+
+    /**
+     * Object -> Entry
+     */
+    private Map<EObject, Entry> fEntries = new HashMap<EObject, Entry>();
+
+    /**
+     * N-gram -> Objects that have the n-gram in their name, documentation or a property value
+     */
+    private Map<String, Set<EObject>> fPostings = new HashMap<String, Set<EObject>>();
+
+    /**
+     * Incremented whenever an entry changes
+     */
+    private int fModificationCount;
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == SearchIndex.class;
+    }
+
+    @Override
+    public void setTarget(Notifier target) {
+        super.setTarget(target);
+
+        if(isIndexed(target)) {
+            updateEntry((EObject)target);
+        }
+    }
+
+    @Override
+    public void unsetTarget(Notifier target) {
+        super.unsetTarget(target);
+
+        if(target instanceof EObject) {
+            removeEntry((EObject)target);
+        }
+    }
+
+    @Override
+    public void notifyChanged(Notification msg) {
+        super.notifyChanged(msg);
+
+        if(msg.isTouch()) {
+            return;
+        }
+
+        Object feature = msg.getFeature();
+
+        // Property key or value of an object
+        if(feature == IArchimatePackage.Literals.PROPERTY__KEY || feature == IArchimatePackage.Literals.PROPERTY__VALUE) {
+            EObject owner = ((IProperty)msg.getNotifier()).eContainer();
+            if(fEntries.containsKey(owner)) {
+                updateEntry(owner);
+            }
+        }
+        // Name, documentation or properties of an object
+        else if(feature == IArchimatePackage.Literals.NAMEABLE__NAME || feature == IArchimatePackage.Literals.DOCUMENTABLE__DOCUMENTATION
+                || feature == IArchimatePackage.Literals.PROPERTIES__PROPERTIES) {
+            Object notifier = msg.getNotifier();
+            if(fEntries.containsKey(notifier)) {
+                updateEntry((EObject)notifier);
+            }
+        }
+    }
+
+    /**
+     * @return A number that changes whenever the index changes
+     */
+    public int getModificationCount() {
+        return fModificationCount;
+    }
+
+    /**
+     * @return The objects that are indexed
+     */
+    public Set<EObject> getObjects() {
+        return Collections.unmodifiableSet(fEntries.keySet());
+    }
+
+    /**
+     * @param text Lower case search text
+     * @return The objects that might have text in their name, documentation or a property value. These have to be checked
+     *         with their entry. If text is shorter than {@link #GRAM_SIZE} all objects are returned.
+     */
+    public Collection<EObject> getCandidates(String text) {
+        if(text.length() < GRAM_SIZE) {
+            return getObjects();
+        }
+
+        // The objects of each n-gram, smallest first
+        List<Set<EObject>> sets = new ArrayList<Set<EObject>>();
+        for(String gram : getGrams(text)) {
+            Set<EObject> set = fPostings.get(gram);
+            if(set == null) {
+                return Collections.emptyList();
+            }
+            sets.add(set);
+        }
+
+        Collections.sort(sets, new Comparator<Set<EObject>>() {
+            @Override
+            public int compare(Set<EObject> s1, Set<EObject> s2) {
+                return s1.size() - s2.size();
+            }
+        });
+
+        List<EObject> candidates = new ArrayList<EObject>();
+
+        for(EObject object : sets.get(0)) {
+            boolean inAll = true;
+            for(int i = 1; i < sets.size() && inAll; i++) {
+                inAll = sets.get(i).contains(object);
+            }
+            if(inAll) {
+                candidates.add(object);
+            }
+        }
+
+        return candidates;
+    }
+
+    /**
+     * @param text Lower case search text
+     * @return A Snapshot of the candidates for text as given by {@link #getCandidates(String)}
+     */
+    Snapshot createSnapshot(String text) {
+        Collection<EObject> candidates = getCandidates(text);
+
+        Snapshot snapshot = new Snapshot();
+        snapshot.modificationCount = fModificationCount;
+        snapshot.objects = new ArrayList<EObject>(candidates);
+        snapshot.entries = new ArrayList<Entry>(candidates.size());
+        for(EObject object : snapshot.objects) {
+            snapshot.entries.add(fEntries.get(object));
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * @param object The object
+     * @return The entry for object, or null if it is not indexed
+     */
+    Entry getEntry(EObject object) {
+        return fEntries.get(object);
+    }
+
+    /**
+     * @return true if target is shown in the Models Tree. These are the model, folders and the objects in folders.
+     */
+    private boolean isIndexed(Notifier target) {
+        return target instanceof IArchimateModel || target instanceof IFolder
+                || (target instanceof EObject && ((EObject)target).eContainer() instanceof IFolder);
+    }
+
+    private void updateEntry(EObject object) {
+        Entry entry = new Entry();
+
+        if(object instanceof INameable) {
+            entry.name = StringUtils.safeString(((INameable)object).getName()).toLowerCase();
+        }
+
+        if(object instanceof IDocumentable) {
+            entry.documentation = StringUtils.safeString(((IDocumentable)object).getDocumentation()).toLowerCase();
+        }
+
+        if(object instanceof IProperties) {
+            List<IProperty> properties = ((IProperties)object).getProperties();
+            entry.propertyKeys = new String[properties.size()];
+            entry.propertyValues = new String[properties.size()];
+            for(int i = 0; i < properties.size(); i++) {
+                IProperty property = properties.get(i);
+                entry.propertyKeys[i] = property.getKey();
+                entry.propertyValues[i] = StringUtils.safeString(property.getValue()).toLowerCase();
+            }
+        }
+        else {
+            entry.propertyKeys = new String[0];
+            entry.propertyValues = new String[0];
+        }
+
+        entry.grams = new HashSet<String>();
+        addGrams(entry.name, entry.grams);
+        addGrams(entry.documentation, entry.grams);
+        for(String value : entry.propertyValues) {
+            addGrams(value, entry.grams);
+        }
+
+        Entry oldEntry = fEntries.put(object, entry);
+        Set<String> oldGrams = oldEntry == null ? Collections.<String>emptySet() : oldEntry.grams;
+
+        // Only change the postings of the n-grams that were added or removed
+        for(String gram : oldGrams) {
+            if(!entry.grams.contains(gram)) {
+                removePosting(gram, object);
+            }
+        }
+
+        for(String gram : entry.grams) {
+            if(!oldGrams.contains(gram)) {
+                Set<EObject> set = fPostings.get(gram);
+                if(set == null) {
+                    set = new HashSet<EObject>();
+                    fPostings.put(gram, set);
+                }
+                set.add(object);
+            }
+        }
+
+        fModificationCount++;
+    }
+
+    private void removeEntry(EObject object) {
+        Entry entry = fEntries.remove(object);
+        if(entry != null) {
+            for(String gram : entry.grams) {
+                removePosting(gram, object);
+            }
+            fModificationCount++;
+        }
+    }
+
+    private void removePosting(String gram, EObject object) {
+        Set<EObject> set = fPostings.get(gram);
+        if(set != null) {
+            set.remove(object);
+            if(set.isEmpty()) {
+                fPostings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<String> getGrams(String text) {
+        Set<String> grams = new HashSet<String>();
+        addGrams(text, grams);
+        return grams;
+    }
+
+    private static void addGrams(String text, Set<String> grams) {
+        if(text != null) {
+            for(int i = 0; i + GRAM_SIZE <= text.length(); i++) {
+                grams.add(text.substring(i, i + GRAM_SIZE));
+            }
+        }
+    }
+}
@@ -6,11 +6,9 @@
 package com.archimatetool.editor.views.tree.search;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import org.eclipse.emf.ecore.EClass;
-import org.eclipse.emf.ecore.EObject;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.MenuManager;
@@ -35,8 +33,8 @@ import com.archimatetool.editor.ui.components.CellEditorGlobalActionHandler;
 import com.archimatetool.editor.utils.PlatformUtils;
 import com.archimatetool.editor.utils.StringUtils;
 import com.archimatetool.model.IArchimateModel;
-import com.archimatetool.model.IProperty;
 import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.model.util.PropertyKeysAdapter;
 
 
 
@@ -301,13 +299,9 @@ public class SearchWidget extends Composite {
 	}
 
     private void getAllUniquePropertyKeysForModel(IArchimateModel model, List<String> list) {
-        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
-            EObject element = iter.next();
-            if(element instanceof IProperty) {
-            	String key = ((IProperty)element).getKey();
-            	if(StringUtils.isSetAfterTrim(key) && !list.contains(key)) {
-            		list.add(key);
-            	}
+        for(String key : PropertyKeysAdapter.getAdapter(model).getKeys()) {
+            if(StringUtils.isSetAfterTrim(key) && !list.contains(key)) {
+                list.add(key);
             }
         }
     }
@@ -41,7 +41,10 @@ import com.archimatetool.model.IProperties;
 import com.archimatetool.model.IProperty;
 import com.archimatetool.model.IRelationship;
 import com.archimatetool.model.ITechnologyLayerElement;
+import com.archimatetool.model.util.DiagramReferencesAdapter;
 import com.archimatetool.model.util.IDAdapter;
+import com.archimatetool.model.util.PropertyKeysAdapter;
+import com.archimatetool.model.util.RelationshipsAdapter;
 
 
 /**
@@ -184,6 +187,21 @@ public class ArchimateModel extends EObjectImpl implements IArchimateModel {
      * ID Adapter
      */
     private IDAdapter fIDAdapter = new IDAdapter();
+    
+    /**
+     * Relationships Adapter
+     */
+    private RelationshipsAdapter fRelationshipsAdapter = new RelationshipsAdapter();
+    
+    /**
+     * Diagram References Adapter
+     */
+    private DiagramReferencesAdapter fDiagramReferencesAdapter = new DiagramReferencesAdapter();
+    
+    /**
+     * Property Keys Adapter
+     */
+    private PropertyKeysAdapter fPropertyKeysAdapter = new PropertyKeysAdapter();
 
 
     /**
@@ -194,6 +212,9 @@ public class ArchimateModel extends EObjectImpl implements IArchimateModel {
     protected ArchimateModel() {
         super();
         eAdapters().add(fIDAdapter);
+        eAdapters().add(fRelationshipsAdapter);
+        eAdapters().add(fDiagramReferencesAdapter);
+        eAdapters().add(fPropertyKeysAdapter);
     }
     
     /**
@@ -5,8 +5,10 @@
  */
 package com.archimatetool.model.impl;
 
+import org.eclipse.emf.common.notify.Notification;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.impl.ENotificationImpl;
 
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimatePackage;
@@ -111,6 +113,13 @@ public class DiagramModelArchimateConnection extends DiagramModelConnection impl
         
         return fRelationship;
     }
+    
+    /**
+     * @return The relationship without logging an error if it is not set yet, as when the connection is being loaded
+     */
+    public IRelationship basicGetRelationship() {
+        return fRelationship;
+    }
 
     /**
      * <!-- begin-user-doc -->
@@ -122,7 +131,12 @@ public class DiagramModelArchimateConnection extends DiagramModelConnection impl
             Logger.logError("setRelationship() setting null", new Throwable()); //$NON-NLS-1$
         }
         
+        IRelationship oldRelationship = fRelationship;
         fRelationship = relationship;
+        if(eNotificationRequired()) {
+            eNotify(new ENotificationImpl(this, Notification.SET, IArchimatePackage.DIAGRAM_MODEL_ARCHIMATE_CONNECTION__RELATIONSHIP,
+                    oldRelationship, fRelationship));
+        }
     }
 
     /**
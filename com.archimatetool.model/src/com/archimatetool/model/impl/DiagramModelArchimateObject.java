@@ -135,6 +135,13 @@ public class DiagramModelArchimateObject extends DiagramModelObject implements I
         
         return fArchimateElement;
     }
+    
+    /**
+     * @return The Archimate element without logging an error if it is not set yet, as when the object is being loaded
+     */
+    public IArchimateElement basicGetArchimateElement() {
+        return fArchimateElement;
+    }
 
     /**
      * <!-- begin-user-doc -->
@@ -146,7 +153,12 @@ public class DiagramModelArchimateObject extends DiagramModelObject implements I
             Logger.logError("setArchimateElement() setting null", new Throwable()); //$NON-NLS-1$
         }
 
+        IArchimateElement oldArchimateElement = fArchimateElement;
         fArchimateElement = archimateElement;
+        if(eNotificationRequired()) {
+            eNotify(new ENotificationImpl(this, Notification.SET, IArchimatePackage.DIAGRAM_MODEL_ARCHIMATE_OBJECT__ARCHIMATE_ELEMENT,
+                    oldArchimateElement, fArchimateElement));
+        }
     }
 
     /**
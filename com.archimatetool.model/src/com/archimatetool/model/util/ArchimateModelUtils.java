@@ -12,11 +12,9 @@ import java.util.List;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
 
-import com.archimatetool.model.FolderType;
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
-import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IIdentifier;
 import com.archimatetool.model.IRelationship;
 
@@ -122,42 +120,27 @@ public class ArchimateModelUtils {
     private static List<IRelationship> __getRelationships(IArchimateElement element, int type) {
         List<IRelationship> relationships = new ArrayList<IRelationship>();
         
-        if(element.getArchimateModel() != null) { // An important guard because the element might have been deleted
-            IFolder folder = element.getArchimateModel().getFolder(FolderType.RELATIONS);
-            __getRelationshipsForElement(folder, element, type, relationships);
+        if(element != null && element.getArchimateModel() != null) { // An important guard because the element might have been deleted
+            RelationshipsAdapter adapter = RelationshipsAdapter.getAdapter(element.getArchimateModel());
+            if(adapter == null) {
+                return relationships;
+            }
             
-            folder = element.getArchimateModel().getFolder(FolderType.DERIVED);
-            __getRelationshipsForElement(folder, element, type, relationships);
-        }
-        
-        return relationships;
-    }
-    
-    private static void __getRelationshipsForElement(IFolder folder, IArchimateElement element, int type, List<IRelationship> relationships) {
-        if(folder == null || element == null) {
-            return;
-        }
-        
-        for(EObject object : folder.getElements()) {
-            if(object instanceof IRelationship) {
-                IRelationship relationship = (IRelationship)object;
-                if((type & SOURCE_RELATIONSHIPS) != 0) {
-                    if(relationship.getSource() == element && !relationships.contains(relationship)) {
-                        relationships.add(relationship);
-                    }
-                }
-                if((type & TARGET_RELATIONSHIPS) != 0) {
-                    if(relationship.getTarget() == element && !relationships.contains(relationship)) {
+            if((type & SOURCE_RELATIONSHIPS) != 0) {
+                relationships.addAll(adapter.getSourceRelationships(element));
+            }
+            
+            if((type & TARGET_RELATIONSHIPS) != 0) {
+                for(IRelationship relationship : adapter.getTargetRelationships(element)) {
+                    // A relationship from the element to itself has already been added as a source
+                    if(relationship.getSource() != element || (type & SOURCE_RELATIONSHIPS) == 0) {
                         relationships.add(relationship);
                     }
                 }
             }
         }
         
-        // Child folders
-        for(IFolder f : folder.getFolders()) {
-            __getRelationshipsForElement(f, element, type, relationships);
-        }
+        return relationships;
     }
     
     /**
@@ -175,7 +158,12 @@ public class ArchimateModelUtils {
             return model;
         }
         
-        // This is an expensive iteration!
+        IDAdapter adapter = IDAdapter.getAdapter(model);
+        if(adapter != null) {
+            return adapter.getObject(id);
+        }
+        
+        // Fallback if there is no IDAdapter - this is an expensive iteration!
         for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
             EObject element = iter.next();
             if(element instanceof IIdentifier && id.equals(((IIdentifier)element).getId())) {
@@ -6,9 +6,14 @@
 package com.archimatetool.model.util;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EPackage;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
@@ -16,7 +21,9 @@ import org.eclipse.emf.ecore.resource.impl.ResourceFactoryImpl;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.BasicExtendedMetaData;
 import org.eclipse.emf.ecore.util.ExtendedMetaData;
+import org.eclipse.emf.ecore.xmi.XMLParserPool;
 import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.eclipse.emf.ecore.xmi.impl.XMLParserPoolImpl;
 
 import com.archimatetool.model.IArchimatePackage;
 
@@ -30,6 +37,17 @@ import com.archimatetool.model.IArchimatePackage;
  */
 public class ArchimateResourceFactory extends ResourceFactoryImpl {
     
+    /**
+     * Pool of SAX parsers shared by all resources so that a parser is not created for each load
+     */
+    private static final XMLParserPool PARSER_POOL = new XMLParserPoolImpl();
+    
+    /**
+     * Cache of XML names to features shared by all resources so that features are not looked up by name for each load.
+     * Models can be loaded on more than one thread at a time so access is synchronized.
+     */
+    private static final Map<Object, Object> NAME_TO_FEATURE_MAP = Collections.synchronizedMap(new HashMap<Object, Object>());
+    
     /**
      * Creates an instance of the resource factory.
      * <!-- begin-user-doc -->
@@ -70,7 +88,7 @@ public class ArchimateResourceFactory extends ResourceFactoryImpl {
      */
     @Override
     public Resource createResource(URI uri) {
-        XMLResource result = new ArchimateResource(uri);
+        ArchimateResource result = new ArchimateResource(uri);
         
         // Ensure we have ExtendedMetaData for both Saving and Loading
         ExtendedMetaData ext = new BasicExtendedMetaData() {
@@ -92,6 +110,21 @@ public class ArchimateResourceFactory extends ResourceFactoryImpl {
         result.getDefaultSaveOptions().put(XMLResource.OPTION_ENCODING, "UTF-8"); //$NON-NLS-1$
         result.getDefaultLoadOptions().put(XMLResource.OPTION_ENCODING, "UTF-8"); //$NON-NLS-1$
         
+        // Performance options for loading large models
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_USE_PARSER_POOL, PARSER_POOL);
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, NAME_TO_FEATURE_MAP);
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.FALSE);
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_DEFER_ATTACHMENT, Boolean.TRUE);
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.TRUE);
+        result.getDefaultLoadOptions().put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+        
+        // Performance options for saving. The lookup table is only used by this resource.
+        result.getDefaultSaveOptions().put(XMLResource.OPTION_USE_CACHED_LOOKUP_TABLE, new ArrayList<Object>());
+        result.getDefaultSaveOptions().put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.TRUE);
+        
+        // Look up objects by ID with a map rather than by iterating the whole model when resolving references
+        result.setIntrinsicIDToEObjectMap(new HashMap<String, EObject>());
+        
         // Not sure about this
         // result.getDefaultSaveOptions().put(XMLResource.OPTION_SCHEMA_LOCATION, Boolean.TRUE);
 
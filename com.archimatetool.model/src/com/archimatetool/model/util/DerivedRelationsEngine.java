@@ -0,0 +1,303 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IRelationship;
+
+
+
+/**
+ * Finds the chains of structural relationships from a source element to a target element.
+ *
+ * An engine is created for each search and holds all of its own state so that searches are re-entrant and can be run
+ * from any thread while the model is not being changed. The search is an iterative depth first search using an explicit
+ * stack over the relationships index of the model, so it doesn't run out of stack on deep chains.<p>
+ *
+ * Before searching, the weakest strength of relationship that can be reached on the way from each element to the target
+ * element is computed and memoized. Elements that can't reach the target at all are never entered. If only the weakest
+ * relationship is wanted the search can stop as soon as a chain is found with the weakest strength that is possible.
+ * The search can be cancelled with the progress monitor and stops after {@link #MAX_CHAINS} chains, returning the chains
+ * found so far. {@link #isComplete()} tells the caller if that happened and {@link #isCancelled()} tells which one.
+ *
+ * @author Phillip Beauvoir
+ */
+public class DerivedRelationsEngine {
+
+    /**
+     * Maximum number of chains to collect
+     */
+    public static final int MAX_CHAINS = 1000;
+
+    /**
+     * How often to check the progress monitor for cancellation
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private IArchimateElement fSourceElement;
+    private IArchimateElement fTargetElement;
+    private IProgressMonitor fMonitor;
+    private boolean fStopAtWeakest;
+
+    private RelationshipsAdapter fRelationshipsAdapter;
+
+    /**
+     * Element -> The weakest strength of relationship in any path from the element to the target element.
+     * Elements that can't reach the target element are not in the map.
+     */
+    private Map<IArchimateElement, Integer> fWeakestReachable;
+
+    private List<List<IRelationship>> fChains;
+    private int fWeakestFound;
+    private boolean fComplete;
+    private boolean fCancelled;
+
+    /**
+     * A step in the depth first search
+     */
+    private static class Frame {
+        List<IRelationship> sourceRelations;
+        List<IRelationship> targetRelations;
+        int index;
+
+        Frame(List<IRelationship> sourceRelations, List<IRelationship> targetRelations) {
+            this.sourceRelations = sourceRelations;
+            this.targetRelations = targetRelations;
+        }
+    }
+
+    /**
+     * @param sourceElement The element to start from
+     * @param targetElement The element to arrive at
+     * @param monitor Progress monitor used for cancellation, can be null
+     */
+    public DerivedRelationsEngine(IArchimateElement sourceElement, IArchimateElement targetElement, IProgressMonitor monitor) {
+        this(sourceElement, targetElement, monitor, false);
+    }
+
+    /**
+     * @param sourceElement The element to start from
+     * @param targetElement The element to arrive at
+     * @param monitor Progress monitor used for cancellation, can be null
+     * @param stopAtWeakest If true stop when a chain with the weakest strength possible is found. Use this when only the
+     *                      weakest relationship is wanted and not all of the chains.
+     */
+    public DerivedRelationsEngine(IArchimateElement sourceElement, IArchimateElement targetElement, IProgressMonitor monitor, boolean stopAtWeakest) {
+        fSourceElement = sourceElement;
+        fTargetElement = targetElement;
+        fMonitor = monitor == null ? new NullProgressMonitor() : monitor;
+        fStopAtWeakest = stopAtWeakest;
+
+        if(sourceElement != null && sourceElement.getArchimateModel() != null) { // The element might have been deleted
+            fRelationshipsAdapter = RelationshipsAdapter.getAdapter(sourceElement.getArchimateModel());
+        }
+    }
+
+    /**
+     * Find all the chains of two or more structural relationships from the source element to the target element
+     * @return The list of chains, never null. Each chain is a list of relationships.
+     */
+    public List<List<IRelationship>> findChains() {
+        if(fChains == null) {
+            fChains = new ArrayList<List<IRelationship>>();
+            fWeakestFound = DerivedRelationsUtils.weaklist.size();
+            fComplete = true;
+
+            if(fRelationshipsAdapter != null && fTargetElement != null && fTargetElement.getArchimateModel() == fSourceElement.getArchimateModel()) {
+                computeWeakestReachable();
+                if(fWeakestReachable.containsKey(fSourceElement)) {
+                    traverse();
+                }
+            }
+        }
+
+        return fChains;
+    }
+
+    /**
+     * @return false if the search was cancelled or stopped at {@link #MAX_CHAINS} so that not all chains were found
+     */
+    public boolean isComplete() {
+        findChains();
+        return fComplete;
+    }
+
+    /**
+     * @return true if the search was cancelled with the progress monitor
+     */
+    public boolean isCancelled() {
+        findChains();
+        return fCancelled;
+    }
+
+    /**
+     * Compute the weakest strength of relationship reachable on the way from each element to the target element by
+     * walking backwards from the target element. The strength of an element can only go down and there are only as many
+     * strengths as relationship types, so each element is re-visited only a few times.
+     */
+    private void computeWeakestReachable() {
+        fWeakestReachable = new HashMap<IArchimateElement, Integer>();
+
+        Deque<IArchimateElement> queue = new ArrayDeque<IArchimateElement>();
+        fWeakestReachable.put(fTargetElement, DerivedRelationsUtils.weaklist.size());
+        queue.add(fTargetElement);
+
+        while(!queue.isEmpty()) {
+            IArchimateElement element = queue.poll();
+            int weakest = fWeakestReachable.get(element);
+
+            // Elements with a structural relationship to this element
+            for(IRelationship relation : fRelationshipsAdapter.getTargetRelationships(element)) {
+                if(DerivedRelationsUtils.isStructuralRelationship(relation)) {
+                    updateWeakestReachable(relation.getSource(), relation, weakest, queue);
+                }
+            }
+
+            // Elements with a bi-directional relationship from this element
+            for(IRelationship relation : fRelationshipsAdapter.getSourceRelationships(element)) {
+                if(DerivedRelationsUtils.isBidirectionalRelationship(relation)) {
+                    updateWeakestReachable(relation.getTarget(), relation, weakest, queue);
+                }
+            }
+        }
+    }
+
+    private void updateWeakestReachable(IArchimateElement element, IRelationship relation, int weakest, Deque<IArchimateElement> queue) {
+        // Don't go back through the target element
+        if(element == null || element == fTargetElement) {
+            return;
+        }
+
+        int strength = Math.min(weakest, getStrength(relation));
+        Integer current = fWeakestReachable.get(element);
+        if(current == null || strength < current) {
+            fWeakestReachable.put(element, strength);
+            queue.add(element);
+        }
+    }
+
+    private void traverse() {
+        // The weakest strength possible for any chain. If the source is the target we don't know this.
+        int weakestPossible = fSourceElement == fTargetElement ? 0 : fWeakestReachable.get(fSourceElement);
+
+        List<IRelationship> chain = new ArrayList<IRelationship>();
+        Set<IRelationship> chainSet = Collections.newSetFromMap(new IdentityHashMap<IRelationship, Boolean>());
+
+        Deque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(createFrame(fSourceElement));
+
+        int steps = 0;
+
+        while(!stack.isEmpty()) {
+            // Cancelled
+            if(++steps % CANCEL_CHECK_INTERVAL == 0 && fMonitor.isCanceled()) {
+                fComplete = false;
+                fCancelled = true;
+                return;
+            }
+
+            Frame frame = stack.peek();
+
+            int sourceSize = frame.sourceRelations.size();
+
+            // Finished with this element so back up
+            if(frame.index >= sourceSize + frame.targetRelations.size()) {
+                stack.pop();
+                if(!chain.isEmpty()) {
+                    chainSet.remove(chain.remove(chain.size() - 1));
+                }
+                continue;
+            }
+
+            // Source relationships first, then the bi-directional target relationships
+            IRelationship relation;
+            IArchimateElement next;
+
+            int index = frame.index++;
+            if(index < sourceSize) {
+                relation = frame.sourceRelations.get(index);
+                if(!DerivedRelationsUtils.isStructuralRelationship(relation)) {
+                    continue;
+                }
+                next = relation.getTarget();
+            }
+            else {
+                relation = frame.targetRelations.get(index - sourceSize);
+                if(!DerivedRelationsUtils.isBidirectionalRelationship(relation)) {
+                    continue;
+                }
+                next = relation.getSource();
+            }
+
+            // Reached the same relationship (this guards against a loop)
+            if(chainSet.contains(relation)) {
+                continue;
+            }
+
+            // Arrived at target
+            if(next == fTargetElement) {
+                // Only chains of length 2 or greater
+                if(!chain.isEmpty()) {
+                    List<IRelationship> newChain = new ArrayList<IRelationship>(chain.size() + 1);
+                    newChain.addAll(chain);
+                    newChain.add(relation);
+                    fChains.add(newChain);
+
+                    fWeakestFound = Math.min(fWeakestFound, getWeakestStrength(newChain));
+
+                    // We found the weakest possible so no point going on
+                    if(fStopAtWeakest && fWeakestFound <= weakestPossible) {
+                        return;
+                    }
+
+                    // Too many
+                    if(fChains.size() >= MAX_CHAINS) {
+                        fComplete = false;
+                        return;
+                    }
+                }
+            }
+            // Move onto next element in chain if it can reach the target
+            else if(fWeakestReachable.containsKey(next)) {
+                chain.add(relation);
+                chainSet.add(relation);
+                stack.push(createFrame(next));
+            }
+        }
+    }
+
+    private Frame createFrame(IArchimateElement element) {
+        return new Frame(fRelationshipsAdapter.getSourceRelationships(element), fRelationshipsAdapter.getTargetRelationships(element));
+    }
+
+    private int getWeakestStrength(List<IRelationship> chain) {
+        int weakest = DerivedRelationsUtils.weaklist.size() - 1;
+        for(IRelationship relation : chain) {
+            weakest = Math.min(weakest, getStrength(relation));
+        }
+        return weakest;
+    }
+
+    /**
+     * @return The strength of a structural relationship as an index into DerivedRelationsUtils.weaklist
+     */
+    private int getStrength(IRelationship relation) {
+        return DerivedRelationsUtils.weaklist.indexOf(relation.eClass());
+    }
+}
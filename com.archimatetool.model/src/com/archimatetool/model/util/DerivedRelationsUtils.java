@@ -8,6 +8,7 @@ package com.archimatetool.model.util;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.emf.ecore.EClass;
 
 import com.archimatetool.model.IAccessRelationship;
@@ -33,6 +34,10 @@ import com.archimatetool.model.IUsedByRelationship;
  */
 public class DerivedRelationsUtils {
     
+    /**
+     * Thrown when not all of the chains needed were found because the search was cancelled or, when the weakest relationship
+     * is wanted, stopped at {@link DerivedRelationsEngine#MAX_CHAINS}
+     */
     public static class TooComplicatedException extends Exception {
 
     }
@@ -54,6 +59,20 @@ public class DerivedRelationsUtils {
      * @return true if relation is in a derived chain of relationships
      */
     public static boolean isInDerivedChain(IRelationship relation) {
+        // Use the model's cached result
+        RelationshipsAdapter adapter = RelationshipsAdapter.getAdapter(relation.getArchimateModel());
+        if(adapter != null) {
+            return adapter.isInDerivedChain(relation);
+        }
+        
+        return calculateIsInDerivedChain(relation);
+    }
+    
+    /**
+     * @param relation
+     * @return true if relation is in a derived chain of relationships, without using the cached result
+     */
+    static boolean calculateIsInDerivedChain(IRelationship relation) {
         if(!isStructuralRelationship(relation)) {
             return false;
         }
@@ -156,14 +175,42 @@ public class DerivedRelationsUtils {
      * @throws TooComplicatedException 
      */
     public static List<List<IRelationship>> getDerivedRelationshipChains(IArchimateElement element1, IArchimateElement element2) throws TooComplicatedException {
+        return getDerivedRelationshipChains(element1, element2, null);
+    }
+    
+    /**
+     * @param element1
+     * @param element2
+     * @param monitor Progress monitor used for cancellation, can be null
+     * @return The list of chains found, or null. If there were more than {@link DerivedRelationsEngine#MAX_CHAINS} chains
+     *         these are the valid chains of the first ones found. Use a {@link DerivedRelationsEngine} and
+     *         {@link #getValidChains(IArchimateElement, IArchimateElement, List)} to know if that happened.
+     * @throws TooComplicatedException if the search was cancelled
+     */
+    public static List<List<IRelationship>> getDerivedRelationshipChains(IArchimateElement element1, IArchimateElement element2, IProgressMonitor monitor) throws TooComplicatedException {
         if(element1 == null || element2 == null) {
             return null;
         }
         
         // Traverse from element1 to element2
-        List<List<IRelationship>> chains = findChains(element1, element2);
+        DerivedRelationsEngine engine = new DerivedRelationsEngine(element1, element2, monitor);
+        List<List<IRelationship>> chains = engine.findChains();
         
-        if(chains.isEmpty()) {
+        if(engine.isCancelled()) {
+            throw new TooComplicatedException();
+        }
+        
+        return getValidChains(element1, element2, chains);
+    }
+    
+    /**
+     * @param element1
+     * @param element2
+     * @param chains The chains found from element1 to element2
+     * @return The chains whose weakest relationship is a valid relationship from element1 to element2, or null if there are none
+     */
+    public static List<List<IRelationship>> getValidChains(IArchimateElement element1, IArchimateElement element2, List<List<IRelationship>> chains) {
+        if(chains == null || chains.isEmpty()) {
             return null;
         }
         
@@ -190,7 +237,7 @@ public class DerivedRelationsUtils {
      * @param element1
      * @param element2
      * @return the derived relationship or null
-     * @throws TooComplicatedException 
+     * @throws TooComplicatedException if there were too many chains to find the weakest relationship
      */
     public static IRelationship createDerivedRelationship(IArchimateElement element1, IArchimateElement element2) throws TooComplicatedException {
         if(element1 == null || element2 == null) {
@@ -201,8 +248,13 @@ public class DerivedRelationsUtils {
         //System.out.println("Starting hunt from " + element1.getName() + " --> " + element2.getName());
         //System.out.println("-----------------------------------");
         
-        // Traverse from element1 to element2
-        List<List<IRelationship>> chains = findChains(element1, element2);
+        // Traverse from element1 to element2. Only the weakest relationship is wanted.
+        // If the search stops at the maximum number of chains the weakest one might not have been found.
+        DerivedRelationsEngine engine = new DerivedRelationsEngine(element1, element2, null, true);
+        List<List<IRelationship>> chains = engine.findChains();
+        if(!engine.isComplete()) {
+            throw new TooComplicatedException();
+        }
         
         if(chains.isEmpty()) {
             return null;
@@ -253,158 +305,6 @@ public class DerivedRelationsUtils {
     }
     
    
-    // =================================================================================== 
-    // TRAVERSE PATHS
-    // ===================================================================================
-    
-    // Too complicated
-    private static final int ITERATION_LIMIT = 20000;
-    
-    private static IArchimateElement finalTarget;
-    private static List<IRelationship> temp_chain;
-    private static List<List<IRelationship>> chains;
-    private static int weakestFound;
-    private static int iterations;
-    
-    /**
-     * @param sourceElement
-     * @param targetElement
-     * @return Find all the chains between element and finalTarget
-     * @throws TooComplicatedException 
-     */
-    private static List<List<IRelationship>> findChains(IArchimateElement sourceElement, IArchimateElement targetElement) throws TooComplicatedException {
-        finalTarget = targetElement;
-        temp_chain = new ArrayList<IRelationship>();
-        chains = new ArrayList<List<IRelationship>>();
-        weakestFound = weaklist.size();
-        iterations = 0;
-        
-        // Easy win check
-        if(!_hasTargetElementValidRelations(targetElement)) {
-            return chains;
-        }
-        
-        _traverse(sourceElement);
-        
-        return chains;
-    }
-    
-    private static void _traverse(IArchimateElement element) throws TooComplicatedException {
-        // We found the lowest weakest so no point going on
-        if(weakestFound == 0) {
-            return;
-        }
-        
-        // Too deep
-        if(++iterations > ITERATION_LIMIT) {
-            throw new TooComplicatedException();
-        }
-        
-        //System.out.println("TRAVERSING FROM: " + element.getName());
-        
-        /*
-         * Traverse thru source relationships first
-         */
-        for(IRelationship rel : ArchimateModelUtils.getSourceRelationships(element)) {
-            if(isStructuralRelationship(rel)) {
-                _addRelationshipToTempChain(rel, true);
-            }
-        }
-        
-        /*
-         * Then thru the Bi-directional target relationships
-         */
-        for(IRelationship rel : ArchimateModelUtils.getTargetRelationships(element)) {
-            if(isBidirectionalRelationship(rel)) {
-                _addRelationshipToTempChain(rel, false);
-            }
-        }
-    }
-
-    private static void _addRelationshipToTempChain(IRelationship relation, boolean forwards) throws TooComplicatedException {
-        // Reached the same relationship so go back one (this guards against a loop)
-        if(temp_chain.contains(relation)) {
-            //System.out.println("Reached same relationship in chain: " + relation.getName());
-            return;
-        }
-        
-        // If we get the target element we are traversing fowards, otherwise backwards from a bi-directional check
-        IArchimateElement element = forwards ? relation.getTarget() : relation.getSource();
-        
-        // Arrived at target
-        if(finalTarget == element) {
-            if(temp_chain.size() > 0) { // Only chains of length 2 or greater
-                //System.out.println("Reached target from: " + element.getName());
-                List<IRelationship> chain = new ArrayList<IRelationship>(temp_chain); // make a copy because temp_chain will have relation removed, below
-                chain.add(relation);
-                
-                // Duplicate check - there must be a loop?
-                if(_containsChain(chain, chains)) {
-                    System.err.println("Duplicate chain:"); //$NON-NLS-1$
-                    _printChain(chain, finalTarget);
-                }
-
-                EClass weakest = getWeakestType(chain);
-                int index = weaklist.indexOf(weakest);
-                if(index < weakestFound) {
-                    weakestFound = index;
-                }
-
-                chains.add(chain);
-            }
-        }
-        // Move onto next element in chain
-        else {
-            //System.out.println("Adding to temp chain: " + relation.getName());
-            temp_chain.add(relation);
-            _traverse(element);
-            temp_chain.remove(relation); // back up
-        }
-    }
-    
-    /*
-     * This is an easy win check. Traversing will soon find if the source Element has no connections but it may take some
-     * time to traverse to eventually find out that the target element had none. If the targte element has no incoming or 
-     * bi-directional relationships then don't bother traversing.
-     */
-    private static boolean _hasTargetElementValidRelations(IArchimateElement targetElement) {
-        for(IRelationship relation : ArchimateModelUtils.getSourceRelationships(targetElement)) {
-            if(isBidirectionalRelationship(relation)) {
-                return true;
-            }
-        }
-        
-        for(IRelationship relation : ArchimateModelUtils.getTargetRelationships(targetElement)) {
-            if(isStructuralRelationship(relation)) {
-                return true;
-            }
-        }
-        
-        return false;
-    }
-    
-    /**
-     * Check if chain already exists in list of collected chains
-     */
-    private static boolean _containsChain(List<IRelationship> chain, List<List<IRelationship>> chains) {
-        for(List<IRelationship> stored_chain : chains) {
-            if(stored_chain.size() == chain.size()) { // check only on same length
-                boolean result = true; // assume the same
-                for(int i = 0; i < chain.size(); i++) {
-                    if(stored_chain.get(i) != chain.get(i)) { // relation is different so not the same
-                        result = false;
-                        break;
-                    }
-                }
-                if(result) { // was the same
-                    return true;
-                }
-            }
-        }
-        
-        return false;
-    }
-    
     // =================================================================================== 
     // DEBUGGING PRINT
     // =================================================================================== 
@@ -0,0 +1,160 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelComponent;
+import com.archimatetool.model.impl.DiagramModelArchimateConnection;
+import com.archimatetool.model.impl.DiagramModelArchimateObject;
+
+
+/**
+ * Adapter to maintain an index of the diagram model components that reference Archimate elements and relationships.
+ *
+ * Each element is mapped to the IDiagramModelArchimateObjects that reference it and each relationship to the
+ * IDiagramModelArchimateConnections that reference it. The index is built as objects are attached to the model
+ * (including when de-serialising from file) and is kept up to date as diagram components are added, removed and
+ * have their referenced element or relationship set.
+ *
+ * @author Phillip Beauvoir
+ */
+public class DiagramReferencesAdapter extends EContentAdapter {
+
+    /**
+     * @param model The Archimate model
+     * @return The DiagramReferencesAdapter attached to the model, or null if there isn't one
+     */
+    public static DiagramReferencesAdapter getAdapter(IArchimateModel model) {
+        return model == null ? null : (DiagramReferencesAdapter)EcoreUtil.getExistingAdapter(model, DiagramReferencesAdapter.class);
+    }
+
+    /**
+     * Element or Relationship -> Diagram components that reference it
+     */
+    private Map<IArchimateElement, List<IDiagramModelComponent>> fReferences = new HashMap<IArchimateElement, List<IDiagramModelComponent>>();
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == DiagramReferencesAdapter.class;
+    }
+
+    @Override
+    public void setTarget(Notifier target) {
+        super.setTarget(target);
+
+        if(target instanceof IDiagramModelComponent) {
+            addReference(getReferencedElement(target), (IDiagramModelComponent)target);
+        }
+    }
+
+    @Override
+    public void unsetTarget(Notifier target) {
+        super.unsetTarget(target);
+
+        if(target instanceof IDiagramModelComponent) {
+            removeReference(getReferencedElement(target), (IDiagramModelComponent)target);
+        }
+    }
+
+    @Override
+    public void notifyChanged(Notification msg) {
+        super.notifyChanged(msg);
+
+        // Referenced element or relationship set
+        if(msg.getEventType() == Notification.SET) {
+            Object feature = msg.getFeature();
+            if(feature == IArchimatePackage.Literals.DIAGRAM_MODEL_ARCHIMATE_OBJECT__ARCHIMATE_ELEMENT
+                    || feature == IArchimatePackage.Literals.DIAGRAM_MODEL_ARCHIMATE_CONNECTION__RELATIONSHIP) {
+                IDiagramModelComponent component = (IDiagramModelComponent)msg.getNotifier();
+                removeReference((IArchimateElement)msg.getOldValue(), component);
+                addReference((IArchimateElement)msg.getNewValue(), component);
+            }
+        }
+    }
+
+    /**
+     * @param element The Archimate element or relationship
+     * @return An unmodifiable list of the IDiagramModelArchimateObjects that reference element, or the
+     *         IDiagramModelArchimateConnections that reference it if it is a relationship. Never null.
+     */
+    public List<IDiagramModelComponent> getReferences(IArchimateElement element) {
+        List<IDiagramModelComponent> list = fReferences.get(element);
+        if(list == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    /**
+     * @param element The Archimate element or relationship
+     * @return true if element is referenced in any diagram model
+     */
+    public boolean hasReferences(IArchimateElement element) {
+        return fReferences.containsKey(element);
+    }
+
+    private IArchimateElement getReferencedElement(Object component) {
+        // The reference is not set yet when a component is attached while loading from file, so don't log an error
+        if(component instanceof DiagramModelArchimateObject) {
+            return ((DiagramModelArchimateObject)component).basicGetArchimateElement();
+        }
+        if(component instanceof DiagramModelArchimateConnection) {
+            return ((DiagramModelArchimateConnection)component).basicGetRelationship();
+        }
+        if(component instanceof IDiagramModelArchimateObject) {
+            return ((IDiagramModelArchimateObject)component).getArchimateElement();
+        }
+        if(component instanceof IDiagramModelArchimateConnection) {
+            return ((IDiagramModelArchimateConnection)component).getRelationship();
+        }
+        return null;
+    }
+
+    private void addReference(IArchimateElement element, IDiagramModelComponent component) {
+        if(element == null) {
+            return;
+        }
+
+        List<IDiagramModelComponent> list = fReferences.get(element);
+        if(list == null) {
+            list = new ArrayList<IDiagramModelComponent>(2);
+            fReferences.put(element, list);
+        }
+
+        if(!list.contains(component)) {
+            list.add(component);
+        }
+    }
+
+    private void removeReference(IArchimateElement element, IDiagramModelComponent component) {
+        if(element == null) {
+            return;
+        }
+
+        List<IDiagramModelComponent> list = fReferences.get(element);
+        if(list != null) {
+            list.remove(component);
+            if(list.isEmpty()) {
+                fReferences.remove(element);
+            }
+        }
+    }
+}
@@ -5,13 +5,18 @@
  */
 package com.archimatetool.model.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IIdentifier;
 
 
@@ -25,20 +30,80 @@ import com.archimatetool.model.IIdentifier;
  * In order for this to work a model object should be added to the main ArchimateModel first *before* any of its
  * child objects are added (would be orphaned otherwise).
  * 
- * IDs are not removed from the cache if an element is deleted in case the user performs an Undo operation.
+ * IDs are released from the cache when an object is removed from the model so that the cache doesn't grow without bound
+ * in long editing sessions. If the user performs an Undo operation the object's ID is registered again when it is added back.
+ * This means that a new ID can be the same as the ID of a removed object that is still on the Undo stack, and if that object
+ * is then added back two objects in the model have the same ID. The chance of this for each new ID is the number of
+ * removed IDs on the Undo stack in 2^32.
+ * 
+ * The adapter also maps the IDs of the objects currently in the model to those objects so that they can be found
+ * by ID without iterating through the model.
  * 
  * @author Phillip Beauvoir
  */
 public class IDAdapter extends EContentAdapter {
 
+    /**
+     * @param model The Archimate model
+     * @return The IDAdapter attached to the model, or null if there isn't one
+     */
+    public static IDAdapter getAdapter(IArchimateModel model) {
+        return model == null ? null : (IDAdapter)EcoreUtil.getExistingAdapter(model, IDAdapter.class);
+    }
+
     /**
      * Keep track of unique IDs. An element's ID has to be unique.
      */
-    private List<String> fUsedIDs = new ArrayList<String>();
+    private IDRegistry fUsedIDs = new IDRegistry();
+    
+    /**
+     * ID -> Object for objects currently in the model
+     */
+    private Map<String, EObject> fObjects = new HashMap<String, EObject>();
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == IDAdapter.class;
+    }
+    
+    @Override
+    public void setTarget(Notifier target) {
+        super.setTarget(target);
+        
+        // Register the ID of any object attached to the model, including the child objects of a re-attached object
+        if(target instanceof IIdentifier) {
+            String id = ((IIdentifier)target).getId();
+            mapObject(id, (EObject)target);
+            registerID(id);
+        }
+    }
+    
+    @Override
+    public void unsetTarget(Notifier target) {
+        super.unsetTarget(target);
+        
+        if(target instanceof IIdentifier) {
+            String id = ((IIdentifier)target).getId();
+            // Release the ID if it's not used by another object
+            if(unmapObject(id, (EObject)target)) {
+                fUsedIDs.remove(id);
+            }
+        }
+    }
 
     @Override
     public void notifyChanged(Notification msg) {
         super.notifyChanged(msg);
+        
+        // ID changed
+        if(msg.getEventType() == Notification.SET && msg.getFeature() == IArchimatePackage.Literals.IDENTIFIER__ID) {
+            EObject object = (EObject)msg.getNotifier();
+            if(unmapObject(msg.getOldStringValue(), object)) {
+                fUsedIDs.remove(msg.getOldStringValue());
+            }
+            mapObject(msg.getNewStringValue(), object);
+            registerID(msg.getNewStringValue());
+        }
 
         if(msg.getEventType() == Notification.ADD) {
             if(msg.getNewValue() instanceof IIdentifier) {
@@ -56,8 +121,41 @@ public class IDAdapter extends EContentAdapter {
         }
     }
 
+    /**
+     * @param id The ID of the object
+     * @return The object currently in the model with the given ID, or null if not found
+     */
+    public EObject getObject(String id) {
+        return id == null ? null : fObjects.get(id);
+    }
+    
+    private void mapObject(String id, EObject object) {
+        if(id != null) {
+            fObjects.put(id, object);
+        }
+    }
+    
+    /**
+     * @return true if the mapping was for this object and was removed
+     */
+    private boolean unmapObject(String id, EObject object) {
+        // Only remove the mapping if it's for this object
+        if(id != null && fObjects.get(id) == object) {
+            fObjects.remove(id);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * @return true if id is registered as used in the model
+     */
+    boolean isRegistered(String id) {
+        return fUsedIDs.contains(id);
+    }
+    
     public void registerID(String id) {
-        if(id != null && !fUsedIDs.contains(id)) {
+        if(id != null) {
             fUsedIDs.add(id); 
         }
     }
@@ -0,0 +1,199 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+
+/**
+ * A compact hashed set of the IDs used in a model.
+ *
+ * IDs allocated by {@link IDAdapter} are 8 lower case hexadecimal characters, so these are stored as ints in an
+ * open-addressing (linear probing) hash table rather than as Strings. Any other IDs, such as those created by older
+ * versions or other tools, are stored in a HashSet.
+ *
+ * @author Phillip Beauvoir
+ */
+class IDRegistry {
+
+    private static final long EMPTY = -1L;
+
+    static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Open addressing table of packed IDs. Slots are EMPTY or hold an unsigned 32-bit value.
+     */
+    private long[] fTable;
+    private int fMask;
+    private int fPackedSize;
+
+    /**
+     * IDs that can't be packed
+     */
+    private Set<String> fOtherIDs = new HashSet<String>();
+
+    IDRegistry() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Add an ID
+     * @return true if the ID was not already registered
+     */
+    boolean add(String id) {
+        long key = pack(id);
+        if(key == EMPTY) {
+            return fOtherIDs.add(id);
+        }
+
+        int index = indexOf(key);
+        if(fTable[index] == key) {
+            return false;
+        }
+
+        fTable[index] = key;
+
+        // Keep the load factor at or below 0.5
+        if(++fPackedSize * 2 > fTable.length) {
+            rehash(fTable.length * 2);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return true if the ID is registered
+     */
+    boolean contains(String id) {
+        long key = pack(id);
+        if(key == EMPTY) {
+            return fOtherIDs.contains(id);
+        }
+
+        return fTable[indexOf(key)] == key;
+    }
+
+    /**
+     * Remove an ID
+     * @return true if the ID was registered
+     */
+    boolean remove(String id) {
+        long key = pack(id);
+        if(key == EMPTY) {
+            return fOtherIDs.remove(id);
+        }
+
+        int index = indexOf(key);
+        if(fTable[index] != key) {
+            return false;
+        }
+
+        // Backward shift deletion so that we don't need tombstones
+        int hole = index;
+        int next = index;
+        while(true) {
+            next = (next + 1) & fMask;
+            long nextKey = fTable[next];
+            if(nextKey == EMPTY) {
+                break;
+            }
+
+            // Move the entry into the hole unless its home slot lies cyclically in (hole, next]
+            int home = slot(nextKey);
+            boolean stays = hole <= next ? (hole < home && home <= next) : (hole < home || home <= next);
+            if(!stays) {
+                fTable[hole] = nextKey;
+                hole = next;
+            }
+        }
+
+        fTable[hole] = EMPTY;
+        fPackedSize--;
+
+        return true;
+    }
+
+    /**
+     * @return The number of registered IDs
+     */
+    int size() {
+        return fPackedSize + fOtherIDs.size();
+    }
+
+    /**
+     * @return The number of slots in the table
+     */
+    int capacity() {
+        return fTable.length;
+    }
+
+    /**
+     * @return The slot holding key or the empty slot where it would go
+     */
+    private int indexOf(long key) {
+        int index = slot(key);
+        while(fTable[index] != EMPTY && fTable[index] != key) {
+            index = (index + 1) & fMask;
+        }
+        return index;
+    }
+
+    /**
+     * @return The home slot of key in the table
+     */
+    int slot(long key) {
+        // Multiplicative hash to spread the bits of sequential or similar IDs
+        int h = (int)key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & fMask;
+    }
+
+    private void allocate(int capacity) {
+        fTable = new long[capacity];
+        Arrays.fill(fTable, EMPTY);
+        fMask = capacity - 1;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldTable = fTable;
+        allocate(newCapacity);
+
+        for(long key : oldTable) {
+            if(key != EMPTY) {
+                fTable[indexOf(key)] = key;
+            }
+        }
+    }
+
+    /**
+     * @return The ID packed into the lower 32 bits of a long, or EMPTY if it's not 8 lower case hex characters
+     */
+    static long pack(String id) {
+        if(id == null || id.length() != 8) {
+            return EMPTY;
+        }
+
+        long value = 0;
+
+        for(int i = 0; i < 8; i++) {
+            char c = id.charAt(i);
+            int digit;
+            if(c >= '0' && c <= '9') {
+                digit = c - '0';
+            }
+            else if(c >= 'a' && c <= 'f') {
+                digit = c - 'a' + 10;
+            }
+            else {
+                return EMPTY;
+            }
+            value = (value << 4) | digit;
+        }
+
+        return value;
+    }
+}
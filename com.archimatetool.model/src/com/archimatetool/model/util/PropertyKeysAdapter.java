@@ -0,0 +1,141 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IProperty;
+
+
+/**
+ * Adapter to maintain a catalogue of the Property keys used in a model.
+ *
+ * Each key is mapped to the IProperty objects that have that key. The catalogue is built as properties are attached to
+ * the model (including when de-serialising from file) and is kept up to date as properties are added, removed and have
+ * their key set, so that the unique keys of a model and the properties that use a key are known without walking the
+ * whole model.
+ *
+ * @author Phillip Beauvoir
+ */
+public class PropertyKeysAdapter extends EContentAdapter {
+
+    /**
+     * @param model The Archimate model
+     * @return The PropertyKeysAdapter attached to the model, or null if there isn't one
+     */
+    public static PropertyKeysAdapter getAdapter(IArchimateModel model) {
+        return model == null ? null : (PropertyKeysAdapter)EcoreUtil.getExistingAdapter(model, PropertyKeysAdapter.class);
+    }
+
+    /**
+     * Key -> Properties that have the key, in the order that keys were first used
+     */
+    private Map<String, Set<IProperty>> fKeys = new LinkedHashMap<String, Set<IProperty>>();
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == PropertyKeysAdapter.class;
+    }
+
+    @Override
+    public void setTarget(Notifier target) {
+        super.setTarget(target);
+
+        if(target instanceof IProperty) {
+            addProperty(((IProperty)target).getKey(), (IProperty)target);
+        }
+    }
+
+    @Override
+    public void unsetTarget(Notifier target) {
+        super.unsetTarget(target);
+
+        if(target instanceof IProperty) {
+            removeProperty(((IProperty)target).getKey(), (IProperty)target);
+        }
+    }
+
+    @Override
+    public void notifyChanged(Notification msg) {
+        super.notifyChanged(msg);
+
+        // Key set
+        if(msg.getEventType() == Notification.SET && msg.getFeature() == IArchimatePackage.Literals.PROPERTY__KEY) {
+            IProperty property = (IProperty)msg.getNotifier();
+            removeProperty((String)msg.getOldValue(), property);
+            addProperty((String)msg.getNewValue(), property);
+        }
+    }
+
+    /**
+     * @return The unique keys used in the model in the order that they were first used. Never null.
+     */
+    public List<String> getKeys() {
+        return new ArrayList<String>(fKeys.keySet());
+    }
+
+    /**
+     * @param key The key
+     * @return The number of properties that have key
+     */
+    public int getUsageCount(String key) {
+        Set<IProperty> set = fKeys.get(key);
+        return set == null ? 0 : set.size();
+    }
+
+    /**
+     * @param key The key
+     * @return An unmodifiable set of the properties that have key. Never null.
+     */
+    public Set<IProperty> getProperties(String key) {
+        Set<IProperty> set = fKeys.get(key);
+        if(set == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    private void addProperty(String key, IProperty property) {
+        if(key == null) {
+            return;
+        }
+
+        Set<IProperty> set = fKeys.get(key);
+        if(set == null) {
+            set = new LinkedHashSet<IProperty>();
+            fKeys.put(key, set);
+        }
+
+        set.add(property);
+    }
+
+    private void removeProperty(String key, IProperty property) {
+        if(key == null) {
+            return;
+        }
+
+        Set<IProperty> set = fKeys.get(key);
+        if(set != null) {
+            set.remove(property);
+            if(set.isEmpty()) {
+                fKeys.remove(key);
+            }
+        }
+    }
+}
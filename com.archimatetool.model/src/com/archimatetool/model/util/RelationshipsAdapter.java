@@ -0,0 +1,289 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IRelationship;
+
+
+/**
+ * Adapter to maintain an index of the source and target relationships of the elements in an Archimate model.
+ *
+ * The index is built as objects are attached to the model (including when de-serialising from file) and is kept up to date
+ * as relationships are added, removed and re-connected. This means that queries such as
+ * {@link ArchimateModelUtils#getRelationships(IArchimateElement)} are proportional to the number of relationships an
+ * element has rather than to the number of relationships in the model.<p>
+ *
+ * The adapter also caches the result of {@link DerivedRelationsUtils#isInDerivedChain(IRelationship)} for each relationship.
+ * This depends only on the relationships of the relationship's source and target elements, so when a relationship is added,
+ * removed or re-connected, or an element is added or removed, only the cached results for the relationships of the elements
+ * concerned are invalidated, and any {@link IDerivedChainListener}s are told which relationships these were.
+ *
+ * @author Phillip Beauvoir
+ */
+public class RelationshipsAdapter extends EContentAdapter {
+
+    /**
+     * Listener for changes that might change whether relationships are in a derived chain
+     */
+    public static interface IDerivedChainListener {
+        /**
+         * @param relations The relationships whose cached result of isInDerivedChain() was invalidated
+         */
+        void derivedChainChanged(Set<IRelationship> relations);
+    }
+
+    /**
+     * @param model The Archimate model
+     * @return The RelationshipsAdapter attached to the model, or null if there isn't one
+     */
+    public static RelationshipsAdapter getAdapter(IArchimateModel model) {
+        return model == null ? null : (RelationshipsAdapter)EcoreUtil.getExistingAdapter(model, RelationshipsAdapter.class);
+    }
+
+    /**
+     * Element -> Relationships where the element is the source
+     */
+    private Map<IArchimateElement, List<IRelationship>> fSourceRelations = new HashMap<IArchimateElement, List<IRelationship>>();
+
+    /**
+     * Element -> Relationships where the element is the target
+     */
+    private Map<IArchimateElement, List<IRelationship>> fTargetRelations = new HashMap<IArchimateElement, List<IRelationship>>();
+
+    /**
+     * Relationship -> Cached result of isInDerivedChain()
+     */
+    private Map<IRelationship, Boolean> fInDerivedChain = new HashMap<IRelationship, Boolean>();
+
+    /**
+     * Relationships invalidated since listeners were last told
+     */
+    private Set<IRelationship> fInvalidated = new LinkedHashSet<IRelationship>();
+
+    private Set<IDerivedChainListener> fDerivedChainListeners = new LinkedHashSet<IDerivedChainListener>();
+
+    @Override
+    public boolean isAdapterForType(Object type) {
+        return type == RelationshipsAdapter.class;
+    }
+
+    @Override
+    public void setTarget(Notifier target) {
+        super.setTarget(target);
+
+        // Attached to a relationship in the model
+        if(target instanceof IRelationship) {
+            IRelationship relationship = (IRelationship)target;
+            addRelation(fSourceRelations, relationship.getSource(), relationship);
+            addRelation(fTargetRelations, relationship.getTarget(), relationship);
+            invalidateDerivedChain(relationship);
+            invalidateDerivedChains(relationship.getSource());
+            invalidateDerivedChains(relationship.getTarget());
+        }
+        // Attached to an element so its relationships now count
+        else if(target instanceof IArchimateElement) {
+            invalidateDerivedChains((IArchimateElement)target);
+        }
+
+        fireDerivedChainChanged();
+    }
+
+    @Override
+    public void unsetTarget(Notifier target) {
+        super.unsetTarget(target);
+
+        // Detached from a relationship in the model
+        if(target instanceof IRelationship) {
+            IRelationship relationship = (IRelationship)target;
+            removeRelation(fSourceRelations, relationship.getSource(), relationship);
+            removeRelation(fTargetRelations, relationship.getTarget(), relationship);
+            invalidateDerivedChain(relationship);
+            invalidateDerivedChains(relationship.getSource());
+            invalidateDerivedChains(relationship.getTarget());
+        }
+        // Detached from an element so its relationships no longer count
+        else if(target instanceof IArchimateElement) {
+            invalidateDerivedChains((IArchimateElement)target);
+        }
+
+        fireDerivedChainChanged();
+    }
+
+    @Override
+    public void notifyChanged(Notification msg) {
+        super.notifyChanged(msg);
+
+        // Re-connected relationship
+        if(msg.getEventType() == Notification.SET && msg.getNotifier() instanceof IRelationship) {
+            IRelationship relationship = (IRelationship)msg.getNotifier();
+            Object feature = msg.getFeature();
+
+            if(feature == IArchimatePackage.Literals.RELATIONSHIP__SOURCE) {
+                removeRelation(fSourceRelations, (IArchimateElement)msg.getOldValue(), relationship);
+                addRelation(fSourceRelations, (IArchimateElement)msg.getNewValue(), relationship);
+            }
+            else if(feature == IArchimatePackage.Literals.RELATIONSHIP__TARGET) {
+                removeRelation(fTargetRelations, (IArchimateElement)msg.getOldValue(), relationship);
+                addRelation(fTargetRelations, (IArchimateElement)msg.getNewValue(), relationship);
+            }
+
+            if(feature == IArchimatePackage.Literals.RELATIONSHIP__SOURCE || feature == IArchimatePackage.Literals.RELATIONSHIP__TARGET) {
+                invalidateDerivedChain(relationship);
+                invalidateDerivedChains((IArchimateElement)msg.getOldValue());
+                invalidateDerivedChains((IArchimateElement)msg.getNewValue());
+                invalidateDerivedChains(relationship.getSource());
+                invalidateDerivedChains(relationship.getTarget());
+                fireDerivedChainChanged();
+            }
+        }
+    }
+
+    /**
+     * @param element The Archimate element
+     * @return An unmodifiable list of the relationships where element is the source. Never null.
+     */
+    public List<IRelationship> getSourceRelationships(IArchimateElement element) {
+        return getRelations(fSourceRelations, element);
+    }
+
+    /**
+     * @param element The Archimate element
+     * @return An unmodifiable list of the relationships where element is the target. Never null.
+     */
+    public List<IRelationship> getTargetRelationships(IArchimateElement element) {
+        return getRelations(fTargetRelations, element);
+    }
+
+    /**
+     * @param relation The relationship which must be in this adapter's model
+     * @return The cached result of {@link DerivedRelationsUtils#isInDerivedChain(IRelationship)}, calculated if needed
+     */
+    public boolean isInDerivedChain(IRelationship relation) {
+        Boolean result = fInDerivedChain.get(relation);
+        if(result == null) {
+            result = DerivedRelationsUtils.calculateIsInDerivedChain(relation);
+            fInDerivedChain.put(relation, result);
+        }
+        return result;
+    }
+
+    /**
+     * Add a listener to be told when relationships might have changed whether they are in a derived chain
+     * @param listener
+     */
+    public void addDerivedChainListener(IDerivedChainListener listener) {
+        fDerivedChainListeners.add(listener);
+    }
+
+    /**
+     * @param listener
+     */
+    public void removeDerivedChainListener(IDerivedChainListener listener) {
+        fDerivedChainListeners.remove(listener);
+    }
+
+    /**
+     * Invalidate the cached result of isInDerivedChain() for a relationship
+     */
+    private void invalidateDerivedChain(IRelationship relationship) {
+        fInDerivedChain.remove(relationship);
+        if(!fDerivedChainListeners.isEmpty()) {
+            fInvalidated.add(relationship);
+        }
+    }
+
+    /**
+     * Invalidate the cached results of isInDerivedChain() for all relationships of an element
+     */
+    private void invalidateDerivedChains(IArchimateElement element) {
+        if(element == null) {
+            return;
+        }
+
+        List<IRelationship> list = fSourceRelations.get(element);
+        if(list != null) {
+            for(IRelationship relationship : list) {
+                invalidateDerivedChain(relationship);
+            }
+        }
+
+        list = fTargetRelations.get(element);
+        if(list != null) {
+            for(IRelationship relationship : list) {
+                invalidateDerivedChain(relationship);
+            }
+        }
+    }
+
+    private void fireDerivedChainChanged() {
+        if(fInvalidated.isEmpty()) {
+            return;
+        }
+
+        Set<IRelationship> relations = Collections.unmodifiableSet(fInvalidated);
+        fInvalidated = new LinkedHashSet<IRelationship>();
+
+        // Copy in case a listener removes itself
+        for(IDerivedChainListener listener : fDerivedChainListeners.toArray(new IDerivedChainListener[fDerivedChainListeners.size()])) {
+            listener.derivedChainChanged(relations);
+        }
+    }
+
+    private List<IRelationship> getRelations(Map<IArchimateElement, List<IRelationship>> map, IArchimateElement element) {
+        List<IRelationship> list = map.get(element);
+        if(list == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    private void addRelation(Map<IArchimateElement, List<IRelationship>> map, IArchimateElement element, IRelationship relationship) {
+        if(element == null) {
+            return;
+        }
+
+        List<IRelationship> list = map.get(element);
+        if(list == null) {
+            list = new ArrayList<IRelationship>(2);
+            map.put(element, list);
+        }
+
+        // Check is only as large as the element's number of relations
+        if(!list.contains(relationship)) {
+            list.add(relationship);
+        }
+    }
+
+    private void removeRelation(Map<IArchimateElement, List<IRelationship>> map, IArchimateElement element, IRelationship relationship) {
+        if(element == null) {
+            return;
+        }
+
+        List<IRelationship> list = map.get(element);
+        if(list != null) {
+            list.remove(relationship);
+            if(list.isEmpty()) {
+                map.remove(element);
+            }
+        }
+    }
+}
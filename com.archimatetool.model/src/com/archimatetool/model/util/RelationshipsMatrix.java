@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.emf.ecore.EClass;
@@ -91,6 +92,26 @@ public class RelationshipsMatrix {
      * Mapping of relationships to key letters
      */
     private Map<EClass, Character> relationsValueMap = new LinkedHashMap<EClass, Character>();
+    
+    /*
+     * Lookup tables compiled from the matrix, indexed by EClass classifier ID.
+     * Each relationship type is allocated one bit in a long mask.
+     */
+    
+    /**
+     * Relationship classifier ID -> the relationship's bit, or 0 if not a relationship
+     */
+    private long[] relationshipBits;
+    
+    /**
+     * Source classifier ID -> Target classifier ID -> mask of valid relationships
+     */
+    private long[][] relationshipMasks;
+    
+    /**
+     * Source classifier ID -> mask of relationships valid for any target
+     */
+    private long[] startMasks;
 
     private RelationshipsMatrix() {
         // Load Key letters file
@@ -98,6 +119,9 @@ public class RelationshipsMatrix {
         
         // Load Relationships file
         loadRelationships();
+        
+        // Compile the lookup tables
+        createLookupTables();
     }
     
     public Map<EClass, List<TargetMatrix>> getRelationshipsMatrix() {
@@ -109,42 +133,78 @@ public class RelationshipsMatrix {
     }
 
     boolean isValidRelationshipStart(IArchimateElement sourceElement, EClass relationshipType) {
-        EClass sourceType = getSuperEClass(sourceElement.eClass());
-        
-        List<TargetMatrix> listMatrix = matrixMap.get(sourceType);
-        if(listMatrix != null) {
-            for(TargetMatrix targetMatrix : listMatrix) {
-                if(targetMatrix.getRelationships().contains(relationshipType)) {
-                    return true;
-                }
-            }
-        }
+        long bit = getRelationshipBit(relationshipType);
+        int source = getIndex(getSuperEClass(sourceElement.eClass()));
         
-        return false;
+        return bit != 0 && source != -1 && (startMasks[source] & bit) != 0;
     }
     
     boolean isValidRelationship(EClass sourceType, EClass targetType, EClass relationshipType) {
-        if(relationshipType == null) {
+        // Only relationship types have a bit set
+        long bit = getRelationshipBit(relationshipType);
+        if(bit == 0) {
             return false;
         }
         
-        if(!IArchimatePackage.eINSTANCE.getRelationship().isSuperTypeOf(relationshipType)) {
-            return false;
+        int source = getIndex(getSuperEClass(sourceType));
+        int target = getIndex(getSuperEClass(targetType));
+        
+        return source != -1 && target != -1 && (relationshipMasks[source][target] & bit) != 0;
+    }
+    
+    /**
+     * @return The index of an ArchiMate EClass in the lookup tables, or -1 if it isn't one
+     */
+    private int getIndex(EClass eClass) {
+        if(eClass == null || eClass.getEPackage() != IArchimatePackage.eINSTANCE) {
+            return -1;
+        }
+        return eClass.getClassifierID();
+    }
+    
+    /**
+     * @return The bit allocated to a relationship type, or 0 if it isn't one
+     */
+    private long getRelationshipBit(EClass relationshipType) {
+        int index = getIndex(relationshipType);
+        return index == -1 ? 0 : relationshipBits[index];
+    }
+    
+    /**
+     * Compile the matrix into lookup tables indexed by EClass classifier ID
+     */
+    private void createLookupTables() {
+        int size = IArchimatePackage.eINSTANCE.getEClassifiers().size();
+        
+        // Each relationship type needs its own bit
+        if(relationsValueMap.size() > Long.SIZE) {
+            throw new IllegalStateException("Too many relationship types for the lookup tables: " + relationsValueMap.size()); //$NON-NLS-1$
         }
         
-        sourceType = getSuperEClass(sourceType);
-        targetType = getSuperEClass(targetType);
+        relationshipBits = new long[size];
+        relationshipMasks = new long[size][size];
+        startMasks = new long[size];
+        
+        // Allocate a bit to each relationship type
+        long bit = 1;
+        for(EClass relationship : relationsValueMap.keySet()) {
+            relationshipBits[relationship.getClassifierID()] = bit;
+            bit <<= 1;
+        }
         
-        List<TargetMatrix> listMatrix = matrixMap.get(sourceType);
-        if(listMatrix != null) {
-            for(TargetMatrix targetMatrix : listMatrix) {
-                if(targetMatrix.getTargetClass() == targetType && targetMatrix.getRelationships().contains(relationshipType)) {
-                    return true;
+        for(Entry<EClass, List<TargetMatrix>> entry : matrixMap.entrySet()) {
+            int source = entry.getKey().getClassifierID();
+            
+            for(TargetMatrix targetMatrix : entry.getValue()) {
+                int target = targetMatrix.getTargetClass().getClassifierID();
+                
+                for(EClass relationship : targetMatrix.getRelationships()) {
+                    relationshipMasks[source][target] |= relationshipBits[relationship.getClassifierID()];
                 }
+                
+                startMasks[source] |= relationshipMasks[source][target];
             }
         }
-        
-        return false;
     }
     
     /**
@@ -0,0 +1,391 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import com.archimatetool.Testing;
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelImage;
+import com.archimatetool.model.util.ArchimateResourceFactory;
+
+
+
+@SuppressWarnings("nls")
+public class ArchiveManagerTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ArchiveManagerTests.class);
+    }
+
+    private static final int IMAGES = 50;
+    private static final int IMAGE_SIZE = 64 * 1024;
+
+    @After
+    public void runAfterEachTest() throws Exception {
+        FileUtils.deleteFolder(Testing.getMainTestFolder());
+    }
+
+    /**
+     * Open several image-heavy models at once where some images have the same content and some the same paths
+     */
+    @Test
+    public void loadImages_SeveralModels() throws Exception {
+        Random random = new Random(1);
+
+        // Content shared by all models
+        byte[][] sharedContent = new byte[IMAGES / 2][];
+        for(int i = 0; i < sharedContent.length; i++) {
+            sharedContent[i] = createBytes(random);
+        }
+
+        // Model files
+        String[][] paths = new String[3][IMAGES];
+        File[] files = new File[3];
+
+        for(int i = 0; i < files.length; i++) {
+            byte[][] contents = new byte[IMAGES][];
+            for(int j = 0; j < IMAGES; j++) {
+                paths[i][j] = "images/" + EcoreUtil.generateUUID() + ".png";
+                contents[j] = j < sharedContent.length ? sharedContent[j] : createBytes(random);
+            }
+            files[i] = createArchiveFile(paths[i], contents);
+        }
+
+        // The last model is a copy of the second model with the same paths
+        paths[2] = paths[1];
+        FileUtils.copyFile(files[1], files[2], false);
+
+        ArchiveManager[] archiveManagers = new ArchiveManager[files.length];
+
+        for(int i = 0; i < files.length; i++) {
+            IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+            model.setFile(files[i]);
+            archiveManagers[i] = new ArchiveManager(model);
+            archiveManagers[i].loadImagesFromModelFile(files[i]);
+        }
+
+        ByteArrayStorage storage = ArchiveManager.BYTE_ARRAY_STORAGE;
+
+        // Same content is shared, different content is not
+        for(int j = 0; j < IMAGES; j++) {
+            if(j < sharedContent.length) {
+                assertSame(storage.getEntry(paths[0][j]), storage.getEntry(paths[1][j]));
+            }
+            else {
+                assertNotSame(storage.getEntry(paths[0][j]), storage.getEntry(paths[1][j]));
+            }
+            assertEquals(IMAGE_SIZE, storage.getEntrySize(paths[0][j]));
+            assertEquals(1, storage.getReferenceCount(paths[0][j]));
+            assertEquals(2, storage.getReferenceCount(paths[1][j]));
+        }
+
+        // Close the first model, its images are unloaded
+        archiveManagers[0].dispose();
+        for(int j = 0; j < IMAGES; j++) {
+            assertFalse(storage.hasEntry(paths[0][j]));
+            assertTrue(storage.hasEntry(paths[1][j]));
+        }
+
+        // Close the second model, the images are still used by the third model
+        archiveManagers[1].dispose();
+        for(int j = 0; j < IMAGES; j++) {
+            assertTrue(storage.hasEntry(paths[1][j]));
+            assertEquals(1, storage.getReferenceCount(paths[1][j]));
+        }
+
+        // Close the third model
+        archiveManagers[2].dispose();
+        for(int j = 0; j < IMAGES; j++) {
+            assertFalse(storage.hasEntry(paths[1][j]));
+        }
+    }
+
+    @Test
+    public void loadImages_LazyAndSaved() throws Exception {
+        Random random = new Random(2);
+
+        String[] paths = new String[IMAGES];
+        byte[][] contents = new byte[IMAGES][];
+        for(int i = 0; i < IMAGES; i++) {
+            paths[i] = "images/" + EcoreUtil.generateUUID() + ".png";
+            contents[i] = createBytes(random);
+        }
+
+        File file = createArchiveFile(paths, contents);
+
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setFile(file);
+
+        IDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForElement(dm).getElements().add(dm);
+        for(String path : paths) {
+            IDiagramModelImage image = IArchimateFactory.eINSTANCE.createDiagramModelImage();
+            image.setImagePath(path);
+            dm.getChildren().add(image);
+        }
+
+        ArchiveManager archiveManager = new ArchiveManager(model);
+        archiveManager.loadImages();
+
+        ByteArrayStorage storage = ArchiveManager.BYTE_ARRAY_STORAGE;
+
+        // Only the locations are loaded
+        for(int i = 0; i < IMAGES; i++) {
+            assertTrue(storage.isLazyEntry(paths[i]));
+            assertFalse(storage.isLazyEntryLoaded(paths[i]));
+            assertEquals(IMAGE_SIZE, storage.getEntrySize(paths[i]));
+        }
+
+        // Read when needed
+        assertArrayEquals(contents[0], storage.getEntry(paths[0]));
+        assertTrue(storage.isLazyEntryLoaded(paths[0]));
+        assertFalse(storage.isLazyEntryLoaded(paths[1]));
+
+        // Save over the file that the images are read from
+        archiveManager.saveModel();
+
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            for(int i = 0; i < IMAGES; i++) {
+                assertTrue(storage.isLazyEntry(paths[i]));
+                assertArrayEquals(contents[i], storage.getEntry(paths[i]));
+                assertEquals(IMAGE_SIZE, zipFile.getEntry(paths[i]).getSize());
+            }
+        }
+        finally {
+            zipFile.close();
+        }
+
+        archiveManager.dispose();
+        assertFalse(storage.hasEntry(paths[0]));
+    }
+
+    @Test
+    public void loadImages_LazyFileChanged() throws Exception {
+        Random random = new Random(4);
+
+        // The first two images have the same content
+        byte[] sharedContent = createBytes(random);
+        String[] paths = new String[3];
+        byte[][] contents = new byte[3][];
+        for(int i = 0; i < paths.length; i++) {
+            paths[i] = "images/" + EcoreUtil.generateUUID() + ".png";
+            contents[i] = i < 2 ? sharedContent : createBytes(random);
+        }
+
+        File file = createArchiveFile(paths, contents);
+
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setFile(file);
+
+        IDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForElement(dm).getElements().add(dm);
+        for(String path : paths) {
+            IDiagramModelImage image = IArchimateFactory.eINSTANCE.createDiagramModelImage();
+            image.setImagePath(path);
+            dm.getChildren().add(image);
+        }
+
+        ArchiveManager archiveManager = new ArchiveManager(model);
+        archiveManager.loadImages();
+
+        ByteArrayStorage storage = ArchiveManager.BYTE_ARRAY_STORAGE;
+
+        // Lazy entries with the same content share their bytes when read
+        assertSame(storage.getEntry(paths[0]), storage.getEntry(paths[1]));
+        assertEquals(paths[0], storage.getKey(sharedContent));
+
+        // Another program writes a different file in the same place
+        writeArchiveFile(file, new String[] { paths[2] }, new byte[][] { new byte[IMAGE_SIZE / 2] });
+
+        // The image that wasn't read is read from the copy of the file
+        assertArrayEquals(contents[2], storage.loadEntry(paths[2]));
+
+        // Saving writes every image
+        archiveManager.saveModel();
+        assertArchiveFile(file, paths, contents);
+
+        // Another program deletes the file
+        file.delete();
+        archiveManager.saveModel();
+        assertArchiveFile(file, paths, contents);
+
+        archiveManager.dispose();
+        assertFalse(storage.hasEntry(paths[0]));
+        assertNull(storage.getKey(sharedContent));
+    }
+
+    @Test
+    public void loadImages_LazySharedByModels() throws Exception {
+        Random random = new Random(5);
+
+        String[] paths = new String[IMAGES];
+        byte[][] contents = new byte[IMAGES][];
+        for(int i = 0; i < IMAGES; i++) {
+            paths[i] = "images/" + EcoreUtil.generateUUID() + ".png";
+            contents[i] = createBytes(random);
+        }
+
+        File file = createArchiveFile(paths, contents);
+
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setFile(file);
+        ArchiveManager archiveManager = new ArchiveManager(model);
+        archiveManager.loadImages();
+
+        ByteArrayStorage storage = ArchiveManager.BYTE_ARRAY_STORAGE;
+
+        // Another model uses the images, as when they are copied and pasted
+        for(String path : paths) {
+            storage.addReference(path);
+        }
+
+        file.delete();
+
+        // Closing the model reads the images that the other model still uses
+        archiveManager.dispose();
+
+        for(int i = 0; i < IMAGES; i++) {
+            assertFalse(storage.isLazyEntry(paths[i]));
+            assertArrayEquals(contents[i], storage.getEntry(paths[i]));
+            storage.releaseReference(paths[i]);
+            assertFalse(storage.hasEntry(paths[i]));
+        }
+    }
+
+    @Test
+    public void saveModel_StreamedToArchive() throws Exception {
+        File folder = Testing.getTempFolder("save");
+        File file = new File(folder, "test.archimate");
+
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        model.setName("Test");
+        model.setFile(file);
+
+        ArchiveManager archiveManager = new ArchiveManager(model);
+
+        // A PNG image and something else
+        byte[] png = createBytes(new Random(3));
+        png[0] = (byte)0x89;
+        png[1] = 'P';
+        png[2] = 'N';
+        png[3] = 'G';
+        byte[] other = new byte[IMAGE_SIZE];
+
+        String pngPath = "images/" + EcoreUtil.generateUUID() + ".png";
+        String otherPath = "images/" + EcoreUtil.generateUUID() + ".bmp";
+        ArchiveManager.BYTE_ARRAY_STORAGE.addByteContentEntry(pngPath, png);
+        ArchiveManager.BYTE_ARRAY_STORAGE.addByteContentEntry(otherPath, other);
+
+        IDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForElement(dm).getElements().add(dm);
+        for(String path : new String[] { pngPath, otherPath }) {
+            IDiagramModelImage image = IArchimateFactory.eINSTANCE.createDiagramModelImage();
+            image.setImagePath(path);
+            dm.getChildren().add(image);
+        }
+
+        archiveManager.saveModel();
+        // Save again over the existing file
+        archiveManager.saveModel();
+
+        // Only the model file is left
+        assertEquals(1, folder.listFiles().length);
+
+        // The model xml is the same as saving to a file
+        File xmlFile = new File(folder, "test.xml");
+        Resource resource = ArchimateResourceFactory.createResourceSet().createResource(URI.createFileURI(xmlFile.getAbsolutePath()));
+        resource.getContents().add(model);
+        resource.save(null);
+
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            InputStream in = zipFile.getInputStream(zipFile.getEntry("model.xml"));
+            assertArrayEquals(ArchiveManager.BYTE_ARRAY_STORAGE.getBytesFromFile(xmlFile), ArchiveManager.BYTE_ARRAY_STORAGE.getBytesFromStream(in));
+
+            // PNG is stored, other is compressed
+            assertEquals(ZipEntry.STORED, zipFile.getEntry(pngPath).getMethod());
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry(otherPath).getMethod());
+            assertTrue(zipFile.getEntry(otherPath).getCompressedSize() < IMAGE_SIZE);
+        }
+        finally {
+            zipFile.close();
+        }
+
+        archiveManager.dispose();
+    }
+
+    private void assertArchiveFile(File file, String[] paths, byte[][] contents) throws Exception {
+        ZipFile zipFile = new ZipFile(file);
+        try {
+            for(int i = 0; i < paths.length; i++) {
+                InputStream in = zipFile.getInputStream(zipFile.getEntry(paths[i]));
+                assertArrayEquals(contents[i], ArchiveManager.BYTE_ARRAY_STORAGE.getBytesFromStream(in));
+            }
+        }
+        finally {
+            zipFile.close();
+        }
+    }
+
+    private byte[] createBytes(Random random) {
+        byte[] bytes = new byte[IMAGE_SIZE];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private File createArchiveFile(String[] paths, byte[][] contents) throws Exception {
+        File file = Testing.getTempFile(".archimate");
+        writeArchiveFile(file, paths, contents);
+        return file;
+    }
+
+    private void writeArchiveFile(File file, String[] paths, byte[][] contents) throws Exception {
+        ZipOutputStream zOut = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            zOut.putNextEntry(new ZipEntry("model.xml"));
+            zOut.closeEntry();
+
+            for(int i = 0; i < paths.length; i++) {
+                zOut.putNextEntry(new ZipEntry(paths[i]));
+                zOut.write(contents[i]);
+                zOut.closeEntry();
+            }
+        }
+        finally {
+            zOut.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Test;
+
+
+
+@SuppressWarnings("nls")
+public class ByteArrayStorageTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ByteArrayStorageTests.class);
+    }
+
+    @Test
+    public void addByteContentEntry_SameContentIsShared() {
+        ByteArrayStorage storage = new ByteArrayStorage();
+
+        byte[] bytes1 = { 1, 2, 3, 4 };
+        byte[] bytes2 = { 1, 2, 3, 4 };
+        byte[] bytes3 = { 1, 2, 3, 5 };
+
+        storage.addByteContentEntry("images/1.png", bytes1);
+        storage.addByteContentEntry("images/2.png", bytes2);
+        storage.addByteContentEntry("images/3.png", bytes3);
+
+        assertSame(bytes1, storage.getEntry("images/2.png"));
+        assertSame(bytes3, storage.getEntry("images/3.png"));
+
+        assertEquals("images/1.png", storage.getKey(new byte[] { 1, 2, 3, 4 }));
+        assertEquals("images/3.png", storage.getKey(new byte[] { 1, 2, 3, 5 }));
+        assertNull(storage.getKey(new byte[] { 1, 2, 3 }));
+
+        // Remove the first, the second still has the content
+        storage.removeEntry("images/1.png");
+        assertFalse(storage.hasEntry("images/1.png"));
+        assertEquals("images/2.png", storage.getKey(new byte[] { 1, 2, 3, 4 }));
+
+        storage.removeEntry("images/2.png");
+        assertNull(storage.getKey(new byte[] { 1, 2, 3, 4 }));
+    }
+
+    @Test
+    public void getKey_HashCollisionIsVerified() {
+        // Every entry has the same hash
+        ByteArrayStorage storage = new ByteArrayStorage() {
+            @Override
+            String getHash(byte[] bytes) {
+                return "0";
+            }
+        };
+
+        storage.addByteContentEntry("images/1.png", new byte[] { 1 });
+        storage.addByteContentEntry("images/2.png", new byte[] { 2 });
+
+        assertEquals("images/1.png", storage.getKey(new byte[] { 1 }));
+        assertEquals("images/2.png", storage.getKey(new byte[] { 2 }));
+        assertNull(storage.getKey(new byte[] { 3 }));
+
+        storage.removeEntry("images/1.png");
+        assertNull(storage.getKey(new byte[] { 1 }));
+        assertEquals("images/2.png", storage.getKey(new byte[] { 2 }));
+    }
+
+    @Test
+    public void releaseReference_RemovesUnreferencedEntry() {
+        ByteArrayStorage storage = new ByteArrayStorage();
+        storage.addByteContentEntry("images/1.png", new byte[] { 1 });
+
+        storage.addReference("images/1.png");
+        storage.addReference("images/1.png");
+        assertEquals(2, storage.getReferenceCount("images/1.png"));
+
+        storage.releaseReference("images/1.png");
+        assertTrue(storage.hasEntry("images/1.png"));
+
+        storage.releaseReference("images/1.png");
+        assertFalse(storage.hasEntry("images/1.png"));
+        assertEquals(0, storage.getReferenceCount("images/1.png"));
+    }
+}
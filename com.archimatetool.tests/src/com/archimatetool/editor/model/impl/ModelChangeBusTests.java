@@ -0,0 +1,153 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.model.IModelChangeListener;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+
+
+@SuppressWarnings("nls")
+public class ModelChangeBusTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelChangeBusTests.class);
+    }
+
+    private static class Listener implements IModelChangeListener {
+        List<List<Notification>> received = new ArrayList<List<Notification>>();
+
+        @Override
+        public void modelChanged(IArchimateModel model, List<Notification> notifications) {
+            received.add(notifications);
+        }
+    }
+
+    private ModelChangeBus bus;
+    private IArchimateModel model1, model2;
+    private IArchimateElement element1, element2;
+
+    @Before
+    public void runBeforeEachTest() {
+        bus = new ModelChangeBus();
+
+        model1 = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model2 = IArchimateFactory.eINSTANCE.createArchimateModel();
+
+        element1 = createElement(model1);
+        element2 = createElement(model2);
+    }
+
+    @Test
+    public void notifyChanged_BatchedInTransaction() {
+        Listener listener = new Listener();
+        bus.addListener(listener, null);
+
+        // Not in a transaction
+        element1.setName("1");
+        assertEquals(1, listener.received.size());
+
+        // In a transaction
+        listener.received.clear();
+        bus.beginTransaction(model1);
+        assertTrue(bus.isInTransaction(model1));
+        element1.setName("2");
+        element1.setDocumentation("Doc");
+        element2.setName("3"); // Other model is not in a transaction
+        assertEquals(1, listener.received.size());
+
+        bus.endTransaction(model1);
+        assertFalse(bus.isInTransaction(model1));
+        assertEquals(2, listener.received.size());
+        assertEquals(2, listener.received.get(1).size());
+
+        // Empty transaction sends nothing
+        bus.beginTransaction(model1);
+        bus.endTransaction(model1);
+        assertEquals(2, listener.received.size());
+
+        bus.removeListener(listener);
+        element1.setName("4");
+        assertEquals(2, listener.received.size());
+    }
+
+    @Test
+    public void flush_SendsHeldBackNotifications() {
+        Listener listener = new Listener();
+        bus.addListener(listener, null);
+
+        bus.beginTransaction(model1);
+        element1.setName("1");
+        bus.flush();
+        assertEquals(1, listener.received.size());
+
+        // The transaction carries on
+        assertTrue(bus.isInTransaction(model1));
+        element1.setName("2");
+        element1.setDocumentation("Doc");
+        assertEquals(1, listener.received.size());
+
+        bus.endTransaction(model1);
+        assertEquals(2, listener.received.size());
+        assertEquals(2, listener.received.get(1).size());
+
+        // Nothing held back
+        bus.flush();
+        assertEquals(2, listener.received.size());
+    }
+
+    @Test
+    public void addListener_ModelAndFeature() {
+        Listener modelListener = new Listener();
+        bus.addListener(modelListener, model1);
+
+        Listener featureListener = new Listener();
+        bus.addListener(featureListener, null, IArchimatePackage.Literals.NAMEABLE__NAME);
+
+        element2.setName("1");
+        assertEquals(0, modelListener.received.size());
+        assertEquals(1, featureListener.received.size());
+
+        bus.beginTransaction(model1);
+        element1.setName("2");
+        element1.setDocumentation("Doc");
+        bus.endTransaction(model1);
+
+        assertEquals(2, modelListener.received.get(0).size());
+        assertEquals(1, featureListener.received.get(1).size());
+        assertEquals(IArchimatePackage.Literals.NAMEABLE__NAME, featureListener.received.get(1).get(0).getFeature());
+
+        // Only documentation
+        element1.setDocumentation("Doc 2");
+        assertEquals(2, featureListener.received.size());
+    }
+
+    private IArchimateElement createElement(final IArchimateModel model) {
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element.eAdapters().add(new AdapterImpl() {
+            @Override
+            public void notifyChanged(Notification msg) {
+                bus.notifyChanged(model, msg);
+            }
+        });
+        return element;
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.Testing;
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.util.ArchimateResourceFactory;
+import com.archimatetool.model.util.DiagramReferencesAdapter;
+
+
+@SuppressWarnings("nls")
+public class ModelSnapshotCacheTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ModelSnapshotCacheTests.class);
+    }
+
+    private File folder;
+    private File modelFile;
+    private ModelSnapshotCache cache;
+
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        folder = Testing.getTempFolder("snapshots");
+        modelFile = new File(folder, "model.archimate");
+        FileUtils.copyFile(Testing.TEST_MODEL_FILE, modelFile, false);
+        cache = new ModelSnapshotCache(folder);
+    }
+
+    @After
+    public void runAfterEachTest() throws IOException {
+        FileUtils.deleteFolder(folder);
+    }
+
+    @Test
+    public void loadSnapshot_SameAsModelFile() throws IOException {
+        IArchimateModel model = loadModel();
+        Resource modelResource = model.eResource();
+        cache.saveSnapshot(modelFile, model);
+        assertTrue(cache.getSnapshotFile(modelFile).exists());
+
+        // The model is put back in its Resource
+        assertSame(modelResource, model.eResource());
+        assertSame(model, modelResource.getContents().get(0));
+
+        Resource resource = ArchimateResourceFactory.createResource(modelFile);
+        assertTrue(cache.loadSnapshot(modelFile, resource));
+
+        IArchimateModel snapshotModel = (IArchimateModel)resource.getContents().get(0);
+        assertEquals(model.getName(), snapshotModel.getName());
+
+        // Same objects with the same IDs
+        List<String> ids = new ArrayList<String>();
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IIdentifier) {
+                ids.add(((IIdentifier)eObject).getId());
+            }
+        }
+
+        List<String> snapshotIds = new ArrayList<String>();
+        DiagramReferencesAdapter adapter = DiagramReferencesAdapter.getAdapter(snapshotModel);
+
+        for(Iterator<EObject> iter = snapshotModel.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IIdentifier) {
+                snapshotIds.add(((IIdentifier)eObject).getId());
+            }
+            // Model adapters are filled as the snapshot is read
+            if(eObject instanceof IDiagramModelArchimateObject) {
+                IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
+                assertTrue(adapter.getReferences(dmo.getArchimateElement()).contains(dmo));
+            }
+        }
+
+        assertEquals(ids, snapshotIds);
+    }
+
+    @Test
+    public void loadSnapshot_ModelFileChanged() throws IOException {
+        cache.saveSnapshot(modelFile, loadModel());
+
+        modelFile.setLastModified(modelFile.lastModified() - 10000);
+
+        Resource resource = ArchimateResourceFactory.createResource(modelFile);
+        assertFalse(cache.loadSnapshot(modelFile, resource));
+        assertTrue(resource.getContents().isEmpty());
+    }
+
+    @Test
+    public void loadSnapshot_NoSnapshot() {
+        Resource resource = ArchimateResourceFactory.createResource(modelFile);
+        assertFalse(cache.loadSnapshot(modelFile, resource));
+    }
+
+    @Test
+    public void pruneSnapshots_KeepsOpenFiles() throws IOException {
+        File otherFile = new File(folder, "other.archimate");
+        FileUtils.copyFile(Testing.TEST_MODEL_FILE, otherFile, false);
+
+        cache.saveSnapshot(modelFile, loadModel());
+        cache.saveSnapshot(otherFile, loadModel(otherFile));
+
+        // Left by a snapshot that was not finished
+        File tmpFile = File.createTempFile("~model", ".tmp", folder);
+
+        cache.pruneSnapshots(Collections.singletonList(modelFile));
+        assertTrue(cache.getSnapshotFile(modelFile).exists());
+        assertFalse(cache.getSnapshotFile(otherFile).exists());
+        assertFalse(tmpFile.exists());
+
+        // The model files are not touched
+        assertTrue(modelFile.exists());
+        assertTrue(otherFile.exists());
+
+        cache.deleteSnapshot(modelFile);
+        assertFalse(cache.getSnapshotFile(modelFile).exists());
+    }
+
+    @Test
+    public void saveScheduledSnapshots_OnlyScheduledAndUnchanged() throws IOException {
+        File otherFile = new File(folder, "other.archimate");
+        FileUtils.copyFile(Testing.TEST_MODEL_FILE, otherFile, false);
+        File changedFile = new File(folder, "changed.archimate");
+        FileUtils.copyFile(Testing.TEST_MODEL_FILE, changedFile, false);
+
+        IArchimateModel model = loadModel();
+        model.setFile(modelFile);
+        IArchimateModel otherModel = loadModel(otherFile);
+        otherModel.setFile(otherFile);
+        IArchimateModel changedModel = loadModel(changedFile);
+        changedModel.setFile(changedFile);
+
+        cache.scheduleSnapshot(modelFile);
+        cache.scheduleSnapshot(changedFile);
+
+        // Changed since it was scheduled
+        changedFile.setLastModified(changedFile.lastModified() - 10000);
+
+        cache.saveScheduledSnapshots(Arrays.asList(model, otherModel, changedModel));
+
+        assertTrue(cache.getSnapshotFile(modelFile).exists());
+        assertFalse(cache.getSnapshotFile(otherFile).exists());
+        assertFalse(cache.getSnapshotFile(changedFile).exists());
+
+        // Saved once only
+        cache.getSnapshotFile(modelFile).delete();
+        cache.saveScheduledSnapshots(Arrays.asList(model));
+        assertFalse(cache.getSnapshotFile(modelFile).exists());
+    }
+
+    private IArchimateModel loadModel() throws IOException {
+        return loadModel(modelFile);
+    }
+
+    private IArchimateModel loadModel(File file) throws IOException {
+        Resource resource = ArchimateResourceFactory.createResource(file);
+        resource.load(null);
+        return (IArchimateModel)resource.getContents().get(0);
+    }
+
+}
@@ -281,6 +281,28 @@ public class FileUtilsTests {
         assertTrue("Target File should exist", tgtFile.exists()); //$NON-NLS-1$
     }
     
+    @Test
+    public void replaceFile() throws Exception {
+        File folder = Testing.getTempFolder("replace"); //$NON-NLS-1$
+        File srcFile = new File(folder, "new.txt"); //$NON-NLS-1$
+        File tgtFile = new File(folder, "temp.xml"); //$NON-NLS-1$
+        
+        FileUtils.copyFile(new File(Testing.TESTDATA_FOLDER, "Archisurance.archimate"), tgtFile, false); //$NON-NLS-1$
+        FileUtils.copyFile(new File(Testing.TESTDATA_FOLDER, "readme.txt"), srcFile, false); //$NON-NLS-1$
+        long length = srcFile.length();
+        
+        // A backup of the Target File made by the user or the app
+        File bakFile = new File(folder, "temp.xml.bak"); //$NON-NLS-1$
+        FileUtils.copyFile(tgtFile, bakFile, false);
+        long bakLength = bakFile.length();
+        
+        FileUtils.replaceFile(srcFile, tgtFile);
+        assertFalse("Source File should not exist", srcFile.exists()); //$NON-NLS-1$
+        assertEquals("Target File should be replaced", length, tgtFile.length()); //$NON-NLS-1$
+        assertEquals("Backup File should be kept", bakLength, bakFile.length()); //$NON-NLS-1$
+        assertEquals("Only the Target and Backup Files should exist", 2, folder.listFiles().length); //$NON-NLS-1$
+    }
+    
     // ---------------------------------------------------------------------------------------------
     
     @Test
@@ -0,0 +1,156 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.editor.views.tree.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IProperty;
+
+
+@SuppressWarnings("nls")
+public class SearchIndexTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(SearchIndexTests.class);
+    }
+
+    private IArchimateModel model;
+    private IArchimateElement element;
+
+    @Before
+    public void runBeforeEachTest() {
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        element.setName("Customer Application");
+        model.getDefaultFolderForElement(element).getElements().add(element);
+    }
+
+    @Test
+    public void getOrCreateIndex() {
+        assertNull(SearchIndex.getIndex(model));
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+        assertSame(index, SearchIndex.getIndex(model));
+        assertSame(index, SearchIndex.getOrCreateIndex(model));
+
+        SearchIndex.removeIndex(model);
+        assertNull(SearchIndex.getIndex(model));
+    }
+
+    @Test
+    public void getCandidates_ExistingObjectsAreIndexed() {
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+
+        // The model, its folders and the element
+        assertTrue(index.getObjects().contains(model));
+        assertTrue(index.getObjects().contains(model.getFolders().get(0)));
+        assertTrue(index.getObjects().contains(element));
+
+        assertTrue(index.getCandidates("application").contains(element));
+        assertTrue(index.getCandidates("cust").contains(element));
+        assertFalse(index.getCandidates("supplier").contains(element));
+
+        // Short text gets everything
+        assertEquals(index.getObjects().size(), index.getCandidates("x").size());
+
+        assertEquals("customer application", index.getEntry(element).name);
+    }
+
+    @Test
+    public void getCandidates_UpdatedFromNotifications() {
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+        int count = index.getModificationCount();
+
+        // Name
+        element.setName("Supplier");
+        assertFalse(index.getCandidates("application").contains(element));
+        assertTrue(index.getCandidates("supplier").contains(element));
+        assertTrue(index.getModificationCount() != count);
+
+        // Documentation
+        element.setDocumentation("Some Documentation");
+        assertTrue(index.getCandidates("documentation").contains(element));
+
+        // Property added and changed
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Key");
+        property.setValue("Value One");
+        element.getProperties().add(property);
+        assertTrue(index.getCandidates("value one").contains(element));
+        assertEquals("Key", index.getEntry(element).propertyKeys[0]);
+
+        property.setValue("Value Two");
+        assertFalse(index.getCandidates("value one").contains(element));
+        assertTrue(index.getCandidates("value two").contains(element));
+
+        // Property removed
+        element.getProperties().remove(property);
+        assertTrue(index.getCandidates("value").isEmpty());
+
+        // Element moved to a sub-folder and removed
+        IFolder folder = IArchimateFactory.eINSTANCE.createFolder();
+        folder.setName("Sub Folder");
+        model.getDefaultFolderForElement(element).getFolders().add(folder);
+        folder.getElements().add(element);
+        assertTrue(index.getCandidates("supplier").contains(element));
+        assertTrue(index.getCandidates("sub folder").contains(folder));
+
+        folder.getElements().remove(element);
+        assertTrue(index.getCandidates("supplier").isEmpty());
+        assertNull(index.getEntry(element));
+    }
+
+    @Test
+    public void createSnapshot_NotChangedByIndex() {
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+        int count = index.getModificationCount();
+
+        SearchIndex.Snapshot snapshot = index.createSnapshot("customer");
+        assertEquals(count, snapshot.modificationCount);
+        assertEquals(1, snapshot.objects.size());
+        assertSame(element, snapshot.objects.get(0));
+        assertEquals("customer application", snapshot.entries.get(0).name);
+
+        element.setName("Supplier");
+        element.getProperties().add(IArchimateFactory.eINSTANCE.createProperty());
+
+        assertEquals(count, snapshot.modificationCount);
+        assertEquals(1, snapshot.objects.size());
+        assertEquals("customer application", snapshot.entries.get(0).name);
+        assertEquals(0, snapshot.entries.get(0).propertyKeys.length);
+    }
+
+    @Test
+    public void getCandidates_DiagramObjectsNotIndexed() {
+        SearchIndex index = SearchIndex.getOrCreateIndex(model);
+
+        IDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        model.getDefaultFolderForElement(dm).getElements().add(dm);
+
+        IDiagramModelArchimateObject dmo = IArchimateFactory.eINSTANCE.createDiagramModelArchimateObject();
+        dmo.setArchimateElement(element);
+        dm.getChildren().add(dmo);
+
+        assertNotNull(index.getEntry(dm));
+        assertNull(index.getEntry(dmo));
+    }
+}
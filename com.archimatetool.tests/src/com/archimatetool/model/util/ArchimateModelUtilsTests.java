@@ -22,6 +22,7 @@ import org.junit.Test;
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IRelationship;
 import com.archimatetool.model.util.ArchimateModelUtils;
 
@@ -235,7 +236,47 @@ public class ArchimateModelUtilsTests {
         assertEquals(0, ArchimateModelUtils.getTargetRelationships(element1).size());
         assertEquals(2, ArchimateModelUtils.getTargetRelationships(element2).size());
     }
-    
+
+    @Test
+    public void getRelationships_Reconnected_And_Removed() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        IArchimateElement element1 = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForElement(element1).getElements().add(element1);
+
+        IArchimateElement element2 = IArchimateFactory.eINSTANCE.createBusinessRole();
+        model.getDefaultFolderForElement(element2).getElements().add(element2);
+
+        IArchimateElement element3 = IArchimateFactory.eINSTANCE.createBusinessRole();
+        model.getDefaultFolderForElement(element3).getElements().add(element3);
+
+        IRelationship relation = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+        relation.setSource(element1);
+        relation.setTarget(element2);
+        model.getDefaultFolderForElement(relation).getElements().add(relation);
+
+        // Reconnect target
+        relation.setTarget(element3);
+        assertEquals(0, ArchimateModelUtils.getTargetRelationships(element2).size());
+        assertEquals(relation, ArchimateModelUtils.getTargetRelationships(element3).get(0));
+
+        // Reconnect source to the same element as the target
+        relation.setSource(element3);
+        assertEquals(0, ArchimateModelUtils.getSourceRelationships(element1).size());
+        assertEquals(1, ArchimateModelUtils.getRelationships(element3).size());
+
+        // Remove
+        model.getDefaultFolderForElement(relation).getElements().remove(relation);
+        assertTrue(ArchimateModelUtils.getRelationships(element3).isEmpty());
+
+        // Add back in a sub-folder
+        IFolder subFolder = IArchimateFactory.eINSTANCE.createFolder();
+        model.getDefaultFolderForElement(relation).getFolders().add(subFolder);
+        subFolder.getElements().add(relation);
+        assertEquals(1, ArchimateModelUtils.getRelationships(element3).size());
+    }
+
     
     // ---------------------------------------------------------------------------------------------
     // public EObject getObjectByID(IArchimateModel model, String id);
@@ -259,5 +300,21 @@ public class ArchimateModelUtilsTests {
         element = ArchimateModelUtils.getObjectByID(model, newElement2.getId());
         assertEquals(newElement2, element);
     }
+
+    @Test
+    public void getObjectByID_ChangedAndRemoved() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+
+        IArchimateElement newElement = IArchimateFactory.eINSTANCE.createApplicationFunction();
+        model.getDefaultFolderForElement(newElement).getElements().add(newElement);
+
+        String oldID = newElement.getId();
+        newElement.setId("newID");
+        assertNull(ArchimateModelUtils.getObjectByID(model, oldID));
+        assertEquals(newElement, ArchimateModelUtils.getObjectByID(model, "newID"));
+
+        model.getDefaultFolderForElement(newElement).getElements().remove(newElement);
+        assertNull(ArchimateModelUtils.getObjectByID(model, "newID"));
+    }
     
 } 
@@ -0,0 +1,161 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.XMLResource;
+import org.junit.Test;
+
+import com.archimatetool.Testing;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.IRelationship;
+
+
+
+/**
+ * ArchimateResourceFactory Tests
+ *
+ * @author Phillip Beauvoir
+ */
+public class ArchimateResourceFactoryTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ArchimateResourceFactoryTests.class);
+    }
+
+    @Test
+    public void createResource_HasLoadOptions() {
+        XMLResource resource = (XMLResource)ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        Map<Object, Object> options = resource.getDefaultLoadOptions();
+
+        assertNotNull(options.get(XMLResource.OPTION_USE_PARSER_POOL));
+        assertNotNull(options.get(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP));
+        assertEquals(Boolean.TRUE, options.get(XMLResource.OPTION_DEFER_ATTACHMENT));
+        assertEquals(Boolean.FALSE, options.get(XMLResource.OPTION_USE_DEPRECATED_METHODS));
+    }
+
+    @Test
+    public void load_ReferencesResolved() throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        int count = 0;
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IIdentifier) {
+                assertEquals(eObject, resource.getEObject(((IIdentifier)eObject).getId()));
+            }
+            if(eObject instanceof IRelationship) {
+                assertNotNull(((IRelationship)eObject).getSource());
+                assertNotNull(((IRelationship)eObject).getTarget());
+                count++;
+            }
+        }
+
+        assertTrue(count > 0);
+    }
+
+    @Test
+    public void load_SameAsPlainLoad() throws Exception {
+        // Without the ID map each reference is found by iterating the model so only load a small model
+        Resource plainResource = loadResource(Testing.TEST_MODEL_FILE, false);
+        Resource optimisedResource = loadResource(Testing.TEST_MODEL_FILE, true);
+
+        Iterator<EObject> plainIter = plainResource.getAllContents();
+        Iterator<EObject> optimisedIter = optimisedResource.getAllContents();
+        int count = 0;
+
+        while(plainIter.hasNext()) {
+            EObject plain = plainIter.next();
+            EObject optimised = optimisedIter.next();
+            assertEquals(plain.eClass(), optimised.eClass());
+            if(plain instanceof IIdentifier) {
+                assertEquals(((IIdentifier)plain).getId(), ((IIdentifier)optimised).getId());
+            }
+            count++;
+        }
+
+        assertFalse(optimisedIter.hasNext());
+        assertTrue(count > 0);
+    }
+
+    /**
+     * Load a model file
+     * @param optimised If true load with the default load options, otherwise with them turned off
+     */
+    static Resource loadResource(File file, boolean optimised) throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(file);
+
+        Map<Object, Object> options = null;
+        if(!optimised) {
+            options = new HashMap<Object, Object>();
+            options.put(XMLResource.OPTION_USE_PARSER_POOL, null);
+            options.put(XMLResource.OPTION_USE_XML_NAME_TO_FEATURE_MAP, null);
+            options.put(XMLResource.OPTION_USE_DEPRECATED_METHODS, Boolean.TRUE);
+            options.put(XMLResource.OPTION_DEFER_ATTACHMENT, Boolean.FALSE);
+            options.put(XMLResource.OPTION_DEFER_IDREF_RESOLUTION, Boolean.FALSE);
+            options.put(XMLResource.OPTION_CONFIGURATION_CACHE, Boolean.FALSE);
+            ((ArchimateResource)resource).setIntrinsicIDToEObjectMap(null);
+        }
+
+        resource.load(options);
+
+        return resource;
+    }
+
+    /**
+     * Save a model made of scale copies of the Archisurance model to a temporary file
+     */
+    static File createScaledModelFile(int scale) throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        IArchimateModel scaledModel = EcoreUtil.copy(model);
+        IDAdapter adapter = IDAdapter.getAdapter(scaledModel);
+
+        for(int i = 1; i < scale; i++) {
+            for(IFolder folder : EcoreUtil.copyAll(model.getFolders())) {
+                folder.setId(adapter.getNewID());
+                for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext();) {
+                    EObject eObject = iter.next();
+                    if(eObject instanceof IIdentifier) {
+                        ((IIdentifier)eObject).setId(adapter.getNewID());
+                    }
+                }
+                scaledModel.getFolder(folder.getType()).getFolders().add(folder);
+            }
+        }
+
+        File file = Testing.getTempFile(".archimate"); //$NON-NLS-1$
+        Resource scaledResource = ArchimateResourceFactory.createResource(file);
+        scaledResource.getContents().add(scaledModel);
+        scaledResource.save(null);
+
+        return file;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import com.archimatetool.model.IArchimatePackage;
+
+
+
+/**
+ * Micro-benchmark of loading the Archisurance model scaled by COMPARE_SCALE and by SCALE.
+ * "Plain" loads with the load options turned off, "Optimised" loads with the default load options.
+ * The time and, where the JVM can measure it, the bytes allocated by each load are printed.<p>
+ *
+ * This is not a unit test and is not run with the tests. Run it as a Java application from the tests plug-in folder.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class ArchimateResourceLoadBenchmark {
+
+    /**
+     * Scale factor for the benchmark. The Archisurance model has over 700 objects so this is over 100,000 objects.
+     */
+    private static final int SCALE = 150;
+
+    /**
+     * Scale factor for comparing with the plain load. Without the ID map each reference is found by iterating
+     * the model so the plain load of the full scale model takes too long to run.
+     */
+    private static final int COMPARE_SCALE = 3;
+
+    public static void main(String[] args) throws Exception {
+        // Register the package as there is no plug-in registry when run as a Java application
+        IArchimatePackage.eINSTANCE.getNsURI();
+
+        File file = ArchimateResourceFactoryTests.createScaledModelFile(COMPARE_SCALE);
+
+        // Warm up
+        loadModel(file, COMPARE_SCALE, false);
+        loadModel(file, COMPARE_SCALE, true);
+
+        loadModel(file, COMPARE_SCALE, false);
+        loadModel(file, COMPARE_SCALE, true);
+
+        file.delete();
+
+        file = ArchimateResourceFactoryTests.createScaledModelFile(SCALE);
+        loadModel(file, SCALE, true);
+        file.delete();
+    }
+
+    private static void loadModel(File file, int scale, boolean optimised) throws Exception {
+        long bytes = getAllocatedBytes();
+        long time = System.currentTimeMillis();
+
+        Resource resource = ArchimateResourceFactoryTests.loadResource(file, optimised);
+
+        time = System.currentTimeMillis() - time;
+        bytes = getAllocatedBytes() - bytes;
+
+        int count = 0;
+        for(Iterator<EObject> iter = resource.getAllContents(); iter.hasNext();) {
+            iter.next();
+            count++;
+        }
+
+        System.out.println("ArchimateResource benchmark " + (optimised ? "Optimised" : "Plain") + " load x" + scale
+                + " (" + count + " objects): " + time + "ms, " + (bytes / 1024) + "KB allocated");
+    }
+
+    /**
+     * @return The bytes allocated by this thread, or 0 if the JVM doesn't support measuring it
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        try {
+            // Only on JVMs that have the com.sun.management extension
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            Method method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            return (Long)method.invoke(bean, Thread.currentThread().getId());
+        }
+        catch(Exception ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.emf.ecore.EClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IRelationship;
+import com.archimatetool.model.util.DerivedRelationsUtils.TooComplicatedException;
+
+
+
+/**
+ * DerivedRelationsEngine Tests
+ *
+ * @author Phillip Beauvoir
+ */
+public class DerivedRelationsEngineTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(DerivedRelationsEngineTests.class);
+    }
+
+    private IArchimateModel model;
+
+    @Before
+    public void runBeforeEachTest() {
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+    }
+
+    @Test
+    public void findChains_WeakestStopsSearch() {
+        IArchimateElement element1 = createElement();
+        IArchimateElement element2 = createElement();
+        IArchimateElement element3 = createElement();
+        IArchimateElement element4 = createElement();
+
+        // Direct relation is not a chain
+        createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), element1, element4);
+
+        createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), element1, element2);
+        createRelationship(IArchimatePackage.eINSTANCE.getAggregationRelationship(), element2, element4);
+
+        DerivedRelationsEngine engine = new DerivedRelationsEngine(element1, element4, null);
+        List<List<IRelationship>> chains = engine.findChains();
+        assertEquals(1, chains.size());
+        assertEquals(2, chains.get(0).size());
+        assertTrue(engine.isComplete());
+
+        // Two more chains, one of which is the weakest possible
+        createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), element2, element3);
+        createRelationship(IArchimatePackage.eINSTANCE.getAssociationRelationship(), element3, element4);
+        createRelationship(IArchimatePackage.eINSTANCE.getUsedByRelationship(), element3, element4);
+
+        // All chains
+        chains = new DerivedRelationsEngine(element1, element4, null).findChains();
+        assertEquals(3, chains.size());
+
+        // The search stops at the weakest possible
+        chains = new DerivedRelationsEngine(element1, element4, null, true).findChains();
+        assertEquals(2, chains.size());
+        assertEquals(IArchimatePackage.eINSTANCE.getAssociationRelationship(), DerivedRelationsUtils.getWeakestType(chains.get(chains.size() - 1)));
+        for(List<IRelationship> chain : chains) {
+            assertEquals(element1, chain.get(0).getSource());
+            assertEquals(element4, chain.get(chain.size() - 1).getTarget());
+        }
+
+        // No way back
+        assertTrue(new DerivedRelationsEngine(element4, element1, null).findChains().isEmpty());
+    }
+
+    @Test
+    public void findChains_LongChain() {
+        IArchimateElement first = createElement();
+        IArchimateElement element = first;
+
+        for(int i = 0; i < 10000; i++) {
+            IArchimateElement next = createElement();
+            createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), element, next);
+            element = next;
+        }
+
+        List<List<IRelationship>> chains = new DerivedRelationsEngine(first, element, null).findChains();
+        assertEquals(1, chains.size());
+        assertEquals(10000, chains.get(0).size());
+    }
+
+    @Test
+    public void findChains_Cancelled() throws TooComplicatedException {
+        // A lattice with a very large number of paths. The only Association is on the last branch to be searched.
+        IArchimateElement first = createElement();
+        IArchimateElement[] previous = { createElement(), createElement() };
+        createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), first, previous[0]);
+        createRelationship(IArchimatePackage.eINSTANCE.getAssociationRelationship(), first, previous[1]);
+
+        for(int i = 0; i < 30; i++) {
+            IArchimateElement[] next = { createElement(), createElement() };
+            for(IArchimateElement source : previous) {
+                for(IArchimateElement target : next) {
+                    createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), source, target);
+                }
+            }
+            previous = next;
+        }
+
+        IArchimateElement last = createElement();
+        for(IArchimateElement source : previous) {
+            createRelationship(IArchimatePackage.eINSTANCE.getCompositionRelationship(), source, last);
+        }
+
+        // Stops at the maximum
+        DerivedRelationsEngine engine = new DerivedRelationsEngine(first, last, null);
+        assertEquals(DerivedRelationsEngine.MAX_CHAINS, engine.findChains().size());
+        assertFalse(engine.isComplete());
+        assertFalse(engine.isCancelled());
+
+        // Not all chains were found but the ones found so far are returned
+        assertEquals(DerivedRelationsEngine.MAX_CHAINS, DerivedRelationsUtils.getDerivedRelationshipChains(first, last, null).size());
+
+        // Cancelled
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        engine = new DerivedRelationsEngine(first, last, monitor);
+        assertTrue(engine.findChains().size() < DerivedRelationsEngine.MAX_CHAINS);
+        assertFalse(engine.isComplete());
+        assertTrue(engine.isCancelled());
+
+        // Cancelled so the search is too complicated
+        try {
+            DerivedRelationsUtils.getDerivedRelationshipChains(first, last, monitor);
+            fail("Should have thrown TooComplicatedException"); //$NON-NLS-1$
+        }
+        catch(TooComplicatedException ex) {
+        }
+    }
+
+    private IArchimateElement createElement() {
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForElement(element).getElements().add(element);
+        return element;
+    }
+
+    private IRelationship createRelationship(EClass eClass, IArchimateElement source, IArchimateElement target) {
+        IRelationship relation = (IRelationship)IArchimateFactory.eINSTANCE.create(eClass);
+        relation.setSource(source);
+        relation.setTarget(target);
+        model.getDefaultFolderForElement(relation).getElements().add(relation);
+        return relation;
+    }
+}
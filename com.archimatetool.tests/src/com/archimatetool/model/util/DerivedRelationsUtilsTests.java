@@ -10,6 +10,9 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import junit.framework.JUnit4TestAdapter;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -24,6 +27,7 @@ import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IRelationship;
 import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.model.util.DerivedRelationsUtils;
+import com.archimatetool.model.util.RelationshipsAdapter.IDerivedChainListener;
 
 
 
@@ -196,4 +200,56 @@ public class DerivedRelationsUtilsTests {
         assertTrue(DerivedRelationsUtils.isInDerivedChain(relation3));
        
     }
+    
+    @Test
+    public void isInDerivedChain3_CachedResultInvalidated() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        IArchimateElement element1 = IArchimateFactory.eINSTANCE.createBusinessProcess();
+        model.getDefaultFolderForElement(element1).getElements().add(element1);
+        
+        IArchimateElement element2 = IArchimateFactory.eINSTANCE.createBusinessService();
+        model.getDefaultFolderForElement(element2).getElements().add(element2);
+        
+        IArchimateElement element3 = IArchimateFactory.eINSTANCE.createBusinessRole();
+        model.getDefaultFolderForElement(element3).getElements().add(element3);
+        
+        IRelationship relation1 = IArchimateFactory.eINSTANCE.createRealisationRelationship();
+        relation1.setSource(element1);
+        relation1.setTarget(element2);
+        model.getDefaultFolderForElement(relation1).getElements().add(relation1);
+        
+        final Set<IRelationship> changed = new HashSet<IRelationship>();
+        RelationshipsAdapter.getAdapter(model).addDerivedChainListener(new IDerivedChainListener() {
+            @Override
+            public void derivedChainChanged(Set<IRelationship> relations) {
+                changed.addAll(relations);
+            }
+        });
+        
+        assertFalse(DerivedRelationsUtils.isInDerivedChain(relation1));
+
+        // Add a relation to make a chain
+        IRelationship relation2 = IArchimateFactory.eINSTANCE.createUsedByRelationship();
+        relation2.setSource(element2);
+        relation2.setTarget(element3);
+        model.getDefaultFolderForElement(relation2).getElements().add(relation2);
+        
+        assertTrue(changed.contains(relation1));
+        assertTrue(DerivedRelationsUtils.isInDerivedChain(relation1));
+        assertTrue(DerivedRelationsUtils.isInDerivedChain(relation2));
+        
+        // Re-connect it to break the chain
+        changed.clear();
+        relation2.setSource(element3);
+        assertTrue(changed.contains(relation1));
+        assertFalse(DerivedRelationsUtils.isInDerivedChain(relation1));
+        
+        // Re-connect it and then remove it
+        relation2.setSource(element2);
+        assertTrue(DerivedRelationsUtils.isInDerivedChain(relation1));
+        ((IFolder)relation2.eContainer()).getElements().remove(relation2);
+        assertFalse(DerivedRelationsUtils.isInDerivedChain(relation1));
+    }
 } 
@@ -0,0 +1,89 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.junit.Test;
+
+import com.archimatetool.Testing;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IDiagramModelContainer;
+
+
+
+/**
+ * DiagramReferencesAdapter Tests
+ *
+ * @author Phillip Beauvoir
+ */
+public class DiagramReferencesAdapterTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(DiagramReferencesAdapterTests.class);
+    }
+
+    @Test
+    public void getReferences_LoadedModel() throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        DiagramReferencesAdapter adapter = DiagramReferencesAdapter.getAdapter(model);
+        assertNotNull(adapter);
+
+        int count = 0;
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelArchimateObject) {
+                IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
+                assertTrue(adapter.getReferences(dmo.getArchimateElement()).contains(dmo));
+                count++;
+            }
+            if(eObject instanceof IDiagramModelArchimateConnection) {
+                IDiagramModelArchimateConnection connection = (IDiagramModelArchimateConnection)eObject;
+                assertTrue(adapter.getReferences(connection.getRelationship()).contains(connection));
+                count++;
+            }
+        }
+
+        assertTrue(count > 0);
+    }
+
+    @Test
+    public void getReferences_ComponentRemoved() throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        DiagramReferencesAdapter adapter = DiagramReferencesAdapter.getAdapter(model);
+
+        for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelArchimateObject) {
+                IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
+                assertTrue(adapter.getReferences(dmo.getArchimateElement()).contains(dmo));
+                ((IDiagramModelContainer)dmo.eContainer()).getChildren().remove(dmo);
+                assertFalse(adapter.getReferences(dmo.getArchimateElement()).contains(dmo));
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+
+import com.archimatetool.Testing;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
+
+
+
+/**
+ * Micro-benchmark of the IDAdapter and its IDRegistry using the Archisurance model scaled by SCALE.
+ * "Create" allocates new IDs for each copy as in a paste or import.
+ * "Register" attaches the copies, with their IDs, to a new model as happens when de-serialising from file.
+ * "Release" removes the copies from the model.<p>
+ *
+ * This is not a unit test and is not run with the tests. Run it as a Java application from the tests plug-in folder.
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class IDAdapterBenchmark {
+
+    /**
+     * Scale factor for the benchmark. The Archisurance model has over 700 objects so this is over 70,000 objects.
+     */
+    private static final int SCALE = 100;
+
+    public static void main(String[] args) throws Exception {
+        // Register the package as there is no plug-in registry when run as a Java application
+        IArchimatePackage.eINSTANCE.getNsURI();
+
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        // Warm up
+        run(model, 10);
+
+        run(model, SCALE);
+    }
+
+    private static void run(IArchimateModel model, int scale) {
+        IArchimateModel scaledModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        scaledModel.setDefaults();
+        IDAdapter adapter = IDAdapter.getAdapter(scaledModel);
+
+        // Create
+        long time = System.currentTimeMillis();
+
+        for(int i = 0; i < scale; i++) {
+            for(IFolder folder : EcoreUtil.copyAll(model.getFolders())) {
+                folder.setId(adapter.getNewID());
+                for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext();) {
+                    EObject eObject = iter.next();
+                    if(eObject instanceof IIdentifier) {
+                        ((IIdentifier)eObject).setId(adapter.getNewID());
+                    }
+                }
+                addFolder(scaledModel, folder);
+            }
+        }
+
+        System.out.println("IDAdapter benchmark create x" + scale + ": " + (System.currentTimeMillis() - time) + "ms");
+
+        // Register
+        IArchimateModel loadedModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        IFolder[] folders = scaledModel.getFolders().toArray(new IFolder[scaledModel.getFolders().size()]);
+
+        time = System.currentTimeMillis();
+
+        for(IFolder folder : folders) {
+            loadedModel.getFolders().add(folder);
+        }
+
+        System.out.println("IDAdapter benchmark register x" + scale + ": " + (System.currentTimeMillis() - time) + "ms");
+
+        // Release
+        time = System.currentTimeMillis();
+
+        loadedModel.getFolders().clear();
+
+        System.out.println("IDAdapter benchmark release x" + scale + ": " + (System.currentTimeMillis() - time) + "ms");
+    }
+
+    private static void addFolder(IArchimateModel model, IFolder folder) {
+        IFolder parent = model.getFolder(folder.getType());
+        if(parent != null) {
+            parent.getFolders().add(folder);
+        }
+        else {
+            model.getFolders().add(folder);
+        }
+    }
+}
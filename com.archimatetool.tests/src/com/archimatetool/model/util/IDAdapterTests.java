@@ -0,0 +1,157 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.junit.Test;
+
+import com.archimatetool.Testing;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IIdentifier;
+
+
+
+/**
+ * IDAdapter Tests
+ *
+ * @author Phillip Beauvoir
+ */
+public class IDAdapterTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(IDAdapterTests.class);
+    }
+
+    /**
+     * Number of copies of the Archisurance model in the copies test
+     */
+    private static final int COPIES = 3;
+
+    @Test
+    public void getNewID_Unique() {
+        IDAdapter adapter = new IDAdapter();
+        Set<String> ids = new HashSet<String>();
+
+        for(int i = 0; i < 10000; i++) {
+            assertTrue(ids.add(adapter.getNewID()));
+        }
+    }
+
+    @Test
+    public void idReleasedAndRegisteredAgain() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+
+        IFolder folder = IArchimateFactory.eINSTANCE.createFolder();
+        model.getDefaultFolderForElement(IArchimateFactory.eINSTANCE.createBusinessActor()).getFolders().add(folder);
+
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        folder.getElements().add(element);
+        String id = element.getId();
+        assertNotNull(id);
+
+        IDAdapter adapter = IDAdapter.getAdapter(model);
+        assertTrue(adapter.isRegistered(id));
+
+        // Remove the parent folder and add it back as in an Undo
+        IFolder parent = (IFolder)folder.eContainer();
+        parent.getFolders().remove(folder);
+        assertNull(ArchimateModelUtils.getObjectByID(model, id));
+        assertFalse(adapter.isRegistered(id));
+
+        parent.getFolders().add(folder);
+        assertEquals(element, ArchimateModelUtils.getObjectByID(model, id));
+        assertEquals(id, element.getId());
+        assertTrue(adapter.isRegistered(id));
+    }
+
+    /**
+     * Copies of the Archisurance model are given new IDs as in a paste or import, then attached with their IDs
+     * to a new model as happens when de-serialising from file. The IDs are released when the copies are removed.
+     */
+    @Test
+    public void copiesRegisteredAndReleased() throws Exception {
+        Resource resource = ArchimateResourceFactory.createResource(Testing.TEST_MODEL_FILE);
+        resource.load(null);
+        IArchimateModel model = (IArchimateModel)resource.getContents().get(0);
+
+        IArchimateModel copiesModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        copiesModel.setDefaults();
+        IDAdapter adapter = IDAdapter.getAdapter(copiesModel);
+
+        for(int i = 0; i < COPIES; i++) {
+            for(IFolder folder : EcoreUtil.copyAll(model.getFolders())) {
+                folder.setId(adapter.getNewID());
+                for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext();) {
+                    EObject eObject = iter.next();
+                    if(eObject instanceof IIdentifier) {
+                        ((IIdentifier)eObject).setId(adapter.getNewID());
+                    }
+                }
+                addFolder(copiesModel, folder);
+            }
+        }
+
+        IArchimateModel loadedModel = IArchimateFactory.eINSTANCE.createArchimateModel();
+        IFolder[] folders = copiesModel.getFolders().toArray(new IFolder[copiesModel.getFolders().size()]);
+        for(IFolder folder : folders) {
+            loadedModel.getFolders().add(folder);
+        }
+
+        // All IDs are unique and registered
+        IDAdapter loadedAdapter = IDAdapter.getAdapter(loadedModel);
+        Set<String> ids = new HashSet<String>();
+        for(Iterator<EObject> iter = loadedModel.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IIdentifier) {
+                String id = ((IIdentifier)eObject).getId();
+                assertTrue(ids.add(id));
+                assertEquals(eObject, ArchimateModelUtils.getObjectByID(loadedModel, id));
+                assertTrue(loadedAdapter.isRegistered(id));
+            }
+        }
+        
+        assertTrue(ids.size() > COPIES * 700);
+        
+        // All IDs are released
+        loadedModel.getFolders().clear();
+        for(String id : ids) {
+            assertNull(ArchimateModelUtils.getObjectByID(loadedModel, id));
+            assertFalse(loadedAdapter.isRegistered(id));
+        }
+    }
+
+    private void addFolder(IArchimateModel model, IFolder folder) {
+        IFolder parent = model.getFolder(folder.getType());
+        if(parent != null) {
+            parent.getFolders().add(folder);
+        }
+        else {
+            model.getFolders().add(folder);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+
+
+/**
+ * IDRegistry Tests
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class IDRegistryTests {
+
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(IDRegistryTests.class);
+    }
+
+    @Test
+    public void add_Contains() {
+        IDRegistry registry = new IDRegistry();
+
+        assertTrue(registry.add("0badcafe"));
+        assertFalse(registry.add("0badcafe"));
+        assertTrue(registry.contains("0badcafe"));
+        assertFalse(registry.contains("0badcaff"));
+
+        // IDs that are not 8 lower case hex characters
+        assertTrue(registry.add("id-1234"));
+        assertTrue(registry.add("0BADCAFE"));
+        assertFalse(registry.add("id-1234"));
+        assertTrue(registry.contains("id-1234"));
+        assertTrue(registry.contains("0BADCAFE"));
+
+        assertEquals(3, registry.size());
+    }
+
+    @Test
+    public void remove() {
+        IDRegistry registry = new IDRegistry();
+
+        registry.add("0badcafe");
+        registry.add("id-1234");
+
+        assertTrue(registry.remove("0badcafe"));
+        assertFalse(registry.remove("0badcafe"));
+        assertFalse(registry.contains("0badcafe"));
+
+        assertTrue(registry.remove("id-1234"));
+        assertFalse(registry.contains("id-1234"));
+
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * IDs whose home slot is the last slot of the table probe round to the start of the table.
+     * Removing one of them has to shift the rest of the chain back across the end of the table.
+     */
+    @Test
+    public void remove_WrappedProbeChain() {
+        IDRegistry registry = new IDRegistry();
+        int lastSlot = IDRegistry.INITIAL_CAPACITY - 1;
+
+        // Three IDs with the last slot as home, which take the last slot and slots 0 and 1,
+        // and one ID with slot 0 as home, which goes in slot 2
+        List<String> wrapped = findIDs(registry, lastSlot, 3);
+        String id0 = findIDs(registry, 0, 1).get(0);
+
+        for(String id : wrapped) {
+            registry.add(id);
+        }
+        registry.add(id0);
+
+        // Remove each of the IDs in the chain in turn from a full chain
+        List<String> chain = new ArrayList<String>(wrapped);
+        chain.add(id0);
+
+        for(String removed : chain) {
+            assertTrue(registry.remove(removed));
+            assertFalse(registry.contains(removed));
+            for(String id : chain) {
+                if(id != removed) {
+                    assertTrue(id, registry.contains(id));
+                }
+            }
+            assertEquals(chain.size() - 1, registry.size());
+            registry.add(removed);
+        }
+
+        // Remove them all
+        for(String id : chain) {
+            assertTrue(registry.remove(id));
+        }
+        for(String id : chain) {
+            assertFalse(registry.contains(id));
+        }
+        assertEquals(0, registry.size());
+        assertEquals(IDRegistry.INITIAL_CAPACITY, registry.capacity());
+    }
+
+    @Test
+    public void add_Resize() {
+        IDRegistry registry = new IDRegistry();
+
+        List<String> ids = new ArrayList<String>();
+        for(int i = 0; i < 10000; i++) {
+            ids.add(String.format("%08x", i * 7919));
+        }
+
+        for(String id : ids) {
+            assertTrue(registry.add(id));
+        }
+
+        assertEquals(ids.size(), registry.size());
+        assertTrue(registry.capacity() >= ids.size() * 2);
+
+        for(String id : ids) {
+            assertTrue(registry.contains(id));
+        }
+
+        // Remove every other ID
+        for(int i = 0; i < ids.size(); i += 2) {
+            assertTrue(registry.remove(ids.get(i)));
+        }
+
+        for(int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, registry.contains(ids.get(i)));
+        }
+
+        assertEquals(ids.size() / 2, registry.size());
+    }
+
+    /**
+     * @return count IDs whose home slot in registry is slot
+     */
+    private List<String> findIDs(IDRegistry registry, int slot, int count) {
+        List<String> ids = new ArrayList<String>();
+        for(int i = 0; ids.size() < count; i++) {
+            String id = String.format("%08x", i);
+            if(registry.slot(IDRegistry.pack(id)) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IProperty;
+
+
+
+/**
+ * PropertyKeysAdapter Tests
+ *
+ * @author Phillip Beauvoir
+ */
+@SuppressWarnings("nls")
+public class PropertyKeysAdapterTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(PropertyKeysAdapterTests.class);
+    }
+
+    private IArchimateModel model;
+    private PropertyKeysAdapter adapter;
+
+    @Before
+    public void runBeforeEachTest() {
+        model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        adapter = PropertyKeysAdapter.getAdapter(model);
+        assertNotNull(adapter);
+    }
+
+    @Test
+    public void getKeys_UpdatedAsPropertiesChange() {
+        IArchimateElement element1 = createElement();
+        IArchimateElement element2 = createElement();
+
+        IProperty property1 = addProperty(element1, "Key1");
+        IProperty property2 = addProperty(element2, "Key1");
+        addProperty(element2, "Key2");
+
+        assertEquals(Arrays.asList("Key1", "Key2"), adapter.getKeys());
+        assertEquals(2, adapter.getUsageCount("Key1"));
+        assertTrue(adapter.getProperties("Key1").contains(property1));
+        assertTrue(adapter.getProperties("Key1").contains(property2));
+
+        // Key renamed
+        property1.setKey("Key3");
+        assertEquals(1, adapter.getUsageCount("Key1"));
+        assertEquals(1, adapter.getUsageCount("Key3"));
+
+        // Property removed
+        element2.getProperties().remove(property2);
+        assertEquals(Arrays.asList("Key2", "Key3"), adapter.getKeys());
+        assertTrue(adapter.getProperties("Key1").isEmpty());
+
+        // Element removed
+        element2.getProperties().add(property2);
+        model.getDefaultFolderForElement(element2).getElements().remove(element2);
+        assertEquals(Arrays.asList("Key3"), adapter.getKeys());
+
+        // Null key is not a key
+        property1.setKey(null);
+        assertTrue(adapter.getKeys().isEmpty());
+    }
+
+    private IArchimateElement createElement() {
+        IArchimateElement element = IArchimateFactory.eINSTANCE.createBusinessActor();
+        model.getDefaultFolderForElement(element).getElements().add(element);
+        return element;
+    }
+
+    private IProperty addProperty(IArchimateElement element, String key) {
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey(key);
+        element.getProperties().add(property);
+        return property;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import junit.framework.JUnit4TestAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.util.RelationshipsMatrix.TargetMatrix;
+
+
+
+/**
+ * RelationshipsMatrix Tests
+ *
+ * @author Phillip Beauvoir
+ */
+public class RelationshipsMatrixTests {
+
+    /**
+     * This is required in order to run JUnit 4 tests with the old JUnit runner
+     *
+     * @return
+     */
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(RelationshipsMatrixTests.class);
+    }
+
+    private RelationshipsMatrix matrix = RelationshipsMatrix.INSTANCE;
+
+    @Test
+    public void isValidRelationship_MatchesRelationshipsFile() {
+        List<EClass> elements = getElementClasses();
+        assertFalse(elements.isEmpty());
+
+        for(EClass source : elements) {
+            for(EClass target : elements) {
+                for(EClass relationship : matrix.getRelationshipsValueMap().keySet()) {
+                    assertEquals(source.getName() + " " + relationship.getName() + " " + target.getName(), //$NON-NLS-1$ //$NON-NLS-2$
+                            isInRelationshipsFile(source, target, relationship),
+                            matrix.isValidRelationship(source, target, relationship));
+                }
+
+                // Not relationship types
+                assertFalse(matrix.isValidRelationship(source, target, source));
+                assertFalse(matrix.isValidRelationship(source, target, IArchimatePackage.eINSTANCE.getRelationship()));
+            }
+        }
+    }
+
+    @Test
+    public void isValidRelationshipStart_MatchesRelationshipsFile() {
+        for(EClass source : getElementClasses()) {
+            IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(source);
+
+            for(EClass relationship : matrix.getRelationshipsValueMap().keySet()) {
+                boolean expected = false;
+                for(EClass target : getElementClasses()) {
+                    expected |= isInRelationshipsFile(source, target, relationship);
+                }
+
+                assertEquals(source.getName() + " " + relationship.getName(), //$NON-NLS-1$
+                        expected, matrix.isValidRelationshipStart(element, relationship));
+            }
+        }
+    }
+
+    /**
+     * @return True if relationships.xml, as loaded into the matrix map, allows the relationship
+     */
+    private boolean isInRelationshipsFile(EClass source, EClass target, EClass relationship) {
+        Map<EClass, List<TargetMatrix>> map = matrix.getRelationshipsMatrix();
+
+        List<TargetMatrix> targets = map.get(getMatrixClass(source));
+        if(targets == null) {
+            return false;
+        }
+
+        for(TargetMatrix targetMatrix : targets) {
+            if(targetMatrix.getTargetClass() == getMatrixClass(target) && targetMatrix.getRelationships().contains(relationship)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return The class used for eClass in relationships.xml. All Junction types use Junction.
+     */
+    private EClass getMatrixClass(EClass eClass) {
+        if(IArchimatePackage.eINSTANCE.getJunctionElement().isSuperTypeOf(eClass)) {
+            return IArchimatePackage.eINSTANCE.getJunction();
+        }
+        return eClass;
+    }
+
+    /**
+     * @return All concrete ArchiMate element classes
+     */
+    private List<EClass> getElementClasses() {
+        List<EClass> list = new ArrayList<EClass>();
+        for(EClassifier eClassifier : IArchimatePackage.eINSTANCE.getEClassifiers()) {
+            if(eClassifier instanceof EClass) {
+                EClass eClass = (EClass)eClassifier;
+                if(!eClass.isAbstract() && !eClass.isInterface() && IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)
+                        && !IArchimatePackage.eINSTANCE.getRelationship().isSuperTypeOf(eClass)) {
+                    list.add(eClass);
+                }
+            }
+        }
+        return list;
+    }
+}